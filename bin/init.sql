@@ -10,6 +10,103 @@
 --ON DELETE TO audit_log
 --DO INSTEAD NOTHING;
 
+-- Values of the dictionary-encoded audit_log columns (service, entity type, event type, action) and their codes,
+-- one code space for all four (see AuditDictionary). Codes are never reused or changed.
+CREATE TABLE IF NOT EXISTS audit_dictionary (
+    code integer generated by default as identity,
+    term varchar(255) not null,
+    primary key (code),
+    constraint uk_audit_dictionary_term unique (term)
+);
+
+-- Create audit_log as a table range-partitioned by month on timestamp.
+-- Monthly partitions are created ahead of time by the service (AuditLogPartitionManager);
+-- audit_log_default catches events outside the pre-created range.
+CREATE SEQUENCE IF NOT EXISTS audit_log_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS audit_log (
+    id bigint not null,
+    event_id varchar(255),
+    event_type_code integer,
+    service_name_code integer,
+    timestamp timestamp(6) with time zone not null,
+    user_id varchar(255),
+    entity_id varchar(255),
+    entity_type_code integer,
+    old_value text,
+    new_value text,
+    old_value_data bytea,
+    new_value_data bytea,
+    action_code integer,
+    chain_id varchar(64),
+    chain_seq bigint,
+    prev_hash bytea,
+    hash bytea,
+    primary key (id, timestamp),
+    constraint uk_audit_log_event_id unique (event_id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS audit_log_default PARTITION OF audit_log DEFAULT;
+
+-- Encoded payload columns for databases created before payload encoding (see AuditPayloadCodec)
+ALTER TABLE audit_log ADD COLUMN IF NOT EXISTS old_value_data bytea;
+ALTER TABLE audit_log ADD COLUMN IF NOT EXISTS new_value_data bytea;
+
+-- Hash chain columns for databases created before chaining (see AuditChainHeadRepositoryImpl)
+ALTER TABLE audit_log ADD COLUMN IF NOT EXISTS chain_id varchar(64);
+ALTER TABLE audit_log ADD COLUMN IF NOT EXISTS chain_seq bigint;
+ALTER TABLE audit_log ADD COLUMN IF NOT EXISTS prev_hash bytea;
+ALTER TABLE audit_log ADD COLUMN IF NOT EXISTS hash bytea;
+CREATE INDEX IF NOT EXISTS idx_chain_id_chain_seq ON audit_log (chain_id, chain_seq);
+
+-- Last position and hash of every hash chain. Appends to a chain lock its row, so audit_log itself is never
+-- updated and the write-only rules above still apply.
+CREATE TABLE IF NOT EXISTS audit_chain_head (
+    chain_id varchar(64) not null,
+    seq bigint not null,
+    hash bytea not null,
+    primary key (chain_id)
+);
+-- Last position of every chain AuditArchiver may move to the archive, for databases created before it existed
+ALTER TABLE audit_chain_head ADD COLUMN IF NOT EXISTS archived_seq bigint;
+
+-- Every eventId ever ingested (see AuditEventIdRepositoryImpl). audit_log's unique key must include the partition
+-- key, so this table is what makes an eventId unique on its own, also across archived and retired rows.
+CREATE TABLE IF NOT EXISTS audit_event_id (
+    event_id varchar(255) not null,
+    primary key (event_id)
+);
+
+-- Databases created before audit_event_id: claim the eventIds already stored, before ingestion starts
+INSERT INTO audit_event_id (event_id)
+SELECT DISTINCT event_id FROM audit_log WHERE event_id IS NOT NULL
+ON CONFLICT DO NOTHING;
+
+-- Event counts per minute/hour/day bucket, maintained on ingestion (see AuditStatsRollupRepositoryImpl).
+-- Missing dimensions are stored as ''.
+CREATE TABLE IF NOT EXISTS audit_stats_rollup (
+    granularity varchar(16) not null,
+    bucket_start timestamp(6) with time zone not null,
+    service_name varchar(255) not null,
+    entity_type varchar(255) not null,
+    action varchar(255) not null,
+    event_count bigint not null,
+    primary key (granularity, bucket_start, service_name, entity_type, action)
+);
+
+-- Materialized entity states for point-in-time reconstruction (see EntityStateService). A NULL state means the
+-- entity was deleted at that point.
+CREATE TABLE IF NOT EXISTS audit_entity_snapshot (
+    id bigint generated by default as identity,
+    entity_type varchar(255) not null,
+    entity_id varchar(255) not null,
+    as_of_timestamp timestamp(6) with time zone not null,
+    as_of_id bigint not null,
+    state TEXT,
+    primary key (id),
+    constraint uk_audit_entity_snapshot unique (entity_type, entity_id, as_of_timestamp, as_of_id)
+);
+
 -- Create user_acl table if it doesn't exist
 CREATE TABLE IF NOT EXISTS user_acl (
     is_admin boolean not null,
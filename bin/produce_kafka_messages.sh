@@ -23,11 +23,13 @@ until docker exec kafka kafka-topics --bootstrap-server "$KAFKA_BROKER" --list;
   sleep 1
 done
 
-# Produce messages from the JSON file
+# Produce messages from the JSON file, keyed by entityId so that events of one entity land on one partition in order
 echo "Producing messages to Kafka topic $TOPIC..."
 jq -c '.[]' "$JSON_FILE" | while read -r message; do
-  echo "$message" | docker exec -i kafka kafka-console-producer --bootstrap-server "$KAFKA_BROKER" --topic "$TOPIC"
-  echo "Produced message: $message"
+  key=$(echo "$message" | jq -r '.entityId // ""')
+  echo "$key|$message" | docker exec -i kafka kafka-console-producer --bootstrap-server "$KAFKA_BROKER" --topic "$TOPIC" \
+    --property parse.key=true --property "key.separator=|"
+  echo "Produced message ($key): $message"
 done
 
 echo "All messages produced successfully."
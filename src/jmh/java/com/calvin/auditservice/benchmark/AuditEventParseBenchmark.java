@@ -0,0 +1,58 @@
+package com.calvin.auditservice.benchmark;
+
+import com.calvin.auditservice.service.AuditEventParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Parsing cost of one Kafka record per payload size: the streaming parser used by the listener,
+// and the Gson DOM approach it replaced as a baseline
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuditEventParseBenchmark {
+
+    // Approximate size in bytes of each of oldValue and newValue
+    @Param({"256", "4096", "65536"})
+    private int payloadSize;
+
+    private AuditEventParser parser;
+    private byte[] message;
+
+    @Setup
+    public void setUp() {
+        parser = new AuditEventParser(new ObjectMapper());
+        message = ("{\"eventId\": \"event-1\", \"eventType\": \"update\", \"serviceName\": \"user-service\", " +
+                "\"timestamp\": \"2025-02-17T12:34:56Z\", \"userId\": \"user-1\", \"entityId\": \"entity-1\", " +
+                "\"entityType\": \"User\", \"oldValue\": " + payload("old") + ", \"newValue\": " + payload("new") + ", " +
+                "\"action\": \"update\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object streaming() {
+        return parser.parse(message);
+    }
+
+    @Benchmark
+    public Object gsonDom() {
+        JsonObject json = JsonParser.parseString(new String(message, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonElement oldValue = json.get("oldValue");
+        JsonElement newValue = json.get("newValue");
+        return new Object[]{json.get("eventId").getAsString(), oldValue.toString(), newValue.toString()};
+    }
+
+    private String payload(String prefix) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; json.length() < payloadSize; i++) {
+            json.append(i == 0 ? "" : ",").append("\"field").append(i).append("\": \"").append(prefix).append("-value-").append(i).append('"');
+        }
+        return json.append('}').toString();
+    }
+}
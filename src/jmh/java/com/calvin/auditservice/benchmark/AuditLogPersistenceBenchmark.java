@@ -0,0 +1,68 @@
+package com.calvin.auditservice.benchmark;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.service.AuditLogService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Events written per second through the single-row path (POST /v1/logs) and the batch path (Kafka, bulk)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuditLogPersistenceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private AuditLogService auditLogService;
+    private JdbcTemplate jdbcTemplate;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start("persistence");
+        auditLogService = context.getBean(AuditLogService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    // Every iteration starts from an empty table
+    @Setup(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("truncate table audit_log");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object saveSingle() {
+        long id = sequence.incrementAndGet();
+        return auditLogService.saveAuditLog("event-" + id, "update", "user-service", Instant.now(), "user-1",
+                "entity-" + (id % 1000), "User", "{\"name\":\"old\",\"id\":" + id + "}",
+                "{\"name\":\"new\",\"id\":" + id + "}", "update");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int ingestBatch() {
+        List<AuditLog> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            long id = sequence.incrementAndGet();
+            batch.add(auditLogService.buildAuditLog("event-" + id, "update", "user-service", Instant.now(), "user-1",
+                    "entity-" + (id % 1000), "User", "{\"name\":\"old\",\"id\":" + id + "}",
+                    "{\"name\":\"new\",\"id\":" + id + "}", "update"));
+        }
+        return auditLogService.ingestAuditLogs(batch);
+    }
+}
@@ -0,0 +1,78 @@
+package com.calvin.auditservice.benchmark;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditLogFilter;
+import com.calvin.auditservice.service.AuditLogService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// First-page latency of GET /v1/logs/{userId} for an admin, an ACL-restricted user, and a restricted user with a filter
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuditLogQueryBenchmark {
+
+    private static final String[] ENTITY_TYPES = {"User", "UserProfile", "Order", "Invoice", "Payment"};
+
+    @Param({"20000"})
+    private int rows;
+
+    @Param({"100"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private AuditLogService auditLogService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start("query");
+        auditLogService = context.getBean(AuditLogService.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into user_acl (id, user_id, is_admin) values (1, 'admin-user-id', true)");
+        jdbcTemplate.update("insert into user_acl (id, user_id, is_admin) values (2, 'non-admin-user-id', false)");
+        jdbcTemplate.update("insert into user_acl_allowed_entities (user_acl_id, allowed_entity) values (2, 'User'), (2, 'UserProfile')");
+
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+        List<AuditLog> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(auditLogService.buildAuditLog("event-" + i, "update", "service-" + (i % 4), base.plusSeconds(i),
+                    "user-" + (i % 50), "entity-" + (i % 500), ENTITY_TYPES[i % ENTITY_TYPES.length],
+                    "{\"name\":\"old\"}", "{\"name\":\"new-" + i + "\"}", "update"));
+            if (batch.size() == 1000) {
+                auditLogService.ingestAuditLogs(batch);
+                batch.clear();
+            }
+        }
+        auditLogService.ingestAuditLogs(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object adminPage() {
+        return auditLogService.getAuditLogsByUser("admin-user-id", new AuditLogFilter(), null, pageSize);
+    }
+
+    @Benchmark
+    public Object restrictedPage() {
+        return auditLogService.getAuditLogsByUser("non-admin-user-id", new AuditLogFilter(), null, pageSize);
+    }
+
+    @Benchmark
+    public Object restrictedFilteredPage() {
+        AuditLogFilter filter = AuditLogFilter.builder().entityId("entity-5").build();
+        return auditLogService.getAuditLogsByUser("non-admin-user-id", filter, null, pageSize);
+    }
+}
@@ -0,0 +1,60 @@
+package com.calvin.auditservice.benchmark;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cost of writing a GET /v1/logs response body (List<AuditLog>) with the mapper configuration Spring Boot applies
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuditLogSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private ObjectWriter writer;
+    private List<AuditLog> page;
+
+    @Setup
+    public void setUp() {
+        writer = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writerFor(new TypeReference<List<AuditLog>>() {
+                });
+        page = new ArrayList<>(pageSize);
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+        for (int i = 0; i < pageSize; i++) {
+            page.add(AuditLog.builder()
+                    .id((long) i)
+                    .eventId("event-" + i)
+                    .eventType("update")
+                    .serviceName("user-service")
+                    .timestamp(base.plusSeconds(i))
+                    .userId("user-1")
+                    .entityId("entity-" + i)
+                    .entityType("User")
+                    .oldValue("{\"name\":\"old\",\"email\":\"old@example.com\"}")
+                    .newValue("{\"name\":\"new\",\"email\":\"new@example.com\"}")
+                    .action("update")
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] writePage() throws Exception {
+        return writer.writeValueAsBytes(page);
+    }
+}
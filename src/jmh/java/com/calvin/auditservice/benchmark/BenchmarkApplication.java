@@ -0,0 +1,52 @@
+package com.calvin.auditservice.benchmark;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditDictionary;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import com.calvin.auditservice.repository.AuditPayloadCodec;
+import com.calvin.auditservice.service.AuditEventParser;
+import com.calvin.auditservice.service.AuditLogBroadcaster;
+import com.calvin.auditservice.service.AuditLogService;
+import com.calvin.auditservice.service.AuditMetrics;
+import com.calvin.auditservice.service.AuditSearchIndex;
+import com.calvin.auditservice.service.DatabaseConcurrencyLimiter;
+import com.calvin.auditservice.service.EntityStateCache;
+import com.calvin.auditservice.service.RecentEventIdFilter;
+import com.calvin.auditservice.service.UserAclCache;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+// The real service and repositories on an in-memory H2 database, without Kafka or the web layer
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = KafkaAutoConfiguration.class)
+@EntityScan(basePackageClasses = AuditLog.class)
+@EnableJpaRepositories(basePackageClasses = AuditLogRepository.class)
+@Import({AuditLogService.class, AuditEventParser.class, UserAclCache.class, RecentEventIdFilter.class,
+        AuditPayloadCodec.class, AuditDictionary.class, AuditMetrics.class, DatabaseConcurrencyLimiter.class,
+        AuditSearchIndex.class, EntityStateCache.class, AuditLogBroadcaster.class, AuditArchiveStore.class})
+class BenchmarkApplication {
+
+    static ConfigurableApplicationContext start(String database) {
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:h2:mem:" + database +
+                                ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.calvin=WARN");
+    }
+}
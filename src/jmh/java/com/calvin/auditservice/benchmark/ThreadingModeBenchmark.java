@@ -0,0 +1,122 @@
+package com.calvin.auditservice.benchmark;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditLogFilter;
+import com.calvin.auditservice.service.AuditLogService;
+import com.calvin.auditservice.service.DatabaseConcurrencyLimiter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Latency of a request that does not touch the database while `backlog` slow GET /v1/logs requests are in flight,
+// on a 200-thread platform pool (Tomcat's default) vs. one virtual thread per request. The slow requests queue
+// on the database permits either way; with platform threads they also occupy every request thread, so the
+// cheap request waits behind them.
+// The virtual mode needs Java 21: run -p mode=platform on older runtimes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ThreadingModeBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"1000"})
+    private int backlog;
+
+    private ConfigurableApplicationContext context;
+    private AuditLogService auditLogService;
+    private DatabaseConcurrencyLimiter dbLimiter;
+    private ExecutorService platformPool;
+    private Executor executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean loading;
+
+    @Setup(Level.Trial)
+    public void start() {
+        if (mode.equals("virtual") && !JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            throw new IllegalStateException("mode=virtual needs Java 21, running on " + JavaVersion.getJavaVersion());
+        }
+        context = BenchmarkApplication.start("threading");
+        auditLogService = context.getBean(AuditLogService.class);
+        dbLimiter = context.getBean(DatabaseConcurrencyLimiter.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into user_acl (id, user_id, is_admin) values (1, 'admin-user-id', true)");
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+        List<AuditLog> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(auditLogService.buildAuditLog("event-" + i, "update", "service", base.plusSeconds(i),
+                    "user", "entity-" + (i % 100), "User", "{\"name\":\"old\"}", "{\"name\":\"new\"}", "update"));
+        }
+        auditLogService.ingestAuditLogs(batch);
+
+        if (mode.equals("virtual")) {
+            executor = new VirtualThreadTaskExecutor("request-");
+        } else {
+            platformPool = Executors.newFixedThreadPool(PLATFORM_THREADS);
+            executor = platformPool;
+        }
+    }
+
+    // Keeps `backlog` slow requests in flight: each one resubmits itself when it completes
+    @Setup(Level.Iteration)
+    public void startLoad() {
+        loading = true;
+        inFlight.set(backlog);
+        for (int i = 0; i < backlog; i++) {
+            executor.execute(this::slowRequest);
+        }
+    }
+
+    // Lets the backlog finish so iterations do not overlap
+    @TearDown(Level.Iteration)
+    public void stopLoad() throws InterruptedException {
+        loading = false;
+        while (inFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (platformPool != null) {
+            platformPool.shutdownNow();
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public Object cheapRequestUnderLoad() {
+        return CompletableFuture.supplyAsync(() -> auditLogService.resolveUserAccess("admin-user-id"), executor).join();
+    }
+
+    private void slowRequest() {
+        if (!loading) {
+            inFlight.decrementAndGet();
+            return;
+        }
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquire()) {
+            auditLogService.getAuditLogsByUser("admin-user-id", new AuditLogFilter(), null, 20);
+        } catch (RuntimeException e) {
+            // 503 from the limiter: the client would retry
+        }
+        executor.execute(this::slowRequest);
+    }
+}
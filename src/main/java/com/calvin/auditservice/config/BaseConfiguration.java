@@ -1,14 +1,25 @@
 package com.calvin.auditservice.config;
 
-import com.google.gson.Gson;
+import com.calvin.auditservice.exception.InvalidAuditEventException;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaAdmin;
-import org.springframework.retry.support.RetryTemplate;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -22,6 +33,27 @@ public class BaseConfiguration {
     @Value("${kafka.topic.audit}")
     private String auditLogsTopic;
 
+    @Value("${kafka.topic.partitions:12}")
+    private int auditLogsTopicPartitions;
+
+    @Value("${kafka.topic.replicas:1}")
+    private short auditLogsTopicReplicas;
+
+    @Value("${kafka.topic.failed:${kafka.topic.audit}-failed}")
+    private String failedAuditLogsTopic;
+
+    @Value("${kafka.consumer.concurrency:3}")
+    private int consumerConcurrency;
+
+    @Value("${kafka.consumer.retry.delay-ms:500}")
+    private long consumerRetryDelayMs;
+
+    @Value("${kafka.consumer.retry.multiplier:2}")
+    private double consumerRetryMultiplier;
+
+    @Value("${kafka.consumer.retry.max-delay-ms:5000}")
+    private long consumerRetryMaxDelayMs;
+
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
@@ -34,19 +66,43 @@ public class BaseConfiguration {
     @Bean
     @DependsOn("kafkaAdmin") // Ensure KafkaAdmin is initialized first
     public NewTopic auditLogsTopic() {
-        return new NewTopic(auditLogsTopic, 1, (short) 1); // 1 partition, 1 replica
-    }
-
-    @Bean
-    public RetryTemplate retryTemplate() {
-        return RetryTemplate.builder()
-                .maxAttempts(5) // Retry up to 5 times
-                .fixedBackoff(1000) // Wait 1 second between retries
+        // Events are keyed by entityId, so per-entity ordering holds at any partition count.
+        // KafkaAdmin adds partitions to an existing topic when this count is raised.
+        return TopicBuilder.name(auditLogsTopic)
+                .partitions(auditLogsTopicPartitions)
+                .replicas(auditLogsTopicReplicas)
                 .build();
     }
 
     @Bean
-    public Gson gson() {
-        return new Gson();
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> auditListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaOperations<Object, Object> kafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        // One consumer per thread; Kafka assigns each partition to exactly one of them, which keeps per-key order
+        factory.setConcurrency(consumerConcurrency);
+        // Hand the whole poll (spring.kafka.consumer.max-poll-records) to the listener in one call
+        factory.setBatchListener(true);
+        // Offsets are committed only once the listener returns, i.e. after the batch transaction committed
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        // The listener reports the failing record's index (BatchListenerFailedException): the records before it are
+        // committed and the batch is redelivered from it, with a backoff capped at max-delay-ms. A record that fails
+        // for a transient reason (e.g. the database is down) is retried in place until it succeeds: recovering it
+        // elsewhere would let later events of the same entity overtake it. The partition waits meanwhile, and
+        // IngestionBackpressure pauses the listeners while the database is unhealthy. A record that can never be
+        // stored fails the same way on every delivery: a malformed event, or one the database rejects. It is not
+        // retried and goes straight to the dead-letter topic, keeping its key.
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(failedAuditLogsTopic + "-dlt", -1));
+        ExponentialBackOff backOff = new ExponentialBackOff(consumerRetryDelayMs, consumerRetryMultiplier);
+        backOff.setMaxInterval(consumerRetryMaxDelayMs);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, backOff);
+        errorHandler.addNotRetryableExceptions(InvalidAuditEventException.class, DataIntegrityViolationException.class);
+        // Checked before its DuplicateKeyException cause: the event was ingested concurrently and is dropped on retry
+        errorHandler.addRetryableExceptions(ConcurrencyFailureException.class);
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
     }
 }
@@ -1,11 +1,13 @@
-package com.example.auditservice.config;
+package com.calvin.auditservice.config;
 
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.ListTopicsResult;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.kafka.core.KafkaAdmin;
@@ -23,23 +25,37 @@ public class KafkaTopicVerifier implements ApplicationListener<ContextRefreshedE
     @Autowired
     private KafkaAdmin kafkaAdmin;
 
+    @Autowired
+    private NewTopic auditLogsTopic;
+
+    @Value("${kafka.consumer.concurrency:3}")
+    private int consumerConcurrency;
+
     @Override
     public void onApplicationEvent(ContextRefreshedEvent event) {
+        String topic = auditLogsTopic.name();
         try (AdminClient adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
             ListTopicsResult topics = adminClient.listTopics();
             Set<String> topicNames = topics.names().get();
             logger.info("Existing Kafka topics: {}", topicNames);
 
-            if (topicNames.contains("audit-events")) {
-                logger.info("Topic 'audit-events' already exists.");
+            if (topicNames.contains(topic)) {
+                TopicDescription description = adminClient.describeTopics(Collections.singleton(topic))
+                        .allTopicNames().get().get(topic);
+                int partitions = description.partitions().size();
+                logger.info("Topic '{}' already exists with {} partitions.", topic, partitions);
+                if (partitions < consumerConcurrency) {
+                    logger.warn("Topic '{}' has {} partitions but kafka.consumer.concurrency is {}; {} listener threads will stay idle.",
+                            topic, partitions, consumerConcurrency, consumerConcurrency - partitions);
+                }
             } else {
-                logger.info("Topic 'audit-events' does not exist. Attempting to create it...");
+                logger.info("Topic '{}' does not exist. Attempting to create it...", topic);
                 // The NewTopic bean should have already created it, but this is a fallback
-                adminClient.createTopics(Collections.singleton(new NewTopic("audit-events", 1, (short) 1)));
-                logger.info("Topic 'audit-events' created.");
+                adminClient.createTopics(Collections.singleton(auditLogsTopic)).all().get();
+                logger.info("Topic '{}' created.", topic);
             }
         } catch (InterruptedException | ExecutionException e) {
             logger.error("Failed to verify or create Kafka topic: {}", e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.calvin.auditservice.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a read-only @Transactional method whose queries may be served by the replica (audit.replica.enabled).
+// Its results can be up to audit.replica.max-lag behind the primary.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+}
@@ -0,0 +1,133 @@
+package com.calvin.auditservice.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+// Sends read-only transactions of @ReplicaRead methods to the replica pool and everything else to the primary.
+// Must sit behind a LazyConnectionDataSourceProxy: the transaction is marked read-only only after it began, so the
+// connection has to be picked at the first statement. Reads fall back to the primary while the replica lags more
+// than max-lag or cannot be reached.
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource replica;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+
+    // Nothing is read from the replica before its first check
+    private volatile boolean replicaAvailable;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, String lagQuery, Duration maxLag) {
+        this.replica = replica;
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    // The lag query answers the replica's delay in seconds; without one the replica only has to answer
+    @Scheduled(fixedDelayString = "${audit.replica.check-interval:5s}")
+    public void checkReplica() {
+        try {
+            Double lag = lagQuery == null || lagQuery.isBlank()
+                    ? null
+                    : replicaJdbcTemplate.queryForObject(lagQuery, Double.class);
+            if (lag == null) {
+                replicaJdbcTemplate.queryForObject("select 1", Integer.class);
+            }
+            lagSeconds = lag == null ? 0 : lag;
+            if (lagSeconds > maxLagSeconds) {
+                setReplicaAvailable(false, "lagging " + lagSeconds + " s behind");
+            } else {
+                setReplicaAvailable(true, null);
+            }
+        } catch (DataAccessException e) {
+            lagSeconds = Double.NaN;
+            setReplicaAvailable(false, e.getMessage());
+        }
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() != Route.REPLICA) {
+            return getResolvedDefaultDataSource().getConnection();
+        }
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            // Went down since the last check; reads stay on the primary until a check succeeds again
+            setReplicaAvailable(false, e.getMessage());
+            return getResolvedDefaultDataSource().getConnection();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return REPLICA_READ.get() && replicaAvailable && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? Route.REPLICA
+                : Route.PRIMARY;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audit.replica.available", this, dataSource -> dataSource.replicaAvailable ? 1 : 0)
+                .description("Whether read-only queries are served by the replica")
+                .register(registry);
+        Gauge.builder("audit.replica.lag", this, dataSource -> dataSource.lagSeconds)
+                .description("Replication delay of the replica at its last check")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    // Set around @ReplicaRead methods by ReplicaReadAspect; returns the previous value for nested calls
+    static boolean enterReplicaRead() {
+        boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(true);
+        return previous;
+    }
+
+    static void exitReplicaRead(boolean previous) {
+        if (previous) {
+            REPLICA_READ.set(true);
+        } else {
+            REPLICA_READ.remove();
+        }
+    }
+
+    private void setReplicaAvailable(boolean available, String reason) {
+        if (available != replicaAvailable) {
+            if (available) {
+                log.info("Replica is available again, serving read-only queries from it");
+            } else {
+                log.warn("Replica unavailable, serving read-only queries from the primary: {}", reason);
+            }
+        }
+        replicaAvailable = available;
+    }
+
+    private enum Route {
+        PRIMARY, REPLICA
+    }
+}
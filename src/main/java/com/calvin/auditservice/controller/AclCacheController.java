@@ -0,0 +1,52 @@
+package com.calvin.auditservice.controller;
+
+import com.calvin.auditservice.exception.ApiResponse;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.CacheStatistics;
+import com.calvin.auditservice.service.UserAclCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import static com.calvin.auditservice.controller.Authentication.isAuthenticated;
+
+@RestController
+@RequestMapping("/v1/acl/cache")
+public class AclCacheController {
+    private final UserAclCache userAclCache;
+
+    @Autowired
+    public AclCacheController(UserAclCache userAclCache) {
+        this.userAclCache = userAclCache;
+    }
+
+    @GetMapping
+    public CacheStatistics getStatistics() {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to read the ACL cache statistics.");
+        }
+
+        return userAclCache.statistics();
+    }
+
+    // Call after changing user_acl / user_acl_allowed_entities so the change is visible before the TTL expires
+    @DeleteMapping("/{userId}")
+    public ResponseEntity<ApiResponse> invalidate(@PathVariable("userId") String userId) {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to invalidate the ACL cache.");
+        }
+
+        userAclCache.invalidate(userId);
+        return ResponseEntity.ok(new ApiResponse("ACL cache entry invalidated"));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<ApiResponse> invalidateAll() {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to invalidate the ACL cache.");
+        }
+
+        userAclCache.invalidateAll();
+        return ResponseEntity.ok(new ApiResponse("ACL cache invalidated"));
+    }
+}
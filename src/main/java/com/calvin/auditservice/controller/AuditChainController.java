@@ -0,0 +1,39 @@
+package com.calvin.auditservice.controller;
+
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.ChainVerification;
+import com.calvin.auditservice.service.AuditChainVerifier;
+import com.calvin.auditservice.service.DatabaseConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+import static com.calvin.auditservice.controller.Authentication.isAuthenticated;
+
+@RestController
+@RequestMapping("/v1/chain")
+public class AuditChainController {
+    private final AuditChainVerifier chainVerifier;
+    private final DatabaseConcurrencyLimiter dbLimiter;
+
+    @Autowired
+    public AuditChainController(AuditChainVerifier chainVerifier, DatabaseConcurrencyLimiter dbLimiter) {
+        this.chainVerifier = chainVerifier;
+        this.dbLimiter = dbLimiter;
+    }
+
+    // Verifies the hash chains of the audit logs in [from, to); a long range keeps its permit for minutes
+    @GetMapping("/{userId}/verify")
+    public ChainVerification verify(@PathVariable("userId") String userId,
+                                    @RequestParam("from") Instant from,
+                                    @RequestParam("to") Instant to) {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to verify the audit log.");
+        }
+
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquireExport()) {
+            return chainVerifier.verify(userId, from, to);
+        }
+    }
+}
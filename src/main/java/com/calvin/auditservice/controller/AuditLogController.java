@@ -4,30 +4,122 @@ import com.calvin.auditservice.exception.ApiResponse;
 import com.calvin.auditservice.exception.BadRequestException;
 import com.calvin.auditservice.exception.UnauthorizedException;
 import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditLogFilter;
+import com.calvin.auditservice.model.AuditLogPage;
+import com.calvin.auditservice.model.BulkIngestResult;
+import com.calvin.auditservice.model.UserAccess;
 import com.calvin.auditservice.service.AuditLogService;
+import com.calvin.auditservice.service.AuditLogWriteBehind;
+import com.calvin.auditservice.service.DatabaseConcurrencyLimiter;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+
+import static com.calvin.auditservice.controller.Authentication.isAuthenticated;
 
 @RestController
 @RequestMapping("/v1")
 public class AuditLogController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final String EXPORT_PERMIT = AuditLogController.class.getName() + ".EXPORT_PERMIT";
+
     private final AuditLogService auditService;
+    private final AuditLogWriteBehind writeBehind;
+    private final DatabaseConcurrencyLimiter dbLimiter;
 
     @Autowired
-    public AuditLogController(AuditLogService auditService) {
+    public AuditLogController(AuditLogService auditService, AuditLogWriteBehind writeBehind,
+                              DatabaseConcurrencyLimiter dbLimiter) {
         this.auditService = auditService;
+        this.writeBehind = writeBehind;
+        this.dbLimiter = dbLimiter;
     }
 
     @GetMapping("/logs/{userId}")
-    public List<AuditLog> getAuditLogsByUserId(@PathVariable("userId") String userId) {
+    public ResponseEntity<List<AuditLog>> getAuditLogsByUserId(@PathVariable("userId") String userId,
+                                                               AuditLogFilter filter,
+                                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                                               @RequestParam(value = "limit", required = false) Integer limit) {
         if (!isAuthenticated()) {
             throw new UnauthorizedException("Authentication is required to retrieve the audit log.");
         }
 
-        return auditService.getAuditLogsByUser(userId);
+        if (filter.getFrom() != null && filter.getTo() != null && !filter.getFrom().isBefore(filter.getTo())) {
+            throw new BadRequestException("from must be before to.");
+        }
+
+        AuditLogPage page;
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquire()) {
+            page = auditService.getAuditLogsByUser(userId, filter, cursor, limit);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/logs/{userId}/export")
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(@PathVariable("userId") String userId,
+                                                                 @RequestParam("from") Instant from,
+                                                                 @RequestParam("to") Instant to,
+                                                                 @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                                                                 HttpServletRequest request) {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to export the audit log.");
+        }
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("from must be before to.");
+        }
+
+        // Resolve the ACL before the response is committed so a missing user still gets a 404
+        UserAccess access = auditService.resolveUserAccess(userId);
+        // Taken here so an overloaded service still answers 503; released once the stream is written, or when the
+        // async request completes, times out or fails without the body having run
+        DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquireExport();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_PERMIT,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.close();
+                    }
+                });
+        StreamingResponseBody body = out -> {
+            try (permit) {
+                OutputStream target = gzip
+                        ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE)
+                        : new BufferedOutputStream(out, EXPORT_BUFFER_SIZE);
+                try (target) {
+                    auditService.exportAuditLogs(access, from, to, target);
+                }
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"audit-logs.ndjson\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @PostMapping("/logs")
@@ -43,23 +135,49 @@ public class AuditLogController {
             throw new UnauthorizedException("Authentication is required to create an audit log.");
         }
 
-        auditService.saveAuditLog(
-            auditLog.getEventId(),
-            auditLog.getEventType(),
-            auditLog.getServiceName(),
-            auditLog.getUserId(),
-            auditLog.getEntityId(),
-            auditLog.getEntityType(),
-            auditLog.getOldValue(),
-            auditLog.getNewValue(),
-            auditLog.getAction()
-        );
+        if (writeBehind.isEnabled()) {
+            // Accepted for the background writer; a full queue surfaces as 503
+            writeBehind.enqueue(auditService.buildAuditLog(
+                auditLog.getEventId(),
+                auditLog.getEventType(),
+                auditLog.getServiceName(),
+                auditLog.getTimestamp(),
+                auditLog.getUserId(),
+                auditLog.getEntityId(),
+                auditLog.getEntityType(),
+                auditLog.getOldValue(),
+                auditLog.getNewValue(),
+                auditLog.getAction()
+            ));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new ApiResponse("Audit log accepted"));
+        }
+
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquire()) {
+            auditService.saveAuditLog(
+                auditLog.getEventId(),
+                auditLog.getEventType(),
+                auditLog.getServiceName(),
+                auditLog.getTimestamp(),
+                auditLog.getUserId(),
+                auditLog.getEntityId(),
+                auditLog.getEntityType(),
+                auditLog.getOldValue(),
+                auditLog.getNewValue(),
+                auditLog.getAction()
+            );
+        }
 
         return ResponseEntity.status(HttpStatus.CREATED).body(new ApiResponse("Audit log created successfully"));
     }
 
-    private boolean isAuthenticated() {
-        // TODO: Replace with real authentication logic
-        return true;
+    // Streams a JSON array or NDJSON body; per-event validation failures are reported in the result
+    @PostMapping(value = "/logs/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkIngestResult> createAuditLogs(InputStream body) throws IOException {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to create audit logs.");
+        }
+
+        // Takes a database permit per batch, not while the body is being read
+        return ResponseEntity.ok(auditService.ingestBulk(body));
     }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.calvin.auditservice.controller;
+
+import com.calvin.auditservice.exception.ApiResponse;
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditSearchQuery;
+import com.calvin.auditservice.service.AuditSearchService;
+import com.calvin.auditservice.service.DatabaseConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import static com.calvin.auditservice.controller.Authentication.isAuthenticated;
+
+@RestController
+@RequestMapping("/v1/search")
+public class AuditSearchController {
+    private final AuditSearchService searchService;
+    private final DatabaseConcurrencyLimiter dbLimiter;
+
+    @Autowired
+    public AuditSearchController(AuditSearchService searchService, DatabaseConcurrencyLimiter dbLimiter) {
+        this.searchService = searchService;
+        this.dbLimiter = dbLimiter;
+    }
+
+    @GetMapping("/{userId}")
+    public List<AuditLog> search(@PathVariable("userId") String userId,
+                                 @RequestParam("q") String text,
+                                 @RequestParam(value = "path", required = false) String path,
+                                 @RequestParam(value = "entityType", required = false) String entityType,
+                                 @RequestParam(value = "serviceName", required = false) String serviceName,
+                                 @RequestParam(value = "from", required = false) Instant from,
+                                 @RequestParam(value = "to", required = false) Instant to,
+                                 @RequestParam(value = "limit", required = false) Integer limit) throws IOException {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to search the audit log.");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("from must be before to.");
+        }
+
+        AuditSearchQuery query = AuditSearchQuery.builder()
+                .text(text)
+                .path(path)
+                .entityType(entityType)
+                .serviceName(serviceName)
+                .from(from)
+                .to(to)
+                .build();
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquire()) {
+            return searchService.search(userId, query, limit);
+        }
+    }
+
+    // Re-indexes the audit logs in [from, to), e.g. after a crash or when enabling search on existing data
+    @PostMapping("/{userId}/reindex")
+    public ResponseEntity<ApiResponse> reindex(@PathVariable("userId") String userId,
+                                               @RequestParam("from") Instant from,
+                                               @RequestParam("to") Instant to) throws IOException {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to rebuild the search index.");
+        }
+
+        long indexed;
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquireExport()) {
+            indexed = searchService.reindex(userId, from, to);
+        }
+        return ResponseEntity.ok(new ApiResponse("Search index rebuilt: " + indexed + " audit logs"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.calvin.auditservice.controller;
+
+import com.calvin.auditservice.exception.ApiResponse;
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditStatsBucket;
+import com.calvin.auditservice.model.AuditStatsQuery;
+import com.calvin.auditservice.model.StatsDimension;
+import com.calvin.auditservice.model.StatsGranularity;
+import com.calvin.auditservice.service.AuditStatsService;
+import com.calvin.auditservice.service.DatabaseConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.calvin.auditservice.controller.Authentication.isAuthenticated;
+
+@RestController
+@RequestMapping("/v1/stats")
+public class AuditStatsController {
+    private final AuditStatsService statsService;
+    private final DatabaseConcurrencyLimiter dbLimiter;
+
+    @Autowired
+    public AuditStatsController(AuditStatsService statsService, DatabaseConcurrencyLimiter dbLimiter) {
+        this.statsService = statsService;
+        this.dbLimiter = dbLimiter;
+    }
+
+    @GetMapping("/{userId}")
+    public List<AuditStatsBucket> getStats(@PathVariable("userId") String userId,
+                                           @RequestParam(value = "granularity", defaultValue = "hour") String granularity,
+                                           @RequestParam("from") Instant from,
+                                           @RequestParam("to") Instant to,
+                                           @RequestParam(value = "groupBy", defaultValue = "serviceName,entityType,action") List<String> groupBy,
+                                           @RequestParam(value = "serviceName", required = false) String serviceName,
+                                           @RequestParam(value = "entityType", required = false) String entityType,
+                                           @RequestParam(value = "action", required = false) String action) {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to read audit statistics.");
+        }
+
+        AuditStatsQuery query = AuditStatsQuery.builder()
+                .granularity(parseGranularity(granularity))
+                .from(from)
+                .to(to)
+                .groupBy(parseDimensions(groupBy))
+                .serviceName(serviceName)
+                .entityType(entityType)
+                .action(action)
+                .build();
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquire()) {
+            return statsService.getStats(userId, query);
+        }
+    }
+
+    // Recomputes the rollups from audit_log, e.g. after a backfill or when enabling statistics on existing data
+    @PostMapping("/{userId}/rebuild")
+    public ResponseEntity<ApiResponse> rebuild(@PathVariable("userId") String userId,
+                                               @RequestParam("from") Instant from,
+                                               @RequestParam("to") Instant to) {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to rebuild audit statistics.");
+        }
+
+        int written;
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquire()) {
+            written = statsService.rebuild(userId, from, to);
+        }
+        return ResponseEntity.ok(new ApiResponse("Audit statistics rebuilt: " + written + " rollup rows"));
+    }
+
+    private static StatsGranularity parseGranularity(String granularity) {
+        try {
+            return StatsGranularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("granularity must be one of minute, hour, day.");
+        }
+    }
+
+    private static List<StatsDimension> parseDimensions(List<String> groupBy) {
+        List<StatsDimension> dimensions = new ArrayList<>();
+        for (String parameter : groupBy) {
+            if (parameter.isBlank()) {
+                continue;
+            }
+            StatsDimension dimension = StatsDimension.fromParameter(parameter.trim());
+            if (dimension == null) {
+                throw new BadRequestException("groupBy accepts serviceName, entityType and action.");
+            }
+            if (!dimensions.contains(dimension)) {
+                dimensions.add(dimension);
+            }
+        }
+        return dimensions;
+    }
+}
@@ -0,0 +1,41 @@
+package com.calvin.auditservice.controller;
+
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.service.AuditLogBroadcaster;
+import com.calvin.auditservice.service.AuditLogService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static com.calvin.auditservice.controller.Authentication.isAuthenticated;
+
+@RestController
+@RequestMapping("/v1/tail")
+public class AuditTailController {
+    private final AuditLogService auditService;
+    private final AuditLogBroadcaster broadcaster;
+
+    @Autowired
+    public AuditTailController(AuditLogService auditService, AuditLogBroadcaster broadcaster) {
+        this.auditService = auditService;
+        this.broadcaster = broadcaster;
+    }
+
+    // Server-Sent Events of the audit logs ingested from now on; replaces polling GET /v1/logs/{userId}
+    @GetMapping(value = "/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter tail(@PathVariable("userId") String userId,
+                           @RequestParam(value = "entityType", required = false) String entityType,
+                           @RequestParam(value = "serviceName", required = false) String serviceName) {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to tail the audit log.");
+        }
+
+        UserAccess access = auditService.resolveUserAccess(userId);
+        if (entityType != null && !access.canView(entityType)) {
+            throw new UnauthorizedException("User ( " + userId + " ) cannot view entity type " + entityType + ".");
+        }
+        return broadcaster.subscribe(access, entityType, serviceName);
+    }
+}
@@ -0,0 +1,40 @@
+package com.calvin.auditservice.controller;
+
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.EntityState;
+import com.calvin.auditservice.service.DatabaseConcurrencyLimiter;
+import com.calvin.auditservice.service.EntityStateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+import static com.calvin.auditservice.controller.Authentication.isAuthenticated;
+
+@RestController
+@RequestMapping("/v1/state")
+public class EntityStateController {
+    private final EntityStateService stateService;
+    private final DatabaseConcurrencyLimiter dbLimiter;
+
+    @Autowired
+    public EntityStateController(EntityStateService stateService, DatabaseConcurrencyLimiter dbLimiter) {
+        this.stateService = stateService;
+        this.dbLimiter = dbLimiter;
+    }
+
+    // What the entity looked like at asOf (default: now), rebuilt from its audit events
+    @GetMapping("/{userId}")
+    public EntityState getState(@PathVariable("userId") String userId,
+                                @RequestParam("entityType") String entityType,
+                                @RequestParam("entityId") String entityId,
+                                @RequestParam(value = "asOf", required = false) Instant asOf) {
+        if (!isAuthenticated()) {
+            throw new UnauthorizedException("Authentication is required to reconstruct entity state.");
+        }
+
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquire()) {
+            return stateService.getState(userId, entityType, entityId, asOf != null ? asOf : Instant.now());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.calvin.auditservice.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// An audit event that is not well-formed; carries every violation found, not just the first
+@Getter
+public class InvalidAuditEventException extends BadRequestException {
+    private final String eventId;
+    private final List<String> violations;
+
+    public InvalidAuditEventException(String eventId, List<String> violations) {
+        super(String.join("; ", violations));
+        this.eventId = eventId;
+        this.violations = List.copyOf(violations);
+    }
+}
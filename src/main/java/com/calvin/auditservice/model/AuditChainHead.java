@@ -0,0 +1,28 @@
+package com.calvin.auditservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Last position of one hash chain; the row lock on it orders the appends to the chain
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "audit_chain_head")
+public class AuditChainHead {
+
+    @Id
+    private String chainId;
+    private long seq;
+    @Column(columnDefinition = "bytea")
+    private byte[] hash;
+    // Positions up to this one are older than the last archive cutoff and may be in the archive (see AuditArchiver)
+    private Long archivedSeq;
+}
@@ -0,0 +1,35 @@
+package com.calvin.auditservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One value of the dictionary-encoded audit_log columns and the code stored in its place (see AuditDictionary)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "audit_dictionary",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_audit_dictionary_term", columnNames = {"term"})
+        }
+)
+public class AuditDictionaryEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer code;
+
+    @Column(nullable = false)
+    private String term;
+}
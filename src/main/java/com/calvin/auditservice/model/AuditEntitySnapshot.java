@@ -0,0 +1,45 @@
+package com.calvin.auditservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.Instant;
+
+// Materialized state of an entity after replaying its audit events up to and including (asOfTimestamp, asOfId),
+// written by EntityStateService so later reconstructions only replay the events after it
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "audit_entity_snapshot",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_audit_entity_snapshot",
+                        columnNames = {"entity_type", "entity_id", "as_of_timestamp", "as_of_id"})
+        }
+)
+public class AuditEntitySnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String entityType;
+    private String entityId;
+    private Instant asOfTimestamp;
+    private Long asOfId;
+    // Null when the entity was deleted at that point
+    @ToString.Exclude
+    @Column(columnDefinition = "TEXT")
+    private String state;
+}
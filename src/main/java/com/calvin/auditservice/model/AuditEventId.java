@@ -0,0 +1,21 @@
+package com.calvin.auditservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Every eventId ever ingested. audit_log is partitioned by timestamp, so its unique key has to include it; this
+// table makes the eventId unique on its own, whatever timestamp the event got
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "audit_event_id")
+public class AuditEventId {
+
+    @Id
+    private String eventId;
+}
@@ -0,0 +1,7 @@
+package com.calvin.auditservice.model;
+
+import java.time.Instant;
+
+// Place of an audit event in an entity's history, which is ordered by (timestamp, id)
+public record AuditEventPosition(Long id, Instant timestamp) {
+}
@@ -1,10 +1,20 @@
 package com.calvin.auditservice.model;
 
+import com.calvin.auditservice.repository.AuditChainListener;
+import com.calvin.auditservice.repository.AuditDictionaryConverter;
+import com.calvin.auditservice.repository.AuditDictionaryListener;
+import com.calvin.auditservice.repository.AuditEntitySnapshotListener;
+import com.calvin.auditservice.repository.AuditEventIdListener;
+import com.calvin.auditservice.repository.AuditPayloadListener;
+import com.calvin.auditservice.repository.AuditStatsListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.Instant;
 
@@ -13,30 +23,97 @@ import java.time.Instant;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+// The chain hashes the encoded payload columns, so it runs after AuditPayloadListener
+@EntityListeners({AuditDictionaryListener.class, AuditPayloadListener.class, AuditChainListener.class,
+        AuditEventIdListener.class, AuditStatsListener.class, AuditEntitySnapshotListener.class})
 @Table(
         name = "audit_log",
         indexes = {
-                @Index(name = "idx_entity_type", columnList = "entity_type")
+                @Index(name = "idx_timestamp_id", columnList = "timestamp, id"),
+                @Index(name = "idx_entity_type_timestamp_id", columnList = "entity_type_code, timestamp, id"),
+                @Index(name = "idx_entity_id_timestamp", columnList = "entity_id, timestamp"),
+                @Index(name = "idx_service_name_timestamp", columnList = "service_name_code, timestamp"),
+                @Index(name = "idx_user_id_timestamp", columnList = "user_id, timestamp"),
+                @Index(name = "idx_event_id", columnList = "event_id"),
+                @Index(name = "idx_chain_id_chain_seq", columnList = "chain_id, chain_seq")
+        },
+        // Unique keys of a partitioned table must contain the partition key (timestamp)
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_audit_log_event_id", columnNames = {"event_id", "timestamp"})
         }
 )
 public class AuditLog {
 
+    // Pooled sequence so Hibernate can pre-allocate ids and batch the inserts (IDENTITY disables JDBC batching)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_log_seq")
+    @SequenceGenerator(name = "audit_log_seq", sequenceName = "audit_log_seq", allocationSize = 50)
     private Long id;
 
     private String eventId;
+
+    // Low-cardinality columns, stored as AuditDictionary codes; filters on them compare codes
+    @Convert(converter = AuditDictionaryConverter.class)
+    @Column(name = "event_type_code")
     private String eventType;
+    @Convert(converter = AuditDictionaryConverter.class)
+    @Column(name = "service_name_code")
     private String serviceName;
     private Instant timestamp;
     private String userId;
     private String entityId;
+    @Convert(converter = AuditDictionaryConverter.class)
+    @Column(name = "entity_type_code")
     private String entityType;
 
-    @Column(name = "old_value", columnDefinition = "TEXT")
+    // API view of the payloads; persisted through the columns below by AuditPayloadListener
+    @Transient
     private String oldValue;
-    @Column(name = "new_value", columnDefinition = "TEXT")
+    @Transient
     private String newValue;
 
+    // Plain-text payloads (PLAIN encoding, and rows written before payload encoding existed)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "old_value", columnDefinition = "TEXT")
+    private String plainOldValue;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "new_value", columnDefinition = "TEXT")
+    private String plainNewValue;
+
+    // DELTA encoding: newValue in full, oldValue as a JSON merge patch against it, gzip above the threshold
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "old_value_data", columnDefinition = "bytea")
+    private byte[] encodedOldValue;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(name = "new_value_data", columnDefinition = "bytea")
+    private byte[] encodedNewValue;
+
+    @Convert(converter = AuditDictionaryConverter.class)
+    @Column(name = "action_code")
     private String action;
+
+    // Tamper evidence (see AuditChainHeadRepositoryImpl): position in a hash chain, the hash of the previous row of
+    // the chain and the SHA-256 of that hash plus this row's stored columns
+    @JsonIgnore
+    private String chainId;
+    @JsonIgnore
+    private Long chainSeq;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(columnDefinition = "bytea")
+    private byte[] prevHash;
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Column(columnDefinition = "bytea")
+    private byte[] hash;
 }
\ No newline at end of file
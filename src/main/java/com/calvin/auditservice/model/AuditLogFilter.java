@@ -0,0 +1,37 @@
+package com.calvin.auditservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Optional filters of the audit log read API; null fields do not filter
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuditLogFilter {
+    private String serviceName;
+    private String entityId;
+    // Matches AuditLog.userId (the user who performed the action), not the user reading the logs
+    private String actor;
+    private String action;
+    private String eventType;
+    // Inclusive lower bound
+    private Instant from;
+    // Exclusive upper bound
+    private Instant to;
+
+    // In-memory form of AuditLogSpecifications.matching, for rows read from the archive
+    public boolean matches(AuditLog auditLog) {
+        return (serviceName == null || serviceName.equals(auditLog.getServiceName()))
+                && (entityId == null || entityId.equals(auditLog.getEntityId()))
+                && (actor == null || actor.equals(auditLog.getUserId()))
+                && (action == null || action.equals(auditLog.getAction()))
+                && (eventType == null || eventType.equals(auditLog.getEventType()))
+                && (from == null || !auditLog.getTimestamp().isBefore(from))
+                && (to == null || auditLog.getTimestamp().isBefore(to));
+    }
+}
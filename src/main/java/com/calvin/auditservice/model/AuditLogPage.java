@@ -0,0 +1,14 @@
+package com.calvin.auditservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AuditLogPage {
+    private List<AuditLog> items;
+    // Opaque continuation token for the next page, null when this is the last page
+    private String nextCursor;
+}
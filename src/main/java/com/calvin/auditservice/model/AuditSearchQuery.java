@@ -0,0 +1,23 @@
+package com.calvin.auditservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Parameters of the search API: text matches a whole payload or metadata value, or words inside a payload value;
+// with path it must be the whole value at that flattened JSON path (e.g. "newValue.customer.email")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuditSearchQuery {
+    private String text;
+    private String path;
+    private String entityType;
+    private String serviceName;
+    private Instant from;
+    private Instant to;
+}
@@ -0,0 +1,21 @@
+package com.calvin.auditservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// One row of the statistics API; dimensions that were not grouped by are omitted
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AuditStatsBucket {
+    private Instant bucketStart;
+    private String serviceName;
+    private String entityType;
+    private String action;
+    private long count;
+}
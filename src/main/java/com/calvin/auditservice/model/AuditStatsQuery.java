@@ -0,0 +1,24 @@
+package com.calvin.auditservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+// Parameters of the statistics API: buckets starting in [from, to), grouped by groupBy, narrowed by the filters
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuditStatsQuery {
+    private StatsGranularity granularity;
+    private Instant from;
+    private Instant to;
+    private List<StatsDimension> groupBy;
+    private String serviceName;
+    private String entityType;
+    private String action;
+}
@@ -0,0 +1,29 @@
+package com.calvin.auditservice.model;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pre-aggregated event counts per bucket and dimension combination, maintained by the ingestion path
+// (see AuditStatsRollupRepositoryImpl) so statistics never scan audit_log
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "audit_stats_rollup",
+        indexes = {
+                @Index(name = "idx_stats_granularity_bucket", columnList = "granularity, bucket_start")
+        }
+)
+public class AuditStatsRollup {
+
+    @EmbeddedId
+    private AuditStatsRollupId id;
+
+    private long eventCount;
+}
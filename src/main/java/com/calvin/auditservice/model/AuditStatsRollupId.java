@@ -0,0 +1,32 @@
+package com.calvin.auditservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+// Missing dimensions are stored as '' because primary key columns cannot be null
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Embeddable
+public class AuditStatsRollupId implements Serializable {
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private StatsGranularity granularity;
+
+    private Instant bucketStart;
+
+    private String serviceName;
+
+    private String entityType;
+
+    private String action;
+}
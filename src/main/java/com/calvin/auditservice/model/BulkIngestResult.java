@@ -0,0 +1,21 @@
+package com.calvin.auditservice.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkIngestResult {
+    private int received;
+    private int inserted;
+    // Valid events whose eventId was already stored
+    private int duplicates;
+    private int rejected;
+    private List<BulkItemError> errors = new ArrayList<>();
+
+    public void reject(int index, String eventId, String message) {
+        rejected++;
+        errors.add(new BulkItemError(index, eventId, message));
+    }
+}
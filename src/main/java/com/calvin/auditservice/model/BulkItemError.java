@@ -0,0 +1,13 @@
+package com.calvin.auditservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BulkItemError {
+    // Zero-based position of the event in the request body
+    private int index;
+    private String eventId;
+    private String message;
+}
@@ -0,0 +1,29 @@
+package com.calvin.auditservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One place where a hash chain does not verify
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChainBreak {
+
+    public enum Reason {
+        // The row's stored columns do not hash to its stored hash: the row was changed
+        HASH_MISMATCH,
+        // The row does not point at the hash of the row before it: a row was replaced, reordered or inserted
+        LINK_MISMATCH,
+        // Positions missing from the chain: rows were deleted (or lost to a concurrent duplicate insert)
+        GAP
+    }
+
+    private String chainId;
+    private long seq;
+    // Null for a gap
+    private String eventId;
+    private Reason reason;
+}
@@ -0,0 +1,26 @@
+package com.calvin.auditservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+// Result of verifying the hash chains of the audit logs in [from, to)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChainVerification {
+    private Instant from;
+    private Instant to;
+    private int chains;
+    private long rowsVerified;
+    private boolean valid;
+    private long breakCount;
+    // The first breaks found, at most audit.chain.max-reported-breaks
+    private List<ChainBreak> breaks;
+    private long durationMillis;
+}
@@ -0,0 +1,27 @@
+package com.calvin.auditservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// An entity as of a point in time: the result of replaying its audit events up to the last one at or before asOf
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EntityState {
+    private String entityType;
+    private String entityId;
+    private Instant asOf;
+    private Long lastEventId;
+    private Instant lastEventTimestamp;
+    private boolean deleted;
+    @JsonRawValue
+    private String state;
+}
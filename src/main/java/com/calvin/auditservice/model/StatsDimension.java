@@ -0,0 +1,29 @@
+package com.calvin.auditservice.model;
+
+import java.util.Arrays;
+
+// Columns the statistics API can group by, named as in the audit log JSON
+public enum StatsDimension {
+    SERVICE_NAME("serviceName", "service_name"),
+    ENTITY_TYPE("entityType", "entity_type"),
+    ACTION("action", "action");
+
+    private final String parameter;
+    private final String column;
+
+    StatsDimension(String parameter, String column) {
+        this.parameter = parameter;
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public static StatsDimension fromParameter(String parameter) {
+        return Arrays.stream(values())
+                .filter(dimension -> dimension.parameter.equals(parameter))
+                .findFirst()
+                .orElse(null);
+    }
+}
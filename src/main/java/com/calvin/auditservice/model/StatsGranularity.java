@@ -0,0 +1,25 @@
+package com.calvin.auditservice.model;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// Bucket sizes of the audit_stats_rollup table; buckets are aligned to UTC
+public enum StatsGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    StatsGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public Instant bucketOf(Instant timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+
+    public long seconds() {
+        return unit.getDuration().getSeconds();
+    }
+}
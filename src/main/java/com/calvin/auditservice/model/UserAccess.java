@@ -0,0 +1,17 @@
+package com.calvin.auditservice.model;
+
+import lombok.Value;
+
+import java.util.Set;
+
+// Resolved, detached view of a UserAcl: the admin flag plus the entity types a non-admin may read
+@Value
+public class UserAccess {
+    String userId;
+    boolean admin;
+    Set<String> allowedEntities;
+
+    public boolean canView(String entityType) {
+        return admin || allowedEntities.contains(entityType);
+    }
+}
@@ -0,0 +1,482 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Immutable, column-oriented file of archived audit logs in (timestamp, id) order.
+// Layout: magic, row groups, footer, footer offset, magic. A row group holds up to ROWS_PER_GROUP rows as one
+// deflate-compressed chunk per column. The footer has the timestamp range and entity types of the segment and
+// the timestamp range and chunk lengths of every row group, so readers skip whole segments and row groups.
+// Files are memory-mapped; a query only inflates the chunks of the row groups it reads, and the payload chunks
+// only when a row of the group matched.
+// Rows keep their hash chain position and hashes, and DELTA-encoded rows their encoded payloads next to the decoded
+// ones, so AuditChainVerifier can rehash archived rows. Version 1 segments, written before that, lack those columns.
+public final class AuditArchiveSegment {
+
+    static final int ROWS_PER_GROUP = 8192;
+    private static final byte[] MAGIC = "AUDSEG02".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MAGIC_V1 = "AUDSEG01".getBytes(StandardCharsets.US_ASCII);
+
+    // New columns go last; a segment has the first columnCount of them
+    private enum Column { ID, TIMESTAMP, EVENT_ID, EVENT_TYPE, SERVICE_NAME, USER_ID, ENTITY_ID, ENTITY_TYPE, ACTION, OLD_VALUE, NEW_VALUE,
+        CHAIN_ID, CHAIN_SEQ, PREV_HASH, HASH, OLD_VALUE_DATA, NEW_VALUE_DATA }
+
+    private static final Column[] COLUMNS = Column.values();
+    private static final int COLUMNS_V1 = Column.NEW_VALUE.ordinal() + 1;
+
+    private final Path file;
+    private final MappedByteBuffer data;
+    private final long rowCount;
+    private final Instant minTimestamp;
+    private final Instant maxTimestamp;
+    private final Set<String> entityTypes;
+    private final List<RowGroup> rowGroups;
+
+    private AuditArchiveSegment(Path file, MappedByteBuffer data, long rowCount, Instant minTimestamp,
+                                Instant maxTimestamp, Set<String> entityTypes, List<RowGroup> rowGroups) {
+        this.file = file;
+        this.data = data;
+        this.rowCount = rowCount;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.entityTypes = entityTypes;
+        this.rowGroups = rowGroups;
+    }
+
+    public static AuditArchiveSegment open(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive segment larger than 2 GB: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = data.capacity();
+        if (size < 2 * MAGIC.length + Long.BYTES) {
+            throw new IOException("Not an archive segment: " + file);
+        }
+        int columnCount;
+        if (hasMagic(data, 0, MAGIC) && hasMagic(data, size - MAGIC.length, MAGIC)) {
+            columnCount = COLUMNS.length;
+        } else if (hasMagic(data, 0, MAGIC_V1) && hasMagic(data, size - MAGIC.length, MAGIC_V1)) {
+            columnCount = COLUMNS_V1;
+        } else {
+            throw new IOException("Not an archive segment: " + file);
+        }
+        int footerOffset = (int) data.getLong(size - MAGIC.length - Long.BYTES);
+        byte[] footer = new byte[size - MAGIC.length - Long.BYTES - footerOffset];
+        data.get(footerOffset, footer);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer));
+        long rowCount = in.readLong();
+        Instant min = fromMicros(in.readLong());
+        Instant max = fromMicros(in.readLong());
+        Set<String> entityTypes = new TreeSet<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            entityTypes.add(in.readUTF());
+        }
+        List<RowGroup> rowGroups = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            int rows = in.readInt();
+            long groupMin = in.readLong();
+            long groupMax = in.readLong();
+            int offset = (int) in.readLong();
+            int[] chunkOffsets = new int[columnCount];
+            int[] compressedLengths = new int[columnCount];
+            int[] rawLengths = new int[columnCount];
+            int position = offset;
+            for (int c = 0; c < columnCount; c++) {
+                chunkOffsets[c] = position;
+                compressedLengths[c] = in.readInt();
+                rawLengths[c] = in.readInt();
+                position += compressedLengths[c];
+            }
+            rowGroups.add(new RowGroup(rows, fromMicros(groupMin), fromMicros(groupMax), chunkOffsets,
+                    compressedLengths, rawLengths));
+        }
+        return new AuditArchiveSegment(file, data, rowCount, min, max, Collections.unmodifiableSet(entityTypes),
+                rowGroups);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public Instant getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public Instant getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public Set<String> getEntityTypes() {
+        return entityTypes;
+    }
+
+    // Whether any row could fall in [from, to) with one of the entity types (null bounds and types match all)
+    public boolean overlaps(Instant from, Instant to, Collection<String> entityTypes) {
+        return (from == null || !maxTimestamp.isBefore(from))
+                && (to == null || minTimestamp.isBefore(to))
+                && (entityTypes == null || !Collections.disjoint(this.entityTypes, entityTypes));
+    }
+
+    int rowGroupCount() {
+        return rowGroups.size();
+    }
+
+    boolean rowGroupOverlaps(int group, Instant from, Instant to) {
+        RowGroup rowGroup = rowGroups.get(group);
+        return (from == null || !rowGroup.maxTimestamp().isBefore(from))
+                && (to == null || rowGroup.minTimestamp().isBefore(to));
+    }
+
+    // Rows of one row group in [from, to) that match the predicate, oldest first. The predicate sees every
+    // column except the payloads, which are filled in for the matching rows only.
+    List<AuditLog> read(int group, Instant from, Instant to, Predicate<AuditLog> predicate) {
+        RowGroup rowGroup = rowGroups.get(group);
+        ByteBuffer ids = column(rowGroup, Column.ID);
+        ByteBuffer timestamps = column(rowGroup, Column.TIMESTAMP);
+        ByteBuffer eventIds = column(rowGroup, Column.EVENT_ID);
+        ByteBuffer eventTypes = column(rowGroup, Column.EVENT_TYPE);
+        ByteBuffer serviceNames = column(rowGroup, Column.SERVICE_NAME);
+        ByteBuffer userIds = column(rowGroup, Column.USER_ID);
+        ByteBuffer entityIds = column(rowGroup, Column.ENTITY_ID);
+        ByteBuffer entityTypes = column(rowGroup, Column.ENTITY_TYPE);
+        ByteBuffer actions = column(rowGroup, Column.ACTION);
+        ByteBuffer chainIds = column(rowGroup, Column.CHAIN_ID);
+        ByteBuffer chainSeqs = column(rowGroup, Column.CHAIN_SEQ);
+
+        AuditLog[] matches = new AuditLog[rowGroup.rows()];
+        boolean any = false;
+        long id = 0;
+        long micros = 0;
+        for (int row = 0; row < rowGroup.rows(); row++) {
+            id += readVarLong(ids);
+            micros += readVarLong(timestamps);
+            AuditLog auditLog = AuditLog.builder()
+                    .id(id)
+                    .timestamp(fromMicros(micros))
+                    .eventId(readString(eventIds))
+                    .eventType(readString(eventTypes))
+                    .serviceName(readString(serviceNames))
+                    .userId(readString(userIds))
+                    .entityId(readString(entityIds))
+                    .entityType(readString(entityTypes))
+                    .action(readString(actions))
+                    .chainId(chainIds == null ? null : readString(chainIds))
+                    .chainSeq(chainSeqs == null ? null : readOptionalLong(chainSeqs))
+                    .build();
+            if ((from == null || !auditLog.getTimestamp().isBefore(from))
+                    && (to == null || auditLog.getTimestamp().isBefore(to))
+                    && predicate.test(auditLog)) {
+                matches[row] = auditLog;
+                any = true;
+            }
+        }
+        if (!any) {
+            return List.of();
+        }
+
+        ByteBuffer oldValues = column(rowGroup, Column.OLD_VALUE);
+        ByteBuffer newValues = column(rowGroup, Column.NEW_VALUE);
+        ByteBuffer prevHashes = column(rowGroup, Column.PREV_HASH);
+        ByteBuffer hashes = column(rowGroup, Column.HASH);
+        ByteBuffer oldValueData = column(rowGroup, Column.OLD_VALUE_DATA);
+        ByteBuffer newValueData = column(rowGroup, Column.NEW_VALUE_DATA);
+        List<AuditLog> result = new ArrayList<>();
+        for (AuditLog match : matches) {
+            String oldValue = readString(oldValues);
+            String newValue = readString(newValues);
+            byte[] prevHash = prevHashes == null ? null : readOptionalBytes(prevHashes);
+            byte[] hash = hashes == null ? null : readOptionalBytes(hashes);
+            byte[] encodedOldValue = oldValueData == null ? null : readOptionalBytes(oldValueData);
+            byte[] encodedNewValue = newValueData == null ? null : readOptionalBytes(newValueData);
+            if (match != null) {
+                match.setOldValue(oldValue);
+                match.setNewValue(newValue);
+                // The stored columns, as AuditPayloadCodec.decode reads them
+                if (encodedOldValue == null && encodedNewValue == null) {
+                    match.setPlainOldValue(oldValue);
+                    match.setPlainNewValue(newValue);
+                }
+                match.setEncodedOldValue(encodedOldValue);
+                match.setEncodedNewValue(encodedNewValue);
+                match.setPrevHash(prevHash);
+                match.setHash(hash);
+                result.add(match);
+            }
+        }
+        return result;
+    }
+
+    // Null for a column the segment predates
+    private ByteBuffer column(RowGroup rowGroup, Column column) {
+        int c = column.ordinal();
+        if (c >= rowGroup.chunkOffsets().length) {
+            return null;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice(rowGroup.chunkOffsets()[c], rowGroup.compressedLengths()[c]));
+            byte[] raw = new byte[rowGroup.rawLengths()[c]];
+            int length = 0;
+            while (length < raw.length) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated column " + column + " in " + file);
+                }
+                length += inflated;
+            }
+            return ByteBuffer.wrap(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt column " + column + " in " + file, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean hasMagic(ByteBuffer data, int offset, byte[] expected) {
+        byte[] magic = new byte[expected.length];
+        data.get(offset, magic);
+        return Arrays.equals(magic, expected);
+    }
+
+    // PostgreSQL timestamps have microsecond precision
+    static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            zigzag |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+    }
+
+    // Value + 1 as a var long, 0 for null
+    private static Long readOptionalLong(ByteBuffer in) {
+        long value = readVarLong(in);
+        return value == 0 ? null : value - 1;
+    }
+
+    // Length + 1 as a var long (0 for null), then the UTF-8 bytes
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = readOptionalBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Length + 1 as a var long (0 for null), then the bytes
+    private static byte[] readOptionalBytes(ByteBuffer in) {
+        long length = readVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[(int) length];
+        in.get(value);
+        return value;
+    }
+
+    private record RowGroup(int rows, Instant minTimestamp, Instant maxTimestamp, int[] chunkOffsets,
+                            int[] compressedLengths, int[] rawLengths) {
+    }
+
+    // Appends rows, which must arrive in (timestamp, id) order, and compresses every full row group right away,
+    // so only one row group is held in memory
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final Deflater deflater;
+        private final List<AuditLog> pending = new ArrayList<>(ROWS_PER_GROUP);
+        private final ByteArrayOutputStream footerGroups = new ByteArrayOutputStream();
+        private final DataOutputStream groups = new DataOutputStream(footerGroups);
+        private final Set<String> entityTypes = new TreeSet<>();
+        private long position;
+        private long rowCount;
+        private int groupCount;
+        private long minMicros = Long.MAX_VALUE;
+        private long maxMicros = Long.MIN_VALUE;
+
+        public Writer(Path file, int compressionLevel) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.deflater = new Deflater(compressionLevel);
+            write(MAGIC);
+        }
+
+        public long getRowCount() {
+            return rowCount + pending.size();
+        }
+
+        public void add(AuditLog auditLog) throws IOException {
+            pending.add(auditLog);
+            if (pending.size() == ROWS_PER_GROUP) {
+                flushRowGroup();
+            }
+        }
+
+        // Writes the footer and forces the file to disk
+        public void finish() throws IOException {
+            flushRowGroup();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(bytes);
+            footer.writeLong(rowCount);
+            footer.writeLong(rowCount == 0 ? 0 : minMicros);
+            footer.writeLong(rowCount == 0 ? 0 : maxMicros);
+            footer.writeInt(entityTypes.size());
+            for (String entityType : entityTypes) {
+                footer.writeUTF(entityType);
+            }
+            footer.writeInt(groupCount);
+            footer.write(footerGroups.toByteArray());
+            footer.writeLong(position);
+            footer.write(MAGIC);
+            write(bytes.toByteArray());
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+
+        private void flushRowGroup() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ColumnBuffer[] columns = new ColumnBuffer[COLUMNS.length];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = new ColumnBuffer();
+            }
+            long previousId = 0;
+            long previousMicros = 0;
+            long groupMin = Long.MAX_VALUE;
+            long groupMax = Long.MIN_VALUE;
+            for (AuditLog auditLog : pending) {
+                long micros = toMicros(auditLog.getTimestamp());
+                // Deltas keep the var longs short: ids and timestamps grow slowly within a group
+                columns[Column.ID.ordinal()].writeVarLong(auditLog.getId() - previousId);
+                columns[Column.TIMESTAMP.ordinal()].writeVarLong(micros - previousMicros);
+                columns[Column.EVENT_ID.ordinal()].writeString(auditLog.getEventId());
+                columns[Column.EVENT_TYPE.ordinal()].writeString(auditLog.getEventType());
+                columns[Column.SERVICE_NAME.ordinal()].writeString(auditLog.getServiceName());
+                columns[Column.USER_ID.ordinal()].writeString(auditLog.getUserId());
+                columns[Column.ENTITY_ID.ordinal()].writeString(auditLog.getEntityId());
+                columns[Column.ENTITY_TYPE.ordinal()].writeString(auditLog.getEntityType());
+                columns[Column.ACTION.ordinal()].writeString(auditLog.getAction());
+                columns[Column.OLD_VALUE.ordinal()].writeString(auditLog.getOldValue());
+                columns[Column.NEW_VALUE.ordinal()].writeString(auditLog.getNewValue());
+                columns[Column.CHAIN_ID.ordinal()].writeString(auditLog.getChainId());
+                columns[Column.CHAIN_SEQ.ordinal()].writeVarLong(auditLog.getChainSeq() == null ? 0 : auditLog.getChainSeq() + 1);
+                columns[Column.PREV_HASH.ordinal()].writeOptionalBytes(auditLog.getPrevHash());
+                columns[Column.HASH.ordinal()].writeOptionalBytes(auditLog.getHash());
+                columns[Column.OLD_VALUE_DATA.ordinal()].writeOptionalBytes(auditLog.getEncodedOldValue());
+                columns[Column.NEW_VALUE_DATA.ordinal()].writeOptionalBytes(auditLog.getEncodedNewValue());
+                previousId = auditLog.getId();
+                previousMicros = micros;
+                groupMin = Math.min(groupMin, micros);
+                groupMax = Math.max(groupMax, micros);
+                if (auditLog.getEntityType() != null) {
+                    entityTypes.add(auditLog.getEntityType());
+                }
+            }
+
+            groups.writeInt(pending.size());
+            groups.writeLong(groupMin);
+            groups.writeLong(groupMax);
+            groups.writeLong(position);
+            for (ColumnBuffer column : columns) {
+                byte[] raw = column.toByteArray();
+                byte[] compressed = deflate(raw);
+                groups.writeInt(compressed.length);
+                groups.writeInt(raw.length);
+                write(compressed);
+            }
+
+            rowCount += pending.size();
+            groupCount++;
+            minMicros = Math.min(minMicros, groupMin);
+            maxMicros = Math.max(maxMicros, groupMax);
+            pending.clear();
+        }
+
+        private byte[] deflate(byte[] raw) {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer);
+            }
+        }
+    }
+
+    private static final class ColumnBuffer extends ByteArrayOutputStream {
+        void writeVarLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7fL) != 0) {
+                write((int) ((zigzag & 0x7f) | 0x80));
+                zigzag >>>= 7;
+            }
+            write((int) zigzag);
+        }
+
+        void writeString(String value) {
+            writeOptionalBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeOptionalBytes(byte[] value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(value.length + 1L);
+            write(value, 0, value.length);
+        }
+    }
+}
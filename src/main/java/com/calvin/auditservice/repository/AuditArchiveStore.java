@@ -0,0 +1,234 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+// Cold tier of audit_log: immutable segment files (see AuditArchiveSegment) in one directory, written by
+// AuditArchiver. Segments become visible atomically once complete, and instances sharing the directory pick up
+// new ones every refresh-interval.
+@Slf4j
+@Component
+public class AuditArchiveStore implements MeterBinder {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int compressionLevel;
+    // Copy-on-write, so readers iterate a stable list
+    private volatile List<AuditArchiveSegment> segments = List.of();
+
+    public AuditArchiveStore(@Value("${audit.archive.enabled:false}") boolean enabled,
+                             @Value("${audit.archive.directory:data/archive}") Path directory,
+                             @Value("${audit.archive.compression-level:6}") int compressionLevel) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.compressionLevel = compressionLevel;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        refresh();
+        log.info("Audit archive opened at {} ({} segments, {} rows)", directory.toAbsolutePath(), segments.size(),
+                segments.stream().mapToLong(AuditArchiveSegment::getRowCount).sum());
+    }
+
+    @Scheduled(fixedDelayString = "${audit.archive.refresh-interval:1m}")
+    public synchronized void refresh() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        List<Path> known = segments.stream().map(AuditArchiveSegment::getFile).toList();
+        List<AuditArchiveSegment> added = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!known.contains(file)) {
+                    added.add(AuditArchiveSegment.open(file));
+                }
+            }
+        }
+        if (!added.isEmpty()) {
+            register(added);
+        }
+    }
+
+    // Newest archived timestamp, or null while nothing is archived
+    public Instant getMaxTimestamp() {
+        Instant max = null;
+        for (AuditArchiveSegment segment : segments) {
+            if (max == null || segment.getMaxTimestamp().isAfter(max)) {
+                max = segment.getMaxTimestamp();
+            }
+        }
+        return max;
+    }
+
+    // Writes rows, which must arrive in (timestamp, id) order, to a new segment. Returns the number of rows written.
+    public long write(Iterator<AuditLog> rows) throws IOException {
+        String name = "audit-" + UUID.randomUUID();
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        long written;
+        try (AuditArchiveSegment.Writer writer = new AuditArchiveSegment.Writer(temp, compressionLevel)) {
+            while (rows.hasNext()) {
+                writer.add(rows.next());
+            }
+            writer.finish();
+            written = writer.getRowCount();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        if (written == 0) {
+            Files.delete(temp);
+            return 0;
+        }
+        // Readers never see a partial segment; an interrupted write leaves a temp file that is never read
+        Path file = Files.move(temp, directory.resolve(name + SEGMENT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        register(List.of(AuditArchiveSegment.open(file)));
+        return written;
+    }
+
+    // Archived rows in [from, to) (null bounds are open) with one of the entity types (null for all) that match
+    // the predicate, in (timestamp, id) order, newest first when descending. Segments and row groups outside the
+    // bounds are skipped; the others are read as the iterator advances, a segment only once its rows can come next.
+    public Iterator<AuditLog> scan(Instant from, Instant to, Collection<String> entityTypes,
+                                   Predicate<AuditLog> predicate, boolean descending) {
+        Comparator<AuditArchiveSegment> firstRow = descending
+                ? Comparator.comparing(AuditArchiveSegment::getMaxTimestamp).reversed()
+                : Comparator.comparing(AuditArchiveSegment::getMinTimestamp);
+        Deque<AuditArchiveSegment> pending = new ArrayDeque<>(segments.stream()
+                .filter(segment -> segment.overlaps(from, to, entityTypes))
+                .sorted(firstRow)
+                .toList());
+        if (pending.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        AuditLogMergeIterator merged = new AuditLogMergeIterator(
+                descending ? AuditLogMergeIterator.NEWEST_FIRST : AuditLogMergeIterator.OLDEST_FIRST, List.of());
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                while (!pending.isEmpty()) {
+                    AuditLog head = merged.peek();
+                    AuditArchiveSegment next = pending.peek();
+                    boolean mayComeFirst = head == null || (descending
+                            ? !next.getMaxTimestamp().isBefore(head.getTimestamp())
+                            : !next.getMinTimestamp().isAfter(head.getTimestamp()));
+                    if (!mayComeFirst) {
+                        break;
+                    }
+                    merged.add(new SegmentIterator(pending.poll(), from, to, predicate, descending));
+                }
+                return merged.hasNext();
+            }
+
+            @Override
+            public AuditLog next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return merged.next();
+            }
+        };
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audit.archive.segments", this, store -> store.segments.size())
+                .description("Audit archive segment files")
+                .register(registry);
+        Gauge.builder("audit.archive.rows", this,
+                        store -> store.segments.stream().mapToLong(AuditArchiveSegment::getRowCount).sum())
+                .description("Audit logs in the archive")
+                .register(registry);
+    }
+
+    private synchronized void register(List<AuditArchiveSegment> added) {
+        List<AuditArchiveSegment> updated = new ArrayList<>(segments);
+        updated.addAll(added);
+        segments = List.copyOf(updated);
+    }
+
+    // One segment's matching rows, one row group at a time
+    private static final class SegmentIterator implements Iterator<AuditLog> {
+        private final AuditArchiveSegment segment;
+        private final Instant from;
+        private final Instant to;
+        private final Predicate<AuditLog> predicate;
+        private final boolean descending;
+        private int nextGroup;
+        private List<AuditLog> rows = List.of();
+        private int position;
+
+        SegmentIterator(AuditArchiveSegment segment, Instant from, Instant to, Predicate<AuditLog> predicate,
+                        boolean descending) {
+            this.segment = segment;
+            this.from = from;
+            this.to = to;
+            this.predicate = predicate;
+            this.descending = descending;
+            this.nextGroup = descending ? segment.rowGroupCount() - 1 : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == rows.size()) {
+                if (nextGroup < 0 || nextGroup >= segment.rowGroupCount()) {
+                    return false;
+                }
+                int group = nextGroup;
+                nextGroup += descending ? -1 : 1;
+                if (segment.rowGroupOverlaps(group, from, to)) {
+                    rows = segment.read(group, from, to, predicate);
+                    if (descending) {
+                        Collections.reverse(rows);
+                    }
+                    position = 0;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public AuditLog next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rows.get(position++);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditChainHead;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AuditChainHeadRepository extends JpaRepository<AuditChainHead, String>, AuditChainHeadRepositoryCustom {
+}
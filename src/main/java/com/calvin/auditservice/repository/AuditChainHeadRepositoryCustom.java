@@ -0,0 +1,21 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface AuditChainHeadRepositoryCustom {
+    // Assign chainId (when absent) to audit logs about to be inserted and lock the heads of their chains until the
+    // transaction ends. No other transaction can append to those chains meanwhile, so rows read after this are the
+    // rows the chains hold. Must run in the inserting transaction.
+    void lock(List<AuditLog> auditLogs);
+
+    // Append audit logs to their hash chains in list order, setting chainId (when absent), chainSeq, prevHash and
+    // hash. The payload columns must already be encoded. Must run in the inserting transaction.
+    void link(List<AuditLog> auditLogs);
+
+    // Raise the archived_seq of every chain to the last position up to which all of its rows are older than before,
+    // so archiving moves a prefix of each chain and never leaves a hole in it (see AuditArchiver)
+    void advanceArchivedSeq(Instant before);
+}
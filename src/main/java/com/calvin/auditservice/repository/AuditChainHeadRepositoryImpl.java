@@ -0,0 +1,148 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+// Appends rows to hash chains. Every row stores its position (chain_id, chain_seq), the hash of the previous row of
+// its chain and its own hash (see AuditLogHasher), so editing, deleting or inserting a row breaks the chain.
+// Appends to one chain are ordered by a row lock on its head, held until the inserting transaction commits. Chains
+// are per Kafka partition, whose events one consumer thread already writes in order, so Kafka ingestion never
+// waits on another thread's lock. Rows ingested over HTTP are spread over api-chains chains by entityId.
+public class AuditChainHeadRepositoryImpl implements AuditChainHeadRepositoryCustom {
+
+    private static final String INSERT_HEAD_SQL =
+            "insert into audit_chain_head (chain_id, seq, hash) values (?, 0, ?) on conflict do nothing";
+    private static final String UPDATE_HEAD_SQL = "update audit_chain_head set seq = ?, hash = ? where chain_id = ?";
+    // Per chain, the position before its first row at or after the cutoff, or its committed head when it has none.
+    // Rows still being inserted come after the committed head, so they are never counted as archivable.
+    private static final String ARCHIVABLE_SQL =
+            "select h.chain_id, coalesce((select min(l.chain_seq) - 1 from audit_log l where l.chain_id = h.chain_id " +
+            "and l.chain_seq > coalesce(h.archived_seq, 0) and l.timestamp >= ?), h.seq) " +
+            "from audit_chain_head h order by h.chain_id";
+    private static final String UPDATE_ARCHIVED_SQL =
+            "update audit_chain_head set archived_seq = ? where chain_id = ? and (archived_seq is null or archived_seq < ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${audit.chain.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.chain.api-chains:8}")
+    private int apiChains;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lock(List<AuditLog> auditLogs) {
+        if (enabled && !auditLogs.isEmpty()) {
+            lockChains(auditLogs);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void link(List<AuditLog> auditLogs) {
+        if (!enabled || auditLogs.isEmpty()) {
+            return;
+        }
+        // Already held when lock() ran first in this transaction
+        Map<String, Head> heads = lockChains(auditLogs);
+
+        // Hash the batch in list order; only the final head of each chain is written back
+        AuditLogHasher hasher = new AuditLogHasher();
+        for (AuditLog auditLog : auditLogs) {
+            Head head = heads.get(auditLog.getChainId());
+            head.seq++;
+            auditLog.setChainSeq(head.seq);
+            auditLog.setPrevHash(head.hash);
+            auditLog.setHash(hasher.hash(head.hash, auditLog));
+            head.hash = auditLog.getHash();
+        }
+        writeHeads(heads);
+    }
+
+    @Override
+    @Transactional
+    public void advanceArchivedSeq(Instant before) {
+        List<Map.Entry<String, Long>> archivable = jdbcTemplate.query(ARCHIVABLE_SQL,
+                (rs, rowNum) -> Map.entry(rs.getString(1), rs.getLong(2)), before.atOffset(ZoneOffset.UTC));
+        // In chain id order, like the appends, and without holding the heads during the scan above
+        jdbcTemplate.batchUpdate(UPDATE_ARCHIVED_SQL, archivable, archivable.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getValue());
+            ps.setString(2, entry.getKey());
+            ps.setLong(3, entry.getValue());
+        });
+    }
+
+    private Map<String, Head> lockChains(List<AuditLog> auditLogs) {
+        SortedSet<String> chainIds = new TreeSet<>();
+        for (AuditLog auditLog : auditLogs) {
+            if (auditLog.getChainId() == null) {
+                auditLog.setChainId("api-" + Math.floorMod(Objects.hashCode(auditLog.getEntityId()), apiChains));
+            }
+            // PostgreSQL keeps microseconds; hash the value that will be stored
+            auditLog.setTimestamp(auditLog.getTimestamp().truncatedTo(ChronoUnit.MICROS));
+            chainIds.add(auditLog.getChainId());
+        }
+
+        Map<String, Head> heads = lockHeads(chainIds);
+        if (heads.size() < chainIds.size()) {
+            List<String> missing = chainIds.stream().filter(chainId -> !heads.containsKey(chainId)).toList();
+            jdbcTemplate.batchUpdate(INSERT_HEAD_SQL, missing, missing.size(), (ps, chainId) -> {
+                ps.setString(1, chainId);
+                ps.setBytes(2, AuditLogHasher.GENESIS);
+            });
+            heads.putAll(lockHeads(missing));
+        }
+        return heads;
+    }
+
+    private void writeHeads(Map<String, Head> heads) {
+        List<Map.Entry<String, Head>> updated = new ArrayList<>(heads.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_HEAD_SQL, updated, updated.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getValue().seq);
+            ps.setBytes(2, entry.getValue().hash);
+            ps.setString(3, entry.getKey());
+        });
+    }
+
+    // Locked in chain id order, so batches spanning several chains cannot deadlock each other
+    private Map<String, Head> lockHeads(Collection<String> chainIds) {
+        Map<String, Head> heads = new HashMap<>();
+        String placeholders = String.join(", ", Collections.nCopies(chainIds.size(), "?"));
+        jdbcTemplate.query("select chain_id, seq, hash from audit_chain_head where chain_id in (" + placeholders +
+                        ") order by chain_id for update",
+                rs -> {
+                    heads.put(rs.getString(1), new Head(rs.getLong(2), rs.getBytes(3)));
+                },
+                chainIds.toArray());
+        return heads;
+    }
+
+    private static final class Head {
+        private long seq;
+        private byte[] hash;
+
+        Head(long seq, byte[] hash) {
+            this.seq = seq;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Links audit logs saved through JPA into their hash chain, in the inserting transaction.
+// Batch inserts bypass JPA and link the rows themselves (see AuditLogRepositoryImpl).
+@Component
+public class AuditChainListener {
+
+    // Resolved lazily: the repository needs the entity manager factory that creates this listener
+    private final ObjectProvider<AuditChainHeadRepository> chainHeadRepository;
+
+    public AuditChainListener(ObjectProvider<AuditChainHeadRepository> chainHeadRepository) {
+        this.chainHeadRepository = chainHeadRepository;
+    }
+
+    @PrePersist
+    public void link(AuditLog auditLog) {
+        chainHeadRepository.getObject().link(List.of(auditLog));
+    }
+}
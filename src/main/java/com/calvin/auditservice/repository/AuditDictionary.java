@@ -0,0 +1,179 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Maps the low-cardinality audit_log columns (serviceName, entityType, eventType, action) to the integer codes stored
+// in their place. All four share one code space in audit_dictionary. A code never changes once assigned, so every
+// instance keeps the whole dictionary (a few dozen values) in memory and only reads the table on a miss.
+@Component
+public class AuditDictionary {
+
+    // Code of a value that was never stored; it matches no row
+    public static final int UNKNOWN = -1;
+
+    private static final String INSERT_SQL = "insert into audit_dictionary (term) values (?) on conflict do nothing";
+    private static final String SELECT_SQL = "select code, term from audit_dictionary";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long reloadIntervalNanos;
+
+    private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, String> terms = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile long lastReload;
+
+    public AuditDictionary(JdbcTemplate jdbcTemplate,
+                           @Value("${audit.dictionary.reload-interval:1s}") Duration reloadInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reloadIntervalNanos = reloadInterval.toNanos();
+    }
+
+    // Code of a value for writes and query parameters; never adds the value. Filters on values that were never
+    // stored miss on every request, so a miss reads the table at most once per reload interval.
+    public Integer code(String term) {
+        if (term == null) {
+            return null;
+        }
+        Integer code = codes.get(term);
+        Pending pending = currentPending();
+        if (code == null && pending != null) {
+            code = pending.codes().get(term);
+        }
+        if (code == null && reloadIfStale()) {
+            code = codes.get(term);
+        }
+        return code == null ? UNKNOWN : code;
+    }
+
+    // Codes come from stored rows, so a miss is a value another instance added and always reads the table
+    public String term(Integer code) {
+        if (code == null) {
+            return null;
+        }
+        String term = terms.get(code);
+        Pending pending = currentPending();
+        if (term == null && pending != null) {
+            term = pending.terms().get(code);
+        }
+        if (term == null) {
+            reload();
+            term = terms.get(code);
+            if (term == null) {
+                throw new IllegalStateException("Unknown audit dictionary code " + code);
+            }
+        }
+        return term;
+    }
+
+    // Assigns codes to the values of audit logs about to be inserted, in the inserting transaction. New codes are
+    // only cached once it commits, so a rolled back ingestion never leaves a code behind that the table does not have.
+    public void register(List<AuditLog> auditLogs) {
+        Pending current = currentPending();
+        SortedSet<String> missing = new TreeSet<>();
+        for (AuditLog auditLog : auditLogs) {
+            addIfMissing(missing, current, auditLog.getServiceName());
+            addIfMissing(missing, current, auditLog.getEntityType());
+            addIfMissing(missing, current, auditLog.getEventType());
+            addIfMissing(missing, current, auditLog.getAction());
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        reload();
+        missing.removeIf(codes::containsKey);
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        // Inserted in sorted order, so concurrent registrations of the same values cannot deadlock. A value another
+        // transaction is inserting waits for it; either way the select below sees the value's code.
+        List<String> added = new ArrayList<>(missing);
+        Pending pending = pending();
+        jdbcTemplate.batchUpdate(INSERT_SQL, added, added.size(), (ps, term) -> ps.setString(1, term));
+        jdbcTemplate.query(SELECT_SQL + " where term in (" + String.join(", ", Collections.nCopies(added.size(), "?"))
+                + ")", rs -> {
+            pending.codes().put(rs.getString(2), rs.getInt(1));
+            pending.terms().put(rs.getInt(1), rs.getString(2));
+        }, added.toArray());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Auto-committed
+            publish(pending);
+        }
+    }
+
+    private void addIfMissing(SortedSet<String> missing, Pending pending, String term) {
+        if (term != null && !codes.containsKey(term) && (pending == null || !pending.codes().containsKey(term))) {
+            missing.add(term);
+        }
+    }
+
+    private Pending currentPending() {
+        return (Pending) TransactionSynchronizationManager.getResource(this);
+    }
+
+    // Codes registered by the current transaction, visible to it only until it commits
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Pending(new HashMap<>(), new HashMap<>());
+        }
+        Pending pending = currentPending();
+        if (pending == null) {
+            Pending created = new Pending(new HashMap<>(), new HashMap<>());
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AuditDictionary.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    private void publish(Pending pending) {
+        codes.putAll(pending.codes());
+        terms.putAll(pending.terms());
+    }
+
+    private boolean reloadIfStale() {
+        if (loaded && System.nanoTime() - lastReload < reloadIntervalNanos) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    private void reload() {
+        lastReload = System.nanoTime();
+        loaded = true;
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            codes.put(rs.getString(2), rs.getInt(1));
+            terms.put(rs.getInt(1), rs.getString(2));
+        });
+    }
+
+    private record Pending(Map<String, Integer> codes, Map<Integer, String> terms) {
+    }
+}
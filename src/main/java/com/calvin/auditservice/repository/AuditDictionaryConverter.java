@@ -0,0 +1,26 @@
+package com.calvin.auditservice.repository;
+
+import jakarta.persistence.AttributeConverter;
+import org.springframework.stereotype.Component;
+
+// Stores a dictionary-encoded AuditLog column as its AuditDictionary code (instantiated through Spring).
+// Query parameters compared with these columns are converted as well, so filters compare codes.
+@Component
+public class AuditDictionaryConverter implements AttributeConverter<String, Integer> {
+
+    private final AuditDictionary dictionary;
+
+    public AuditDictionaryConverter(AuditDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String term) {
+        return dictionary.code(term);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer code) {
+        return dictionary.term(code);
+    }
+}
@@ -0,0 +1,24 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import jakarta.persistence.PrePersist;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Assigns dictionary codes to the values of audit logs saved through JPA before they are flushed.
+// Batch inserts bypass JPA and register their values themselves (see AuditLogRepositoryImpl).
+@Component
+public class AuditDictionaryListener {
+
+    private final AuditDictionary dictionary;
+
+    public AuditDictionaryListener(AuditDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @PrePersist
+    public void register(AuditLog auditLog) {
+        dictionary.register(List.of(auditLog));
+    }
+}
@@ -0,0 +1,26 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import jakarta.persistence.PostPersist;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Deletes the snapshots an audit log saved through JPA landed behind, in the inserting transaction.
+// Batch inserts bypass JPA and delete them themselves (see AuditLogRepositoryImpl).
+@Component
+public class AuditEntitySnapshotListener {
+
+    // Resolved lazily: the repository needs the entity manager factory that creates this listener
+    private final ObjectProvider<AuditEntitySnapshotRepository> snapshotRepository;
+
+    public AuditEntitySnapshotListener(ObjectProvider<AuditEntitySnapshotRepository> snapshotRepository) {
+        this.snapshotRepository = snapshotRepository;
+    }
+
+    @PostPersist
+    public void persisted(AuditLog auditLog) {
+        snapshotRepository.getObject().deleteBehind(List.of(auditLog));
+    }
+}
@@ -0,0 +1,29 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditEntitySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface AuditEntitySnapshotRepository extends JpaRepository<AuditEntitySnapshot, Long>,
+        AuditEntitySnapshotRepositoryCustom {
+
+    // The latest snapshot at or before asOf
+    AuditEntitySnapshot findFirstByEntityTypeAndEntityIdAndAsOfTimestampLessThanEqualOrderByAsOfTimestampDescAsOfIdDesc(
+            String entityType, String entityId, Instant asOf);
+
+    // Concurrent reconstructions of the same entity may write the same snapshot
+    @Transactional
+    @Modifying
+    @Query(value = "insert into audit_entity_snapshot (entity_type, entity_id, as_of_timestamp, as_of_id, state) " +
+            "values (:#{#snapshot.entityType}, :#{#snapshot.entityId}, :#{#snapshot.asOfTimestamp}, " +
+            ":#{#snapshot.asOfId}, :#{#snapshot.state}) " +
+            "on conflict do nothing", nativeQuery = true)
+    int insertIgnoringDuplicate(@Param("snapshot") AuditEntitySnapshot snapshot);
+}
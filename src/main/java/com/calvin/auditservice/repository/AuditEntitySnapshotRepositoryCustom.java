@@ -0,0 +1,11 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+
+import java.util.Collection;
+
+public interface AuditEntitySnapshotRepositoryCustom {
+    // Delete the snapshots that newly inserted audit logs landed behind, from each entity's oldest such event on;
+    // must run in the inserting transaction. Returns the number of snapshots deleted.
+    int deleteBehind(Collection<AuditLog> auditLogs);
+}
@@ -0,0 +1,73 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+public class AuditEntitySnapshotRepositoryImpl implements AuditEntitySnapshotRepositoryCustom {
+
+    private static final String ENTITY_FROM = "(entity_type = ? and entity_id = ? and as_of_timestamp >= ?)";
+
+    // Entities per delete statement
+    private static final int DELETE_BATCH_SIZE = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Snapshots are only taken of events older than the snapshot lag, so only events that old can be behind one
+    @Value("${audit.reconstruction.snapshot-lag:1h}")
+    private Duration snapshotLag;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int deleteBehind(Collection<AuditLog> auditLogs) {
+        Instant horizon = Instant.now().minus(snapshotLag);
+        Map<EntityKey, Instant> lateEvents = new LinkedHashMap<>();
+        for (AuditLog auditLog : auditLogs) {
+            if (auditLog.getTimestamp().isBefore(horizon)) {
+                lateEvents.merge(new EntityKey(auditLog.getEntityType(), auditLog.getEntityId()), auditLog.getTimestamp(),
+                        (a, b) -> a.isBefore(b) ? a : b);
+            }
+        }
+        if (lateEvents.isEmpty()) {
+            return 0;
+        }
+
+        List<Map.Entry<EntityKey, Instant>> entries = new ArrayList<>(lateEvents.entrySet());
+        int deleted = 0;
+        for (int start = 0; start < entries.size(); start += DELETE_BATCH_SIZE) {
+            List<Map.Entry<EntityKey, Instant>> batch =
+                    entries.subList(start, Math.min(start + DELETE_BATCH_SIZE, entries.size()));
+            List<Object> args = new ArrayList<>(batch.size() * 3);
+            for (Map.Entry<EntityKey, Instant> entry : batch) {
+                args.add(entry.getKey().entityType());
+                args.add(entry.getKey().entityId());
+                args.add(entry.getValue().atOffset(ZoneOffset.UTC));
+            }
+            deleted += jdbcTemplate.update("delete from audit_entity_snapshot where " +
+                    String.join(" or ", Collections.nCopies(batch.size(), ENTITY_FROM)), args.toArray());
+        }
+        if (deleted > 0) {
+            log.debug("Late events for {} entities removed {} snapshots", lateEvents.size(), deleted);
+        }
+        return deleted;
+    }
+
+    private record EntityKey(String entityType, String entityId) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Claims the eventId of an audit log saved through JPA, in the inserting transaction; an eventId that was already
+// ingested fails the save with DuplicateKeyException. Batch inserts claim theirs themselves (see AuditLogRepositoryImpl).
+// Runs after AuditChainListener: chain heads are always locked before eventIds are claimed.
+@Component
+public class AuditEventIdListener {
+
+    // Resolved lazily: the repository needs the entity manager factory that creates this listener
+    private final ObjectProvider<AuditEventIdRepository> eventIdRepository;
+
+    public AuditEventIdListener(ObjectProvider<AuditEventIdRepository> eventIdRepository) {
+        this.eventIdRepository = eventIdRepository;
+    }
+
+    @PrePersist
+    public void claim(AuditLog auditLog) {
+        eventIdRepository.getObject().claim(List.of(auditLog));
+    }
+}
@@ -0,0 +1,9 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditEventId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AuditEventIdRepository extends JpaRepository<AuditEventId, String>, AuditEventIdRepositoryCustom {
+}
@@ -0,0 +1,16 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface AuditEventIdRepositoryCustom {
+    // The eventIds among these that were already ingested
+    Set<String> findClaimed(Collection<String> eventIds);
+
+    // Record the eventIds of audit logs about to be inserted, in the inserting transaction. Throws
+    // DuplicateKeyException when one was already ingested, after waiting for a transaction that is ingesting it.
+    void claim(List<AuditLog> auditLogs);
+}
@@ -0,0 +1,48 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class AuditEventIdRepositoryImpl implements AuditEventIdRepositoryCustom {
+
+    private static final String INSERT_SQL = "insert into audit_event_id (event_id) values (?)";
+
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}")
+    private int batchSize;
+
+    @Override
+    public Set<String> findClaimed(Collection<String> eventIds) {
+        List<String> ids = new ArrayList<>(eventIds);
+        Set<String> claimed = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, ids.size()));
+            claimed.addAll(jdbcTemplate.queryForList("select event_id from audit_event_id where event_id in (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")", String.class, chunk.toArray()));
+        }
+        return claimed;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void claim(List<AuditLog> auditLogs) {
+        // Inserted in sorted order, so batches claiming the same eventIds wait for each other instead of deadlocking
+        List<String> eventIds = auditLogs.stream().map(AuditLog::getEventId).sorted().toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, eventIds, batchSize, (ps, eventId) -> ps.setString(1, eventId));
+    }
+}
@@ -0,0 +1,79 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+// Merges iterators that each return audit logs in the given order into one iterator in that order. A row found in
+// more than one source (in the database and in an archive segment while it is being archived) is returned once.
+// Sources are only read one row ahead.
+public final class AuditLogMergeIterator implements Iterator<AuditLog> {
+
+    public static final Comparator<AuditLog> OLDEST_FIRST =
+            Comparator.comparing(AuditLog::getTimestamp).thenComparing(AuditLog::getId);
+    public static final Comparator<AuditLog> NEWEST_FIRST = OLDEST_FIRST.reversed();
+
+    private final PriorityQueue<Source> sources;
+    private AuditLog last;
+
+    public AuditLogMergeIterator(Comparator<AuditLog> order, Collection<? extends Iterator<AuditLog>> sources) {
+        this.sources = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> order.compare(a.head, b.head));
+        sources.forEach(this::add);
+    }
+
+    // Sources may join while iterating, as long as none of their rows sorts before the rows already returned
+    void add(Iterator<AuditLog> source) {
+        if (source.hasNext()) {
+            sources.add(new Source(source));
+        }
+    }
+
+    // The next row without consuming it, or null at the end
+    AuditLog peek() {
+        while (!sources.isEmpty()) {
+            Source source = sources.peek();
+            if (last == null || !source.head.getId().equals(last.getId())) {
+                return source.head;
+            }
+            advance(sources.poll());
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return peek() != null;
+    }
+
+    @Override
+    public AuditLog next() {
+        if (peek() == null) {
+            throw new NoSuchElementException();
+        }
+        Source source = sources.poll();
+        last = source.head;
+        advance(source);
+        return last;
+    }
+
+    private void advance(Source source) {
+        if (source.rows.hasNext()) {
+            source.head = source.rows.next();
+            sources.add(source);
+        }
+    }
+
+    private static final class Source {
+        private final Iterator<AuditLog> rows;
+        private AuditLog head;
+
+        Source(Iterator<AuditLog> rows) {
+            this.rows = rows;
+            this.head = rows.next();
+        }
+    }
+}
@@ -1,12 +1,109 @@
 package com.calvin.auditservice.repository;
 
+import com.calvin.auditservice.model.AuditEventPosition;
 import com.calvin.auditservice.model.AuditLog;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
-    List<AuditLog> findByEntityTypeIn(List<String> entities);
+public interface AuditLogRepository extends JpaRepository<AuditLog, Long>, JpaSpecificationExecutor<AuditLog>,
+        AuditLogRepositoryCustom {
+    AuditLog findByEventId(String eventId);
+
+    // Includes archived and retired events
+    @Query("select e.eventId from AuditEventId e where e.eventId in :eventIds")
+    Set<String> findExistingEventIds(@Param("eventIds") Collection<String> eventIds);
+
+    Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id"));
+
+    // One keyset page, newest first, without the count query of Page-based paging
+    default List<AuditLog> findPage(Specification<AuditLog> specification, Limit limit) {
+        return findBy(Specification.where(specification), query -> query.sortBy(NEWEST_FIRST).limit(limit.max()).all());
+    }
+
+    // Rows still stored in the plain-text payload columns, in id order for batched re-encoding. Chained rows are
+    // left alone: their hash covers the stored columns.
+    @Query("select a from AuditLog a " +
+            "where a.id > :afterId and a.encodedOldValue is null and a.encodedNewValue is null and a.hash is null " +
+            "and (a.plainOldValue is not null or a.plainNewValue is not null) " +
+            "order by a.id")
+    List<AuditLog> findPlainPayloadsAfter(@Param("afterId") long afterId, Limit limit);
+
+    // Server-side cursor for exports; must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from AuditLog a " +
+            "where a.timestamp >= :from and a.timestamp < :to " +
+            "order by a.timestamp, a.id")
+    Stream<AuditLog> streamByTimestampRange(@Param("from") Instant from, @Param("to") Instant to);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from AuditLog a " +
+            "where a.entityType in :entities and a.timestamp >= :from and a.timestamp < :to " +
+            "order by a.timestamp, a.id")
+    Stream<AuditLog> streamByEntityTypeInAndTimestampRange(@Param("entities") Collection<String> entities,
+                                                           @Param("from") Instant from, @Param("to") Instant to);
+
+    // The oldest rows before the cutoff, in segment order, for AuditArchiver. Chained rows only up to the
+    // archived_seq of their chain, so a late row never leaves a hole in the chain it was appended to.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from AuditLog a where a.timestamp < :before and (a.chainId is null " +
+            "or a.chainSeq <= (select h.archivedSeq from AuditChainHead h where h.chainId = a.chainId)) " +
+            "order by a.timestamp, a.id")
+    Stream<AuditLog> streamOldest(@Param("before") Instant before, Limit limit);
+
+    // Newest first; the first one is the last event of the entity at or before asOf
+    @Query("select new com.calvin.auditservice.model.AuditEventPosition(a.id, a.timestamp) from AuditLog a " +
+            "where a.entityType = :entityType and a.entityId = :entityId and a.timestamp <= :asOf " +
+            "order by a.timestamp desc, a.id desc")
+    List<AuditEventPosition> findEventPositions(@Param("entityType") String entityType,
+                                                @Param("entityId") String entityId,
+                                                @Param("asOf") Instant asOf, Limit limit);
+
+    // An entity's events in replay order, from the first one or after a snapshot position, up to asOf
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from AuditLog a " +
+            "where a.entityType = :entityType and a.entityId = :entityId and a.timestamp <= :asOf " +
+            "order by a.timestamp, a.id")
+    Stream<AuditLog> streamEntityHistory(@Param("entityType") String entityType, @Param("entityId") String entityId,
+                                         @Param("asOf") Instant asOf);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from AuditLog a " +
+            "where a.entityType = :entityType and a.entityId = :entityId " +
+            "and (a.timestamp > :afterTimestamp or (a.timestamp = :afterTimestamp and a.id > :afterId)) " +
+            "and a.timestamp <= :asOf " +
+            "order by a.timestamp, a.id")
+    Stream<AuditLog> streamEntityHistoryAfter(@Param("entityType") String entityType, @Param("entityId") String entityId,
+                                              @Param("afterTimestamp") Instant afterTimestamp,
+                                              @Param("afterId") Long afterId, @Param("asOf") Instant asOf);
 }
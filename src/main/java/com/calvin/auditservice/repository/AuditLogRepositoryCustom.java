@@ -0,0 +1,10 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+
+import java.util.List;
+
+public interface AuditLogRepositoryCustom {
+    // Batch insert that silently skips rows whose event_id already exists; returns the rows written, in order
+    List<AuditLog> insertIgnoringDuplicates(List<AuditLog> auditLogs);
+}
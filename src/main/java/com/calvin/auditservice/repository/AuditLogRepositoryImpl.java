@@ -0,0 +1,185 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class AuditLogRepositoryImpl implements AuditLogRepositoryCustom {
+
+    private static final String INSERT_IGNORING_DUPLICATES_SQL =
+            "insert into audit_log (id, event_id, event_type_code, service_name_code, timestamp, user_id, entity_id, " +
+            "entity_type_code, old_value, new_value, old_value_data, new_value_data, action_code, chain_id, " +
+            "chain_seq, prev_hash, hash) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "on conflict do nothing";
+
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditPayloadCodec payloadCodec;
+
+    @Autowired
+    private AuditStatsRollupRepository statsRollupRepository;
+
+    @Autowired
+    private AuditChainHeadRepository chainHeadRepository;
+
+    @Autowired
+    private AuditEntitySnapshotRepository snapshotRepository;
+
+    @Autowired
+    private AuditDictionary dictionary;
+
+    @Autowired
+    private AuditEventIdRepository eventIdRepository;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public List<AuditLog> insertIgnoringDuplicates(List<AuditLog> auditLogs) {
+        // Pending JPA inserts in the same transaction must reach the database before the conflict check
+        entityManager.flush();
+        assignIds(auditLogs);
+        dictionary.register(auditLogs);
+        // This path bypasses the entity listener, so encode the payload columns here
+        auditLogs.forEach(payloadCodec::encode);
+        // Duplicates are dropped while the chain heads are locked, so only rows that will be written are linked:
+        // a skipped row would leave a gap in its chain, and audit_log rows are never updated to close it
+        chainHeadRepository.lock(auditLogs);
+        List<AuditLog> toInsert = withoutIngested(auditLogs);
+        try {
+            eventIdRepository.claim(toInsert);
+        } catch (DuplicateKeyException e) {
+            // The same event committed meanwhile on another chain (e.g. over HTTP and Kafka at once); the caller
+            // retries and drops it then
+            throw new ConcurrencyFailureException("Audit events were ingested concurrently on another chain", e);
+        }
+        // The chain hashes the encoded columns
+        chainHeadRepository.link(toInsert);
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_IGNORING_DUPLICATES_SQL, toInsert, batchSize, (ps, auditLog) -> {
+            ps.setLong(1, auditLog.getId());
+            ps.setString(2, auditLog.getEventId());
+            ps.setObject(3, dictionary.code(auditLog.getEventType()), Types.INTEGER);
+            ps.setObject(4, dictionary.code(auditLog.getServiceName()), Types.INTEGER);
+            ps.setObject(5, auditLog.getTimestamp().atOffset(ZoneOffset.UTC));
+            ps.setString(6, auditLog.getUserId());
+            ps.setString(7, auditLog.getEntityId());
+            ps.setObject(8, dictionary.code(auditLog.getEntityType()), Types.INTEGER);
+            ps.setString(9, auditLog.getPlainOldValue());
+            ps.setString(10, auditLog.getPlainNewValue());
+            ps.setBytes(11, auditLog.getEncodedOldValue());
+            ps.setBytes(12, auditLog.getEncodedNewValue());
+            ps.setObject(13, dictionary.code(auditLog.getAction()), Types.INTEGER);
+            ps.setString(14, auditLog.getChainId());
+            ps.setObject(15, auditLog.getChainSeq(), Types.BIGINT);
+            ps.setBytes(16, auditLog.getPrevHash());
+            ps.setBytes(17, auditLog.getHash());
+        });
+
+        // Rewritten multi-row batches (reWriteBatchedInserts) report SUCCESS_NO_INFO for every row, including rows
+        // skipped by ON CONFLICT. Their freshly drawn ids only exist if the row was written.
+        List<AuditLog> unconfirmed = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == Statement.SUCCESS_NO_INFO) {
+                    unconfirmed.add(toInsert.get(index));
+                }
+                index++;
+            }
+        }
+        Set<Long> confirmed = unconfirmed.isEmpty() ? Set.of() : findWrittenIds(unconfirmed);
+
+        List<AuditLog> inserted = new ArrayList<>(toInsert.size());
+        index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                AuditLog auditLog = toInsert.get(index++);
+                if (count > 0 || (count == Statement.SUCCESS_NO_INFO && confirmed.contains(auditLog.getId()))) {
+                    inserted.add(auditLog);
+                }
+            }
+        }
+        statsRollupRepository.addToRollups(inserted);
+        snapshotRepository.deleteBehind(inserted);
+        return inserted;
+    }
+
+    // Drops the events whose eventId was already ingested, e.g. redelivered by Kafka, and repeats within the batch,
+    // keeping list order
+    private List<AuditLog> withoutIngested(List<AuditLog> auditLogs) {
+        Set<String> seen = new HashSet<>(eventIdRepository.findClaimed(
+                auditLogs.stream().map(AuditLog::getEventId).distinct().toList()));
+        List<AuditLog> toInsert = new ArrayList<>(auditLogs.size());
+        for (AuditLog auditLog : auditLogs) {
+            if (seen.add(auditLog.getEventId())) {
+                toInsert.add(auditLog);
+            }
+        }
+        return toInsert;
+    }
+
+    private Set<Long> findWrittenIds(List<AuditLog> auditLogs) {
+        Set<Long> written = new HashSet<>();
+        for (int from = 0; from < auditLogs.size(); from += LOOKUP_BATCH_SIZE) {
+            List<AuditLog> chunk = auditLogs.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, auditLogs.size()));
+            List<Object> args = new ArrayList<>(chunk.size() + 2);
+            chunk.forEach(auditLog -> args.add(auditLog.getId()));
+            // The timestamp range prunes the search to the batch's monthly partitions
+            args.add(chunk.stream().map(AuditLog::getTimestamp).min(Comparator.naturalOrder()).orElseThrow()
+                    .atOffset(ZoneOffset.UTC));
+            args.add(chunk.stream().map(AuditLog::getTimestamp).max(Comparator.naturalOrder()).orElseThrow()
+                    .atOffset(ZoneOffset.UTC));
+            jdbcTemplate.query("select id from audit_log where id in (" +
+                            String.join(", ", Collections.nCopies(chunk.size(), "?")) +
+                            ") and timestamp >= ? and timestamp <= ?",
+                    rs -> {
+                        written.add(rs.getLong(1));
+                    },
+                    args.toArray());
+        }
+        return written;
+    }
+
+    // Draw ids from the entity's pooled sequence generator so they never collide with rows saved through JPA
+    private void assignIds(List<AuditLog> auditLogs) {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory()
+                .getMappingMetamodel()
+                .getEntityDescriptor(AuditLog.class)
+                .getGenerator();
+        for (AuditLog auditLog : auditLogs) {
+            if (auditLog.getId() == null) {
+                auditLog.setId((Long) generator.generate(session, auditLog, null, EventType.INSERT));
+            }
+        }
+    }
+}
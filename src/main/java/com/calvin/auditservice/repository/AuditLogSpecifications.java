@@ -0,0 +1,51 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditLogFilter;
+import com.calvin.auditservice.model.UserAccess;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+
+// Predicates composed into one dynamic audit log query
+public final class AuditLogSpecifications {
+
+    private AuditLogSpecifications() {
+    }
+
+    // ACL predicate: admins see everything, everyone else only their allowed entity types
+    public static Specification<AuditLog> visibleTo(UserAccess access) {
+        if (access.isAdmin()) {
+            return null;
+        }
+        return (root, query, cb) -> root.get("entityType").in(access.getAllowedEntities());
+    }
+
+    public static Specification<AuditLog> matching(AuditLogFilter filter) {
+        if (filter == null) {
+            return null;
+        }
+        return Specification.allOf(
+                equalTo("serviceName", filter.getServiceName()),
+                equalTo("entityId", filter.getEntityId()),
+                equalTo("userId", filter.getActor()),
+                equalTo("action", filter.getAction()),
+                equalTo("eventType", filter.getEventType()),
+                filter.getFrom() == null ? null
+                        : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("timestamp"), filter.getFrom()),
+                filter.getTo() == null ? null
+                        : (root, query, cb) -> cb.lessThan(root.get("timestamp"), filter.getTo())
+        );
+    }
+
+    // Keyset predicate: rows strictly after (timestamp, id) in newest-first order
+    public static Specification<AuditLog> before(Instant timestamp, long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("timestamp"), timestamp),
+                cb.and(cb.equal(root.get("timestamp"), timestamp), cb.lessThan(root.get("id"), id)));
+    }
+
+    private static Specification<AuditLog> equalTo(String attribute, String value) {
+        return value == null ? null : (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+}
@@ -0,0 +1,151 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Maps the API view of the payloads (AuditLog.oldValue / newValue) to their stored form.
+// In DELTA mode newValue is stored in full and oldValue as a JSON merge patch against it; either one is
+// gzip-compressed once it reaches the compression threshold. Every encoded value starts with a flag byte.
+// Rows written in PLAIN mode (or before encoding existed) keep the text columns old_value / new_value.
+@Component
+public class AuditPayloadCodec {
+
+    public enum Mode { PLAIN, DELTA }
+
+    static final byte FLAG_GZIP = 1;
+    static final byte FLAG_DELTA = 2;
+
+    private final Mode mode;
+    private final int compressionThreshold;
+
+    public AuditPayloadCodec(@Value("${audit.storage.payload-encoding:DELTA}") Mode mode,
+                             @Value("${audit.storage.compression-threshold:512}") int compressionThreshold) {
+        this.mode = mode;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    // Fill the stored columns from oldValue / newValue
+    public void encode(AuditLog auditLog) {
+        if (mode == Mode.PLAIN) {
+            auditLog.setPlainOldValue(auditLog.getOldValue());
+            auditLog.setPlainNewValue(auditLog.getNewValue());
+            auditLog.setEncodedOldValue(null);
+            auditLog.setEncodedNewValue(null);
+            return;
+        }
+
+        auditLog.setPlainOldValue(null);
+        auditLog.setPlainNewValue(null);
+        auditLog.setEncodedNewValue(auditLog.getNewValue() == null ? null : pack(auditLog.getNewValue(), (byte) 0));
+        auditLog.setEncodedOldValue(auditLog.getOldValue() == null ? null : encodeOldValue(auditLog.getOldValue(), auditLog.getNewValue()));
+    }
+
+    // Fill oldValue / newValue from whichever columns the row was stored in
+    public void decode(AuditLog auditLog) {
+        if (auditLog.getEncodedOldValue() == null && auditLog.getEncodedNewValue() == null) {
+            auditLog.setOldValue(auditLog.getPlainOldValue());
+            auditLog.setNewValue(auditLog.getPlainNewValue());
+            return;
+        }
+
+        String newValue = auditLog.getEncodedNewValue() == null ? null : unpack(auditLog.getEncodedNewValue());
+        auditLog.setNewValue(newValue);
+        byte[] encodedOldValue = auditLog.getEncodedOldValue();
+        if (encodedOldValue == null) {
+            auditLog.setOldValue(null);
+        } else if ((encodedOldValue[0] & FLAG_DELTA) != 0) {
+            JsonElement patch = JsonParser.parseString(unpack(encodedOldValue));
+            auditLog.setOldValue(JsonMergePatch.apply(JsonParser.parseString(newValue), patch).toString());
+        } else {
+            auditLog.setOldValue(unpack(encodedOldValue));
+        }
+    }
+
+    private byte[] encodeOldValue(String oldValue, String newValue) {
+        JsonObject patch = delta(oldValue, newValue);
+        if (patch != null) {
+            String patchText = patch.toString();
+            if (patchText.length() < oldValue.length()) {
+                return pack(patchText, FLAG_DELTA);
+            }
+        }
+        return pack(oldValue, (byte) 0);
+    }
+
+    // Patch turning newValue into oldValue, or null when the pair cannot be delta-encoded losslessly
+    private static JsonObject delta(String oldValue, String newValue) {
+        if (newValue == null) {
+            return null;
+        }
+        try {
+            JsonElement oldJson = JsonParser.parseString(oldValue);
+            JsonElement newJson = JsonParser.parseString(newValue);
+            if (!oldJson.isJsonObject() || !newJson.isJsonObject()) {
+                return null;
+            }
+            JsonObject patch = JsonMergePatch.diff(newJson.getAsJsonObject(), oldJson.getAsJsonObject());
+            return JsonMergePatch.apply(newJson, patch).equals(oldJson) ? patch : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private byte[] pack(String value, byte flags) {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (raw.length >= compressionThreshold) {
+            byte[] compressed = gzip(raw);
+            if (compressed.length < raw.length) {
+                return withFlags((byte) (flags | FLAG_GZIP), compressed);
+            }
+        }
+        return withFlags(flags, raw);
+    }
+
+    private static String unpack(byte[] stored) {
+        byte[] body = Arrays.copyOfRange(stored, 1, stored.length);
+        return new String((stored[0] & FLAG_GZIP) != 0 ? gunzip(body) : body, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] withFlags(byte flags, byte[] body) {
+        byte[] stored = new byte[body.length + 1];
+        stored[0] = flags;
+        System.arraycopy(body, 0, stored, 1, body.length);
+        return stored;
+    }
+
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.stereotype.Component;
+
+// JPA entity listener (instantiated through Spring) keeping the stored payload columns in sync with the API view
+@Component
+public class AuditPayloadListener {
+
+    private final AuditPayloadCodec payloadCodec;
+
+    public AuditPayloadListener(AuditPayloadCodec payloadCodec) {
+        this.payloadCodec = payloadCodec;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void encode(AuditLog auditLog) {
+        payloadCodec.encode(auditLog);
+    }
+
+    @PostLoad
+    public void decode(AuditLog auditLog) {
+        payloadCodec.decode(auditLog);
+    }
+}
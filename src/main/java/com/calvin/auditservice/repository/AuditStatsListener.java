@@ -0,0 +1,26 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import jakarta.persistence.PostPersist;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Counts audit logs saved through JPA into the rollups, in the inserting transaction.
+// Batch inserts bypass JPA and update the rollups themselves (see AuditLogRepositoryImpl).
+@Component
+public class AuditStatsListener {
+
+    // Resolved lazily: the repository needs the entity manager factory that creates this listener
+    private final ObjectProvider<AuditStatsRollupRepository> statsRollupRepository;
+
+    public AuditStatsListener(ObjectProvider<AuditStatsRollupRepository> statsRollupRepository) {
+        this.statsRollupRepository = statsRollupRepository;
+    }
+
+    @PostPersist
+    public void persisted(AuditLog auditLog) {
+        statsRollupRepository.getObject().addToRollups(List.of(auditLog));
+    }
+}
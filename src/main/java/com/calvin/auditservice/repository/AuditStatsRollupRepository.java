@@ -0,0 +1,11 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditStatsRollup;
+import com.calvin.auditservice.model.AuditStatsRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AuditStatsRollupRepository extends JpaRepository<AuditStatsRollup, AuditStatsRollupId>,
+        AuditStatsRollupRepositoryCustom {
+}
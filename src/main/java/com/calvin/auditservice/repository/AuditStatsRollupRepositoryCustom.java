@@ -0,0 +1,28 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditStatsBucket;
+import com.calvin.auditservice.model.AuditStatsQuery;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+public interface AuditStatsRollupRepositoryCustom {
+    // Add newly inserted audit logs to the minute, hour and day rollups; must run in the inserting transaction
+    void addToRollups(Collection<AuditLog> auditLogs);
+
+    // Recompute the minute and hour rollup buckets in [from, to) from audit_log and the archived rows in [from, to),
+    // given oldest first with the newest archived timestamp (null while nothing is archived); from and to must be
+    // aligned to UTC hours. Ingestion waits until it commits, so keep the range short. Returns the number of rollup
+    // rows written.
+    int rebuildRollups(Instant from, Instant to, Instant archivedUntil, Iterator<AuditLog> archived);
+
+    // Recompute the day rollup buckets in [from, to) from the hour buckets, which must be rebuilt already; from and to
+    // must be aligned to UTC days. Returns the number of rollup rows written.
+    int rebuildDayRollups(Instant from, Instant to);
+
+    // Sum of the rollup rows matching the query; entityTypes restricts the result to those types, null allows all
+    List<AuditStatsBucket> findBuckets(AuditStatsQuery query, Collection<String> entityTypes);
+}
@@ -0,0 +1,269 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditStatsBucket;
+import com.calvin.auditservice.model.AuditStatsQuery;
+import com.calvin.auditservice.model.StatsDimension;
+import com.calvin.auditservice.model.StatsGranularity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+public class AuditStatsRollupRepositoryImpl implements AuditStatsRollupRepositoryCustom {
+
+    private static final String COLUMNS = "granularity, bucket_start, service_name, entity_type, action, event_count";
+    private static final String KEY_COLUMNS = "granularity, bucket_start, service_name, entity_type, action";
+
+    // Concurrent upserts of the same bucket serialize on the row instead of failing
+    private static final String POSTGRES_UPSERT_SQL =
+            "insert into audit_stats_rollup (" + COLUMNS + ") values (?, ?, ?, ?, ?, ?) " +
+            "on conflict (" + KEY_COLUMNS + ") " +
+            "do update set event_count = audit_stats_rollup.event_count + excluded.event_count";
+
+    // Other databases (H2 in tests and benchmarks) have no ON CONFLICT ... DO UPDATE
+    private static final String MERGE_UPSERT_SQL =
+            "merge into audit_stats_rollup r " +
+            "using (values (?, ?, ?, ?, ?, ?)) s (" + COLUMNS + ") " +
+            "on r.granularity = s.granularity and r.bucket_start = s.bucket_start " +
+            "and r.service_name = s.service_name and r.entity_type = s.entity_type and r.action = s.action " +
+            "when matched then update set event_count = r.event_count + s.event_count " +
+            "when not matched then insert (" + COLUMNS + ") values (s.granularity, s.bucket_start, " +
+            "s.service_name, s.entity_type, s.action, s.event_count)";
+
+    // Lock rows in one global order so concurrent batches cannot deadlock each other
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing(RollupKey::granularity)
+            .thenComparing(RollupKey::bucketStart)
+            .thenComparing(RollupKey::serviceName)
+            .thenComparing(RollupKey::entityType)
+            .thenComparing(RollupKey::action);
+
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    // Counted from audit_log by rebuildRollups; day buckets are summed from the hour buckets by rebuildDayRollups
+    private static final List<StatsGranularity> ROW_GRANULARITIES = List.of(StatsGranularity.MINUTE, StatsGranularity.HOUR);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditDictionary dictionary;
+
+    private volatile String upsertSql;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addToRollups(Collection<AuditLog> auditLogs) {
+        if (auditLogs.isEmpty()) {
+            return;
+        }
+        Map<RollupKey, Long> counts = new TreeMap<>(KEY_ORDER);
+        for (AuditLog auditLog : auditLogs) {
+            for (StatsGranularity granularity : StatsGranularity.values()) {
+                counts.merge(RollupKey.of(granularity, granularity.bucketOf(auditLog.getTimestamp()),
+                        auditLog.getServiceName(), auditLog.getEntityType(), auditLog.getAction()), 1L, Long::sum);
+            }
+        }
+        write(upsertSql(), counts);
+    }
+
+    @Override
+    @Transactional
+    public int rebuildRollups(Instant from, Instant to, Instant archivedUntil, Iterator<AuditLog> archived) {
+        lockRollups();
+        jdbcTemplate.update("delete from audit_stats_rollup where granularity in (?, ?) " +
+                        "and bucket_start >= ? and bucket_start < ?",
+                StatsGranularity.MINUTE.name(), StatsGranularity.HOUR.name(), timestamp(from), timestamp(to));
+
+        Map<RollupKey, Long> counts = new TreeMap<>(KEY_ORDER);
+        Instant storedFrom = from;
+        if (archivedUntil != null && !archivedUntil.isBefore(from)) {
+            // Rows up to the newest archived timestamp are in the archive, in audit_log (late rows, or rows still
+            // being archived) or in both; they are merged by id so each is counted once
+            Instant archivedEnd = archivedUntil.isBefore(to) ? archivedUntil.plusNanos(1) : to;
+            try (Stream<AuditLog> stored = jdbcTemplate.queryForStream(
+                    "select id, timestamp, service_name_code, entity_type_code, action_code from audit_log " +
+                    "where timestamp >= ? and timestamp < ? order by timestamp, id",
+                    (rs, rowNum) -> AuditLog.builder()
+                            .id(rs.getLong(1))
+                            .timestamp(rs.getObject(2, OffsetDateTime.class).toInstant())
+                            .serviceName(term(rs, 3))
+                            .entityType(term(rs, 4))
+                            .action(term(rs, 5))
+                            .build(),
+                    timestamp(from), timestamp(archivedEnd))) {
+                Iterator<AuditLog> rows = new AuditLogMergeIterator(AuditLogMergeIterator.OLDEST_FIRST,
+                        List.of(stored.iterator(), archived));
+                while (rows.hasNext()) {
+                    AuditLog auditLog = rows.next();
+                    for (StatsGranularity granularity : ROW_GRANULARITIES) {
+                        counts.merge(RollupKey.of(granularity, granularity.bucketOf(auditLog.getTimestamp()),
+                                auditLog.getServiceName(), auditLog.getEntityType(), auditLog.getAction()),
+                                1L, Long::sum);
+                    }
+                }
+            }
+            storedFrom = archivedEnd;
+        }
+
+        for (StatsGranularity granularity : ROW_GRANULARITIES) {
+            // Grouped by dictionary codes in the database; one row per bucket and dimension combination comes back
+            String bucket = "floor(extract(epoch from a.timestamp) / " + granularity.seconds() + ")";
+            RowCallbackHandler collect = rs -> counts.merge(RollupKey.of(granularity,
+                            Instant.ofEpochSecond(rs.getLong(1) * granularity.seconds()),
+                            term(rs, 2), term(rs, 3), term(rs, 4)),
+                    rs.getLong(5), Long::sum);
+            jdbcTemplate.query("select " + bucket + ", service_name_code, entity_type_code, action_code, count(*) " +
+                            "from audit_log a where a.timestamp >= ? and a.timestamp < ? " +
+                            "group by " + bucket + ", service_name_code, entity_type_code, action_code",
+                    collect, timestamp(storedFrom), timestamp(to));
+        }
+        // The same upsert as ingestion, so a bucket written concurrently (without the lock) adds up instead of failing
+        write(upsertSql(), counts);
+        return counts.size();
+    }
+
+    @Override
+    @Transactional
+    public int rebuildDayRollups(Instant from, Instant to) {
+        lockRollups();
+        jdbcTemplate.update("delete from audit_stats_rollup where granularity = ? " +
+                        "and bucket_start >= ? and bucket_start < ?",
+                StatsGranularity.DAY.name(), timestamp(from), timestamp(to));
+        // A day has at most 24 hour rows per dimension combination
+        Map<RollupKey, Long> counts = new TreeMap<>(KEY_ORDER);
+        jdbcTemplate.query("select bucket_start, service_name, entity_type, action, event_count " +
+                        "from audit_stats_rollup where granularity = ? and bucket_start >= ? and bucket_start < ?",
+                (RowCallbackHandler) rs -> counts.merge(RollupKey.of(StatsGranularity.DAY,
+                                StatsGranularity.DAY.bucketOf(rs.getObject(1, OffsetDateTime.class).toInstant()),
+                                rs.getString(2), rs.getString(3), rs.getString(4)),
+                        rs.getLong(5), Long::sum),
+                StatsGranularity.HOUR.name(), timestamp(from), timestamp(to));
+        write(upsertSql(), counts);
+        return counts.size();
+    }
+
+    private void lockRollups() {
+        if (isPostgres()) {
+            // Waits for inserting transactions that already counted into the rollups and holds back the others
+            // until the rebuild commits: every row is counted exactly once, by them or by the rebuild
+            jdbcTemplate.execute("lock table audit_stats_rollup in share row exclusive mode");
+        }
+    }
+
+    @Override
+    public List<AuditStatsBucket> findBuckets(AuditStatsQuery query, Collection<String> entityTypes) {
+        StringBuilder columns = new StringBuilder("bucket_start");
+        for (StatsDimension dimension : query.getGroupBy()) {
+            columns.append(", ").append(dimension.getColumn());
+        }
+
+        StringBuilder sql = new StringBuilder("select ").append(columns).append(", sum(event_count) ")
+                .append("from audit_stats_rollup where granularity = ? and bucket_start >= ? and bucket_start < ?");
+        List<Object> args = new ArrayList<>(List.of(query.getGranularity().name(),
+                timestamp(query.getFrom()), timestamp(query.getTo())));
+        if (entityTypes != null) {
+            sql.append(" and entity_type in (").append(String.join(", ", Collections.nCopies(entityTypes.size(), "?")))
+                    .append(")");
+            args.addAll(entityTypes);
+        }
+        filter(sql, args, "service_name", query.getServiceName());
+        filter(sql, args, "entity_type", query.getEntityType());
+        filter(sql, args, "action", query.getAction());
+        sql.append(" group by ").append(columns).append(" order by ").append(columns);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> toBucket(rs, query.getGroupBy()), args.toArray());
+    }
+
+    private void write(String sql, Map<RollupKey, Long> counts) {
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counts.entrySet());
+        jdbcTemplate.batchUpdate(sql, rows, WRITE_BATCH_SIZE, (ps, row) -> {
+            RollupKey key = row.getKey();
+            ps.setString(1, key.granularity().name());
+            ps.setObject(2, timestamp(key.bucketStart()));
+            ps.setString(3, key.serviceName());
+            ps.setString(4, key.entityType());
+            ps.setString(5, key.action());
+            ps.setLong(6, row.getValue());
+        });
+    }
+
+    private String upsertSql() {
+        if (upsertSql == null) {
+            upsertSql = isPostgres() ? POSTGRES_UPSERT_SQL : MERGE_UPSERT_SQL;
+        }
+        return upsertSql;
+    }
+
+    private boolean isPostgres() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(product);
+    }
+
+    private String term(ResultSet rs, int column) throws SQLException {
+        return dictionary.term(rs.getObject(column, Integer.class));
+    }
+
+    private static void filter(StringBuilder sql, List<Object> args, String column, String value) {
+        if (value != null) {
+            sql.append(" and ").append(column).append(" = ?");
+            args.add(value);
+        }
+    }
+
+    private static AuditStatsBucket toBucket(ResultSet rs, List<StatsDimension> groupBy) throws SQLException {
+        AuditStatsBucket bucket = new AuditStatsBucket();
+        bucket.setBucketStart(rs.getObject(1, OffsetDateTime.class).toInstant());
+        int column = 2;
+        for (StatsDimension dimension : groupBy) {
+            String value = emptyToNull(rs.getString(column++));
+            switch (dimension) {
+                case SERVICE_NAME -> bucket.setServiceName(value);
+                case ENTITY_TYPE -> bucket.setEntityType(value);
+                case ACTION -> bucket.setAction(value);
+            }
+        }
+        bucket.setCount(rs.getLong(column));
+        return bucket;
+    }
+
+    private static OffsetDateTime timestamp(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private record RollupKey(StatsGranularity granularity, Instant bucketStart, String serviceName,
+                             String entityType, String action) {
+        static RollupKey of(StatsGranularity granularity, Instant bucketStart, String serviceName,
+                            String entityType, String action) {
+            return new RollupKey(granularity, bucketStart, nullToEmpty(serviceName), nullToEmpty(entityType),
+                    nullToEmpty(action));
+        }
+
+        private static String nullToEmpty(String value) {
+            return value == null ? "" : value;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.calvin.auditservice.repository;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+
+// RFC 7386 JSON merge patch: diff(source, target) returns a patch such that apply(source, patch) equals target.
+// Merge patches cannot express explicit null members, so callers must check the round trip.
+public final class JsonMergePatch {
+
+    private JsonMergePatch() {
+    }
+
+    public static JsonObject diff(JsonObject source, JsonObject target) {
+        JsonObject patch = new JsonObject();
+        for (String key : source.keySet()) {
+            if (!target.has(key)) {
+                patch.add(key, JsonNull.INSTANCE);
+            }
+        }
+        for (Map.Entry<String, JsonElement> entry : target.entrySet()) {
+            JsonElement sourceValue = source.get(entry.getKey());
+            JsonElement targetValue = entry.getValue();
+            if (sourceValue != null && sourceValue.isJsonObject() && targetValue.isJsonObject()) {
+                JsonObject nested = diff(sourceValue.getAsJsonObject(), targetValue.getAsJsonObject());
+                if (!nested.isEmpty()) {
+                    patch.add(entry.getKey(), nested);
+                }
+            } else if (!targetValue.equals(sourceValue)) {
+                patch.add(entry.getKey(), targetValue.deepCopy());
+            }
+        }
+        return patch;
+    }
+
+    public static JsonElement apply(JsonElement target, JsonElement patch) {
+        if (!patch.isJsonObject()) {
+            return patch.deepCopy();
+        }
+        JsonObject result = target != null && target.isJsonObject() ? target.getAsJsonObject().deepCopy() : new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : patch.getAsJsonObject().entrySet()) {
+            if (entry.getValue().isJsonNull()) {
+                result.remove(entry.getKey());
+            } else {
+                result.add(entry.getKey(), apply(result.get(entry.getKey()), entry.getValue()));
+            }
+        }
+        return result;
+    }
+}
@@ -2,9 +2,13 @@ package com.calvin.auditservice.repository;
 
 import com.calvin.auditservice.model.UserAcl;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserAclRepository extends JpaRepository<UserAcl, Long> {
-    UserAcl findByUserId(String userId);
+    // Fetch-join the allowed entities so an ACL resolves in a single round trip
+    @Query("select u from UserAcl u left join fetch u.allowedEntities where u.userId = :userId")
+    UserAcl findByUserId(@Param("userId") String userId);
 }
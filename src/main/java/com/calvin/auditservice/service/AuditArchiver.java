@@ -0,0 +1,104 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditChainHeadRepository;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Moves audit logs older than archive-after from audit_log into archive segments, rows-per-segment rows at a time:
+// the rows are written to a segment first and only then deleted, in batches of delete-batch-size. A crash in
+// between leaves rows in both tiers, which reads return once; the next run archives them again.
+// Hash chains are ordered by ingestion, not by timestamp: a chained row is only archived once every row before it in
+// its chain is older than the cutoff too (see AuditChainHeadRepositoryCustom.advanceArchivedSeq), so each chain
+// loses a prefix and a late row waits for its predecessors.
+@Slf4j
+@Component
+public class AuditArchiver {
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditChainHeadRepository chainHeadRepository;
+
+    @Autowired
+    private AuditArchiveStore archiveStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${audit.archive.after:90d}")
+    private Duration archiveAfter;
+
+    @Value("${audit.archive.rows-per-segment:1000000}")
+    private int rowsPerSegment;
+
+    @Value("${audit.archive.delete-batch-size:1000}")
+    private int deleteBatchSize;
+
+    @Scheduled(cron = "${audit.archive.cron:0 30 2 * * *}", zone = "UTC")
+    public void archiveAged() {
+        if (archiveStore.isEnabled()) {
+            long archived = archive(Instant.now().minus(archiveAfter));
+            log.info("Archived {} audit logs older than {}", archived, archiveAfter);
+        }
+    }
+
+    // Returns the number of rows archived
+    public long archive(Instant before) {
+        chainHeadRepository.advanceArchivedSeq(before);
+        long archived = 0;
+        while (true) {
+            List<Long> ids = transactionTemplate.execute(status -> writeSegment(before));
+            if (ids == null || ids.isEmpty()) {
+                return archived;
+            }
+            for (int i = 0; i < ids.size(); i += deleteBatchSize) {
+                List<Long> batch = ids.subList(i, Math.min(i + deleteBatchSize, ids.size()));
+                transactionTemplate.executeWithoutResult(status -> auditLogRepository.deleteAllByIdInBatch(batch));
+            }
+            archived += ids.size();
+            log.debug("Archived {} audit logs up to {}", ids.size(), before);
+            if (ids.size() < rowsPerSegment) {
+                return archived;
+            }
+        }
+    }
+
+    // Streams the oldest rows into one segment and returns their ids
+    private List<Long> writeSegment(Instant before) {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<AuditLog> rows = auditLogRepository.streamOldest(before, Limit.of(rowsPerSegment))) {
+            archiveStore.write(rows
+                    .peek(auditLog -> {
+                        ids.add(auditLog.getId());
+                        // Drop the row from the persistence context so memory stays flat
+                        entityManager.detach(auditLog);
+                    })
+                    .iterator());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,355 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.ChainBreak;
+import com.calvin.auditservice.model.ChainVerification;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditDictionary;
+import com.calvin.auditservice.repository.AuditLogHasher;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// Verifies the hash chains (see AuditChainHeadRepositoryImpl) of the audit logs in a time range. For every chain
+// with rows in the range, all rows between its first and last position in the range are checked: each row must
+// hash to its stored hash, point at the hash of the row before it, and positions must be contiguous.
+// Chains are split into segments of segment-size positions that are verified in parallel on a fork-join pool of
+// parallelism threads (one database connection each); adjacent segments are then checked to link up.
+// Positions up to the archived_seq of a chain may have moved to the archive, so they are not gaps when missing from
+// audit_log. With the archive enabled, archived rows in the range are rehashed and linked to each other and to the
+// first stored row of their chain as well. The first row of a range is trusted to link to a predecessor outside it.
+@Slf4j
+@Service
+public class AuditChainVerifier {
+
+    private static final String WINDOWS_SQL =
+            "select l.chain_id, min(l.chain_seq), max(l.chain_seq), coalesce(h.archived_seq, 0) from audit_log l " +
+            "left join audit_chain_head h on h.chain_id = l.chain_id " +
+            "where l.chain_seq is not null and l.timestamp >= ? and l.timestamp < ? " +
+            "group by l.chain_id, h.archived_seq order by l.chain_id";
+
+    private static final String SEGMENT_SQL =
+            "select event_id, event_type_code, service_name_code, timestamp, user_id, entity_id, entity_type_code, " +
+            "old_value, new_value, old_value_data, new_value_data, action_code, chain_seq, prev_hash, hash " +
+            "from audit_log " +
+            "where chain_id = ? and chain_seq between ? and ? order by chain_seq";
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditDictionary dictionary;
+
+    @Autowired
+    private AuditArchiveStore archiveStore;
+
+    @Value("${audit.chain.verify.parallelism:2}")
+    private int parallelism;
+
+    @Value("${audit.chain.verify.segment-size:5000}")
+    private int segmentSize;
+
+    @Value("${audit.chain.verify.max-reported-breaks:100}")
+    private int maxReportedBreaks;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void start() {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    public ChainVerification verify(String userId, Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("from must be before to.");
+        }
+        if (!auditLogService.resolveUserAccess(userId).isAdmin()) {
+            throw new UnauthorizedException("Only admins can verify the audit log.");
+        }
+
+        long start = System.nanoTime();
+        List<SegmentTask> chains = jdbcTemplate.query(WINDOWS_SQL,
+                (rs, rowNum) -> new SegmentTask(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)),
+                from.atOffset(ZoneOffset.UTC), to.atOffset(ZoneOffset.UTC));
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(chains)));
+
+        long rows = 0;
+        long breakCount = 0;
+        List<ChainBreak> breaks = new ArrayList<>();
+        Set<String> chainIds = new HashSet<>();
+        for (SegmentTask chain : chains) {
+            Segment result = chain.join();
+            rows += result.rows;
+            breakCount += result.breakCount;
+            addBreaks(breaks, result.breaks);
+            chainIds.add(chain.chainId);
+        }
+        if (archiveStore.isEnabled()) {
+            Segment archived = verifyArchived(from, to, chains, chainIds);
+            rows += archived.rows;
+            breakCount += archived.breakCount;
+            addBreaks(breaks, archived.breaks);
+        }
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Verified {} audit logs in {} chains between {} and {} in {} ms: {} breaks", rows, chainIds.size(),
+                from, to, durationMillis, breakCount);
+        return ChainVerification.builder()
+                .from(from)
+                .to(to)
+                .chains(chainIds.size())
+                .rowsVerified(rows)
+                .valid(breakCount == 0)
+                .breakCount(breakCount)
+                .breaks(breaks)
+                .durationMillis(durationMillis)
+                .build();
+    }
+
+    // Archived rows come in timestamp order. Each is rehashed when read, and the link between two positions is checked
+    // once both were read, so only rows whose neighbour has not come yet are held. Positions stored in audit_log were
+    // verified there; only the first one's link to its archived predecessor is checked here. Missing positions are not
+    // reported: they may lie outside the range. Rows archived before segments kept their chain are skipped.
+    private Segment verifyArchived(Instant from, Instant to, List<SegmentTask> stored, Set<String> chainIds) {
+        Segment archived = new Segment();
+        Map<String, SegmentTask> storedChains = new HashMap<>();
+        Map<String, Map<Long, Link>> waiting = new HashMap<>();
+        for (SegmentTask chain : stored) {
+            storedChains.put(chain.chainId, chain);
+            Segment result = chain.join();
+            if (result.firstSeq != null) {
+                waiting.computeIfAbsent(chain.chainId, chainId -> new HashMap<>())
+                        .put(result.firstSeq, new Link(null, result.firstPrevHash, null, false, true));
+            }
+        }
+
+        AuditLogHasher hasher = new AuditLogHasher();
+        Iterator<AuditLog> rows = archiveStore.scan(from, to, null, row -> row.getChainId() != null, false);
+        while (rows.hasNext()) {
+            AuditLog row = rows.next();
+            String chainId = row.getChainId();
+            long seq = row.getChainSeq();
+            SegmentTask storedChain = storedChains.get(chainId);
+            if (storedChain != null && seq >= storedChain.fromSeq && seq <= storedChain.toSeq) {
+                // Archived but not yet deleted from audit_log
+                continue;
+            }
+            chainIds.add(chainId);
+            archived.rows++;
+            if (!Arrays.equals(hasher.hash(row.getPrevHash(), row), row.getHash())) {
+                addBreak(archived, new ChainBreak(chainId, seq, row.getEventId(), ChainBreak.Reason.HASH_MISMATCH));
+            }
+
+            Map<Long, Link> chain = waiting.computeIfAbsent(chainId, id -> new HashMap<>());
+            Link link = new Link(row.getEventId(), row.getPrevHash(), row.getHash(), seq == 1, false);
+            Link previous = chain.get(seq - 1);
+            if (previous != null && !previous.hasNext) {
+                if (!Arrays.equals(previous.hash, link.prevHash)) {
+                    addBreak(archived, new ChainBreak(chainId, seq, link.eventId, ChainBreak.Reason.LINK_MISMATCH));
+                }
+                previous.hasNext = true;
+                link.hasPrevious = true;
+                release(chain, seq - 1, previous);
+            }
+            Link next = chain.get(seq + 1);
+            if (next != null && !next.hasPrevious) {
+                if (!Arrays.equals(link.hash, next.prevHash)) {
+                    addBreak(archived, new ChainBreak(chainId, seq + 1, next.eventId, ChainBreak.Reason.LINK_MISMATCH));
+                }
+                next.hasPrevious = true;
+                link.hasNext = true;
+                release(chain, seq + 1, next);
+            }
+            if (!link.hasPrevious || !link.hasNext) {
+                chain.put(seq, link);
+            }
+        }
+        return archived;
+    }
+
+    private static void release(Map<Long, Link> chain, long seq, Link link) {
+        if (link.hasPrevious && link.hasNext) {
+            chain.remove(seq);
+        }
+    }
+
+    private void addBreak(Segment segment, ChainBreak chainBreak) {
+        segment.breakCount++;
+        if (segment.breaks.size() < maxReportedBreaks) {
+            segment.breaks.add(chainBreak);
+        }
+    }
+
+    private void addBreaks(List<ChainBreak> target, List<ChainBreak> breaks) {
+        for (ChainBreak chainBreak : breaks) {
+            if (target.size() >= maxReportedBreaks) {
+                return;
+            }
+            target.add(chainBreak);
+        }
+    }
+
+    // Verification of chain positions [fromSeq, toSeq]
+    private static final class Segment {
+        private Long firstSeq;
+        private byte[] firstPrevHash;
+        private Long lastSeq;
+        private byte[] lastHash;
+        private long rows;
+        private long breakCount;
+        private final List<ChainBreak> breaks = new ArrayList<>();
+    }
+
+    // An archived position read before one of its neighbours; the first stored row of a chain has no hash here
+    private static final class Link {
+        private final String eventId;
+        private final byte[] prevHash;
+        private final byte[] hash;
+        private boolean hasPrevious;
+        private boolean hasNext;
+
+        Link(String eventId, byte[] prevHash, byte[] hash, boolean hasPrevious, boolean hasNext) {
+            this.eventId = eventId;
+            this.prevHash = prevHash;
+            this.hash = hash;
+            this.hasPrevious = hasPrevious;
+            this.hasNext = hasNext;
+        }
+    }
+
+    private final class SegmentTask extends RecursiveTask<Segment> {
+        private final String chainId;
+        private final long fromSeq;
+        private final long toSeq;
+        private final long archivedSeq;
+
+        SegmentTask(String chainId, long fromSeq, long toSeq, long archivedSeq) {
+            this.chainId = chainId;
+            this.fromSeq = fromSeq;
+            this.toSeq = toSeq;
+            this.archivedSeq = archivedSeq;
+        }
+
+        @Override
+        protected Segment compute() {
+            if (toSeq - fromSeq < segmentSize) {
+                return verifySegment();
+            }
+            long middle = fromSeq + (toSeq - fromSeq) / 2;
+            SegmentTask left = new SegmentTask(chainId, fromSeq, middle, archivedSeq);
+            left.fork();
+            Segment right = new SegmentTask(chainId, middle + 1, toSeq, archivedSeq).compute();
+            return combine(left.join(), right);
+        }
+
+        private Segment verifySegment() {
+            Segment segment = new Segment();
+            AuditLogHasher hasher = new AuditLogHasher();
+            jdbcTemplate.query(SEGMENT_SQL, rs -> {
+                AuditLog row = toAuditLog(rs);
+                long seq = row.getChainSeq();
+                if (segment.firstSeq == null) {
+                    segment.firstSeq = seq;
+                    segment.firstPrevHash = row.getPrevHash();
+                    addGap(segment, fromSeq, seq - 1);
+                } else if (seq > segment.lastSeq + 1) {
+                    addGap(segment, segment.lastSeq + 1, seq - 1);
+                } else if (seq == segment.lastSeq || !Arrays.equals(row.getPrevHash(), segment.lastHash)) {
+                    addBreak(segment, new ChainBreak(chainId, seq, row.getEventId(), ChainBreak.Reason.LINK_MISMATCH));
+                }
+                if (!Arrays.equals(hasher.hash(row.getPrevHash(), row), row.getHash())) {
+                    addBreak(segment, new ChainBreak(chainId, seq, row.getEventId(), ChainBreak.Reason.HASH_MISMATCH));
+                }
+                segment.lastSeq = seq;
+                segment.lastHash = row.getHash();
+                segment.rows++;
+            }, chainId, fromSeq, toSeq);
+
+            long end = segment.lastSeq == null ? fromSeq - 1 : segment.lastSeq;
+            addGap(segment, end + 1, toSeq);
+            return segment;
+        }
+
+        // Positions [first, last] are missing; those up to archivedSeq may be in the archive
+        private void addGap(Segment segment, long first, long last) {
+            if (last >= first && last > archivedSeq) {
+                addBreak(segment, new ChainBreak(chainId, Math.max(first, archivedSeq + 1), null, ChainBreak.Reason.GAP));
+            }
+        }
+
+        private Segment combine(Segment left, Segment right) {
+            Segment combined = new Segment();
+            combined.firstSeq = left.firstSeq != null ? left.firstSeq : right.firstSeq;
+            combined.firstPrevHash = left.firstSeq != null ? left.firstPrevHash : right.firstPrevHash;
+            combined.lastSeq = right.lastSeq != null ? right.lastSeq : left.lastSeq;
+            combined.lastHash = right.lastSeq != null ? right.lastHash : left.lastHash;
+            combined.rows = left.rows + right.rows;
+            combined.breakCount = left.breakCount + right.breakCount;
+            addBreaks(combined.breaks, left.breaks);
+            // Gaps at the boundary were reported by the segments themselves
+            if (left.lastSeq != null && right.firstSeq != null && right.firstSeq == left.lastSeq + 1
+                    && !Arrays.equals(left.lastHash, right.firstPrevHash)) {
+                combined.breakCount++;
+                addBreaks(combined.breaks, List.of(new ChainBreak(chainId, right.firstSeq, null,
+                        ChainBreak.Reason.LINK_MISMATCH)));
+            }
+            addBreaks(combined.breaks, right.breaks);
+            return combined;
+        }
+
+        private AuditLog toAuditLog(ResultSet rs) throws SQLException {
+            return AuditLog.builder()
+                    .eventId(rs.getString(1))
+                    .eventType(term(rs, 2))
+                    .serviceName(term(rs, 3))
+                    .timestamp(rs.getObject(4, OffsetDateTime.class).toInstant())
+                    .userId(rs.getString(5))
+                    .entityId(rs.getString(6))
+                    .entityType(term(rs, 7))
+                    .plainOldValue(rs.getString(8))
+                    .plainNewValue(rs.getString(9))
+                    .encodedOldValue(rs.getBytes(10))
+                    .encodedNewValue(rs.getBytes(11))
+                    .action(term(rs, 12))
+                    .chainId(chainId)
+                    .chainSeq(rs.getLong(13))
+                    .prevHash(rs.getBytes(14))
+                    .hash(rs.getBytes(15))
+                    .build();
+        }
+
+        private String term(ResultSet rs, int column) throws SQLException {
+            return dictionary.term(rs.getObject(column, Integer.class));
+        }
+    }
+}
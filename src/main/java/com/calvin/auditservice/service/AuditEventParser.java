@@ -0,0 +1,145 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.InvalidAuditEventException;
+import com.calvin.auditservice.model.AuditLog;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Token-level reader for audit events: scalar fields are read directly and oldValue / newValue are copied
+// as JSON text without building a tree. Accepts payloads either as JSON values or as JSON-encoded strings.
+// For byte[] input (Kafka records) JSON-valued payloads are sliced out of the input bytes as-is.
+@Component
+public class AuditEventParser {
+
+    private final JsonFactory jsonFactory;
+
+    public AuditEventParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    // Parses one UTF-8 encoded audit event
+    public AuditLog parse(byte[] message) {
+        try (JsonParser parser = jsonFactory.createParser(message)) {
+            parser.nextToken();
+            AuditLog auditLog = readAuditLog(parser, message);
+            if (parser.nextToken() != null) {
+                throw new InvalidAuditEventException(auditLog.getEventId(), List.of("unexpected content after the audit event"));
+            }
+            return auditLog;
+        } catch (JsonProcessingException e) {
+            throw new InvalidAuditEventException(null, List.of("malformed JSON: " + e.getOriginalMessage()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reads the object the parser is positioned on (START_OBJECT) up to its END_OBJECT.
+    // The whole object is always consumed, so a caller can continue with the next event after a failure.
+    public AuditLog readAuditLog(JsonParser parser) throws IOException {
+        return readAuditLog(parser, null);
+    }
+
+    // source is the parser's input when it is a byte array starting at offset 0, otherwise null
+    private AuditLog readAuditLog(JsonParser parser, byte[] source) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            throw new InvalidAuditEventException(null, List.of("audit event must be a JSON object"));
+        }
+
+        AuditLog auditLog = new AuditLog();
+        List<String> errors = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "eventId" -> auditLog.setEventId(readText(parser, field, errors));
+                case "eventType" -> auditLog.setEventType(readText(parser, field, errors));
+                case "serviceName" -> auditLog.setServiceName(readText(parser, field, errors));
+                case "timestamp" -> auditLog.setTimestamp(readTimestamp(parser, errors));
+                case "userId" -> auditLog.setUserId(readText(parser, field, errors));
+                case "entityId" -> auditLog.setEntityId(readText(parser, field, errors));
+                case "entityType" -> auditLog.setEntityType(readText(parser, field, errors));
+                case "oldValue" -> auditLog.setOldValue(readPayload(parser, source));
+                case "newValue" -> auditLog.setNewValue(readPayload(parser, source));
+                case "action" -> auditLog.setAction(readText(parser, field, errors));
+                default -> parser.skipChildren();
+            }
+        }
+
+        requireField(auditLog.getEventId(), "eventId", errors);
+        requireField(auditLog.getEventType(), "eventType", errors);
+        requireField(auditLog.getEntityId(), "entityId", errors);
+        requireField(auditLog.getEntityType(), "entityType", errors);
+        if (!errors.isEmpty()) {
+            throw new InvalidAuditEventException(auditLog.getEventId(), errors);
+        }
+        return auditLog;
+    }
+
+    private static String readText(JsonParser parser, String field, List<String> errors) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            errors.add(field + " must be a scalar value");
+            return null;
+        }
+        return parser.getText();
+    }
+
+    private static Instant readTimestamp(JsonParser parser, List<String> errors) throws IOException {
+        String text = readText(parser, "timestamp", errors);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(text);
+        } catch (DateTimeParseException e) {
+            errors.add("timestamp must be an ISO-8601 instant");
+            return null;
+        }
+    }
+
+    private String readPayload(JsonParser parser, byte[] source) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (source != null) {
+            int start = (int) parser.currentTokenLocation().getByteOffset();
+            parser.skipChildren();
+            int end = (int) parser.currentLocation().getByteOffset();
+            return new String(source, start, end - start, StandardCharsets.UTF_8);
+        }
+        StringWriter payload = new StringWriter();
+        try (JsonGenerator generator = jsonFactory.createGenerator(payload)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return payload.toString();
+    }
+
+    private static void requireField(String value, String field, List<String> errors) {
+        if (value == null || value.isBlank()) {
+            errors.add(field + " is required");
+        }
+    }
+}
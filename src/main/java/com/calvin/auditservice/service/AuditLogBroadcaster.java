@@ -0,0 +1,268 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.ServiceUnavailableException;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.UserAccess;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fans newly stored audit logs out to live tail subscribers (GET /v1/tail). Ingestion only offers each event to
+// the bounded buffers of the subscribers allowed to see it and never waits for a client; one sender thread per
+// subscriber writes its buffer to the connection. A client that falls a full buffer behind is disconnected, or
+// with overflow SAMPLE skips events and is told how many it missed.
+// Each instance only sees the events it ingested itself.
+@Slf4j
+@Component
+public class AuditLogBroadcaster implements MeterBinder {
+
+    public enum OverflowPolicy { DISCONNECT, SAMPLE }
+
+    private final UserAclCache userAclCache;
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final OverflowPolicy overflowPolicy;
+    private final long heartbeatNanos;
+    private final long timeoutMillis;
+    private final boolean virtualThreads;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private Counter sampled;
+    private Counter disconnected;
+
+    public AuditLogBroadcaster(UserAclCache userAclCache,
+                               ObjectMapper objectMapper,
+                               @Value("${audit.tail.buffer-size:1000}") int bufferSize,
+                               @Value("${audit.tail.max-subscribers:100}") int maxSubscribers,
+                               @Value("${audit.tail.overflow:DISCONNECT}") OverflowPolicy overflowPolicy,
+                               @Value("${audit.tail.heartbeat:15s}") Duration heartbeat,
+                               @Value("${audit.tail.timeout:30m}") Duration timeout,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.userAclCache = userAclCache;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.overflowPolicy = overflowPolicy;
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.timeoutMillis = timeout.toMillis();
+        // Virtual threads need Java 21; on older runtimes the senders stay platform threads
+        this.virtualThreads = virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+    }
+
+    // Streams the audit logs stored from now on that the user may see, optionally narrowed to one entity type
+    // and service. The user's ACL is re-read from the ACL cache every heartbeat.
+    public SseEmitter subscribe(UserAccess access, String entityType, String serviceName) {
+        return subscribe(new SseEmitter(timeoutMillis), access, entityType, serviceName);
+    }
+
+    synchronized SseEmitter subscribe(SseEmitter emitter, UserAccess access, String entityType, String serviceName) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ServiceUnavailableException("Too many live tail subscribers, retry later.");
+        }
+        Subscriber subscriber = new Subscriber(emitter, access, entityType, serviceName);
+        subscribers.add(subscriber);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        Thread sender = virtualThreads
+                ? new VirtualThreadTaskExecutor().getVirtualThreadFactory().newThread(subscriber::send)
+                : new Thread(subscriber::send);
+        sender.setName("audit-tail-" + access.getUserId());
+        sender.setDaemon(true);
+        subscriber.sender = sender;
+        sender.start();
+        log.info("Live tail opened for user ( {} ), {} subscribers", access.getUserId(), subscribers.size());
+        return emitter;
+    }
+
+    // Called after the audit logs were stored; never blocks ingestion
+    public void publish(Collection<AuditLog> auditLogs) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (AuditLog auditLog : auditLogs) {
+            TailEvent event = null;
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.accepts(auditLog)) {
+                    if (event == null) {
+                        event = new TailEvent(auditLog);
+                    }
+                    subscriber.offer(event);
+                }
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(Subscriber::close);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audit.tail.subscribers", subscribers, Set::size)
+                .description("Open live tail connections")
+                .register(registry);
+        sampled = Counter.builder("audit.tail.dropped")
+                .description("Audit events skipped for live tail subscribers that were behind (overflow SAMPLE)")
+                .register(registry);
+        disconnected = Counter.builder("audit.tail.disconnected")
+                .description("Live tail subscribers disconnected for falling behind (overflow DISCONNECT)")
+                .register(registry);
+    }
+
+    private static void increment(Counter counter) {
+        // Unbound when used outside a Spring context
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    // One stored audit log, serialized once for all subscribers by the first sender that needs it
+    private final class TailEvent {
+        private final AuditLog auditLog;
+        private volatile String json;
+
+        TailEvent(AuditLog auditLog) {
+            this.auditLog = auditLog;
+        }
+
+        String json() {
+            if (json == null) {
+                try {
+                    json = objectMapper.writeValueAsString(auditLog);
+                } catch (JsonProcessingException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return json;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final String userId;
+        private final String entityType;
+        private final String serviceName;
+        private final BlockingQueue<TailEvent> buffer = new ArrayBlockingQueue<>(bufferSize);
+        // Events skipped under SAMPLE since the last "dropped" event
+        private final AtomicLong skipped = new AtomicLong();
+        private volatile UserAccess access;
+        private volatile boolean closed;
+        private Thread sender;
+
+        Subscriber(SseEmitter emitter, UserAccess access, String entityType, String serviceName) {
+            this.emitter = emitter;
+            this.userId = access.getUserId();
+            this.access = access;
+            this.entityType = entityType;
+            this.serviceName = serviceName;
+        }
+
+        boolean accepts(AuditLog auditLog) {
+            return !closed
+                    && access.canView(auditLog.getEntityType())
+                    && (entityType == null || entityType.equals(auditLog.getEntityType()))
+                    && (serviceName == null || serviceName.equals(auditLog.getServiceName()));
+        }
+
+        void offer(TailEvent event) {
+            if (buffer.offer(event)) {
+                return;
+            }
+            if (overflowPolicy == OverflowPolicy.SAMPLE) {
+                skipped.incrementAndGet();
+                increment(sampled);
+                return;
+            }
+            if (!closed) {
+                log.info("Live tail of user ( {} ) fell {} events behind, disconnecting", userId, bufferSize);
+                increment(disconnected);
+                close();
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            if (sender != null) {
+                sender.interrupt();
+            }
+        }
+
+        // Runs on the subscriber's own thread, the only one writing to the emitter
+        void send() {
+            try {
+                emitter.send(SseEmitter.event().comment("connected"));
+                long nextAclCheck = System.nanoTime() + heartbeatNanos;
+                while (!closed) {
+                    TailEvent event = buffer.poll(heartbeatNanos, TimeUnit.NANOSECONDS);
+                    long missed = skipped.getAndSet(0);
+                    if (missed > 0) {
+                        emitter.send(SseEmitter.event().name("dropped").data(missed));
+                    }
+                    if (event != null) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(event.auditLog.getId()))
+                                .name("audit")
+                                .data(event.json(), MediaType.APPLICATION_JSON));
+                    } else if (missed == 0) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                    if (System.nanoTime() - nextAclCheck >= 0) {
+                        refreshAccess();
+                        nextAclCheck = System.nanoTime() + heartbeatNanos;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closed by overflow, ACL removal or shutdown
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, the request timed out, or close() interrupted a blocked write
+                log.debug("Live tail of user ( {} ) closed: {}", userId, e.getMessage());
+            } finally {
+                closed = true;
+                subscribers.remove(this);
+                emitter.complete();
+                log.info("Live tail closed for user ( {} ), {} subscribers", userId, subscribers.size());
+            }
+        }
+
+        private void refreshAccess() {
+            UserAccess current = userAclCache.get(userId);
+            if (current == null) {
+                log.info("User ( {} ) no longer has an ACL, closing live tail", userId);
+                close();
+            } else {
+                access = current;
+            }
+        }
+    }
+}
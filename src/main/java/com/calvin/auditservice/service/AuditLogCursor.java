@@ -0,0 +1,48 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.model.AuditLog;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+// Keyset position (timestamp, id) of the last audit log returned, encoded as an opaque token
+@Getter
+@AllArgsConstructor
+public class AuditLogCursor {
+    private final Instant timestamp;
+    private final long id;
+
+    public static AuditLogCursor of(AuditLog auditLog) {
+        return new AuditLogCursor(auditLog.getTimestamp(), auditLog.getId());
+    }
+
+    // Whether the row comes after this position in newest-first order (in-memory AuditLogSpecifications.before)
+    public boolean precedes(AuditLog auditLog) {
+        int compared = auditLog.getTimestamp().compareTo(timestamp);
+        return compared < 0 || (compared == 0 && auditLog.getId() < id);
+    }
+
+    public String encode() {
+        String raw = timestamp.getEpochSecond() + ":" + timestamp.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AuditLogCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                throw new BadRequestException("Invalid cursor.");
+            }
+            Instant timestamp = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new AuditLogCursor(timestamp, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BadRequestException("Invalid cursor.");
+        }
+    }
+}
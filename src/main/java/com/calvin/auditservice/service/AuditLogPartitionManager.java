@@ -0,0 +1,172 @@
+package com.calvin.auditservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Maintains monthly range partitions of audit_log on PostgreSQL (see bin/init.sql for the partitioned table).
+// Partitions are created ahead of time and retention detaches or drops whole partitions instead of running DELETE.
+// Rows that still landed in audit_log_default (backfills older than months-back) are moved into their month's
+// partition when it is created, so retention reaches them too. Months older than retention are never created; their
+// rows stay in audit_log_default.
+// Any other database (e.g. H2 in tests) keeps audit_log as a single table and this component does nothing.
+@Slf4j
+@Component
+public class AuditLogPartitionManager {
+
+    private static final String TABLE = "audit_log";
+    private static final String DEFAULT_PARTITION = "audit_log_default";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("audit_log_p(\\d{6})");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${audit.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audit.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    // Past months pre-created for backfills and late events
+    @Value("${audit.partitioning.months-back:12}")
+    private int monthsBack;
+
+    // 0 keeps every partition
+    @Value("${audit.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    // DETACH leaves the old partition as a standalone table for archiving, DROP deletes it
+    @Value("${audit.partitioning.retention-mode:DETACH}")
+    private RetentionMode retentionMode;
+
+    public enum RetentionMode { DETACH, DROP }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${audit.partitioning.cron:0 0 1 * * *}", zone = "UTC")
+    public void maintainPartitions() {
+        if (!enabled || !isPartitionedTable()) {
+            return;
+        }
+
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        YearMonth oldestKept = retentionMonths > 0 ? current.minusMonths(retentionMonths) : null;
+        Set<YearMonth> months = new TreeSet<>(monthsInDefaultPartition());
+        for (int i = -monthsBack; i <= monthsAhead; i++) {
+            months.add(current.plusMonths(i));
+        }
+        // Months retention already retired are never created again: a DETACHed partition still exists as a table
+        months.removeIf(month -> oldestKept != null && month.isBefore(oldestKept));
+        Set<String> existing = Set.copyOf(partitions());
+        for (YearMonth month : months) {
+            if (!existing.contains(partitionName(month))) {
+                createPartition(month);
+            }
+        }
+        if (oldestKept != null) {
+            applyRetention(oldestKept);
+        }
+    }
+
+    void createPartition(YearMonth month) {
+        String partition = partitionName(month);
+        String from = month.atDay(1) + " 00:00:00+00";
+        String to = month.plusMonths(1).atDay(1) + " 00:00:00+00";
+        String bounds = " for values from ('" + from + "') to ('" + to + "')";
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Blocks inserts into the default partition until the month's rows are moved and it is attached
+                jdbcTemplate.execute("lock table " + DEFAULT_PARTITION + " in share row exclusive mode");
+                String inDefault = " from " + DEFAULT_PARTITION + " where timestamp >= '" + from +
+                        "' and timestamp < '" + to + "'";
+                Boolean backfilled = jdbcTemplate.queryForObject("select exists (select 1" + inDefault + ")",
+                        Boolean.class);
+                if (!Boolean.TRUE.equals(backfilled)) {
+                    jdbcTemplate.execute("create table if not exists " + partition + " partition of " + TABLE + bounds);
+                    return;
+                }
+                // Attaching fails while the default partition holds rows of the new range
+                jdbcTemplate.execute("create table " + partition + " (like " + TABLE +
+                        " including defaults including constraints)");
+                int moved = jdbcTemplate.update("insert into " + partition + " select *" + inDefault);
+                jdbcTemplate.update("delete" + inDefault);
+                jdbcTemplate.execute("alter table " + TABLE + " attach partition " + partition + bounds);
+                log.info("Moved {} rows from {} into new partition {}", moved, DEFAULT_PARTITION, partition);
+            });
+        } catch (DataAccessException e) {
+            log.error("Failed to create partition {}: {}", partition, e.getMessage());
+        }
+    }
+
+    // Retire every monthly partition that ends before the first day of `oldestKept`
+    void applyRetention(YearMonth oldestKept) {
+        for (String partition : partitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches() || !YearMonth.parse(matcher.group(1), SUFFIX).isBefore(oldestKept)) {
+                continue;
+            }
+            jdbcTemplate.execute("alter table " + TABLE + " detach partition " + partition);
+            if (retentionMode == RetentionMode.DROP) {
+                jdbcTemplate.execute("drop table " + partition);
+            }
+            log.info("Retention applied to partition {} ({})", partition, retentionMode);
+        }
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList(
+                "select c.relname from pg_inherits i " +
+                "join pg_class c on c.oid = i.inhrelid " +
+                "join pg_class p on p.oid = i.inhparent " +
+                "where p.relname = ?", String.class, TABLE);
+    }
+
+    private List<YearMonth> monthsInDefaultPartition() {
+        return jdbcTemplate.queryForList("select distinct to_char(timestamp at time zone 'UTC', 'YYYYMM') from " +
+                DEFAULT_PARTITION, String.class).stream()
+                .map(month -> YearMonth.parse(month, SUFFIX))
+                .toList();
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(SUFFIX);
+    }
+
+    private boolean isPartitionedTable() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) {
+            log.info("{} does not support native partitioning; audit_log stays a single table", product);
+            return false;
+        }
+
+        Integer partitioned = jdbcTemplate.queryForObject(
+                "select count(*) from pg_partitioned_table pt join pg_class c on c.oid = pt.partrelid " +
+                "where c.relname = ?", Integer.class, TABLE);
+        if (partitioned == null || partitioned == 0) {
+            log.warn("audit_log is not a partitioned table; see README for the migration to range partitions");
+            return false;
+        }
+        return true;
+    }
+}
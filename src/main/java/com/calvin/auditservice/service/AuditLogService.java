@@ -1,21 +1,57 @@
 package com.calvin.auditservice.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import com.calvin.auditservice.config.ReplicaRead;
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.exception.InvalidAuditEventException;
 import com.calvin.auditservice.exception.NotFoundException;
 import com.calvin.auditservice.model.AuditLog;
-import com.calvin.auditservice.model.UserAcl;
-import com.calvin.auditservice.model.UserAclAllowedEntities;
+import com.calvin.auditservice.model.AuditLogFilter;
+import com.calvin.auditservice.model.AuditLogPage;
+import com.calvin.auditservice.model.BulkIngestResult;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditLogMergeIterator;
 import com.calvin.auditservice.repository.AuditLogRepository;
-import com.calvin.auditservice.repository.UserAclRepository;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.calvin.auditservice.repository.AuditLogSpecifications;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 
 @Slf4j
@@ -23,78 +59,424 @@ import org.springframework.stereotype.Service;
 public class AuditLogService {
 
     @Autowired
-    private Gson gson;
-    @Autowired
-    private UserAclRepository userAclRepository;
+    private UserAclCache userAclCache;
 
     @Autowired
     private AuditLogRepository auditLogRepository;
 
-    // Method to process the audit events from Kafka
-    @KafkaListener(topics = "audit-events", groupId = "audit-service")
-    public void processAuditEvent(String message) {
-        // Parse the message (JSON)
-        AuditLog auditLog = parseAndCreateAuditLog(message);
-        log.info("Kafka Audit Event Created: {}", auditLog);
+    @Autowired
+    private RecentEventIdFilter recentEventIds;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuditEventParser auditEventParser;
+
+    @Autowired
+    private AuditMetrics metrics;
+
+    @Autowired
+    private AuditSearchIndex searchIndex;
+
+    @Autowired
+    private EntityStateCache entityStateCache;
+
+    @Autowired
+    private AuditLogBroadcaster broadcaster;
+
+    @Autowired
+    private AuditArchiveStore archiveStore;
+
+    @Autowired
+    private DatabaseConcurrencyLimiter dbLimiter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${audit.query.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${audit.query.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${audit.bulk.batch-size:1000}")
+    private int bulkBatchSize;
+
+    // Method to process a batch of audit events polled from Kafka
+    @KafkaListener(topics = "${kafka.topic.audit}", groupId = "audit-service",
+            containerFactory = "auditListenerContainerFactory")
+    public void processAuditEvents(List<byte[]> messages,
+                                   @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+                                   @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> timestamps) {
+        List<AuditLog> auditLogs = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                AuditLog auditLog = parseAuditLog(messages.get(i), Instant.ofEpochMilli(timestamps.get(i)));
+                // One hash chain per partition: only the thread owning the partition appends to it
+                auditLog.setChainId("kafka-" + partitions.get(i));
+                auditLogs.add(auditLog);
+            } catch (InvalidAuditEventException e) {
+                metrics.invalid();
+                // Persist the records before the failed one; the error handler commits their offsets and publishes
+                // the invalid record to the dead-letter topic
+                persistKafkaBatch(auditLogs);
+                throw new BatchListenerFailedException("Invalid audit event: " + e.getMessage(), e, i);
+            }
+        }
+
+        persistKafkaBatch(auditLogs);
     }
 
-    // Retrieve audit logs based on userId
-    public List<AuditLog> getAuditLogsByUser(String userId) {
-        UserAcl userAcl = userAclRepository.findByUserId(userId);
-        if (userAcl == null) {
-            throw new NotFoundException("UserAcl not found");
+    // The records are ingested in one transaction. If that fails they are written one at a time, so the error handler
+    // commits the records before the failing one and redelivers the batch from it. The failing record is retried in
+    // place until it succeeds, keeping the records after it in order, unless it can never be stored.
+    private void persistKafkaBatch(List<AuditLog> auditLogs) {
+        try {
+            int inserted = ingestAuditLogs(auditLogs);
+            log.debug("Kafka Audit Events Created: {} (duplicates dropped: {})", inserted, auditLogs.size() - inserted);
+        } catch (RuntimeException e) {
+            log.warn("Failed to persist a batch of {} audit events, writing them one at a time: {}",
+                    auditLogs.size(), e.getMessage());
+            for (int i = 0; i < auditLogs.size(); i++) {
+                try {
+                    ingestAuditLogs(List.of(auditLogs.get(i)));
+                } catch (RuntimeException recordFailure) {
+                    throw new BatchListenerFailedException("Failed to persist audit event "
+                            + auditLogs.get(i).getEventId(), recordFailure, i);
+                }
+            }
         }
+    }
+
+    // Events acknowledged by the write-behind that it could not store before shutdown (see AuditLogWriteBehind).
+    // They are retried one at a time on the retry topics with growing delays; an event that still fails, or cannot
+    // be parsed, is dead-lettered.
+    @RetryableTopic(attempts = "${kafka.retry.attempts:4}",
+            backoff = @Backoff(delayExpression = "${kafka.retry.delay-ms:1000}",
+                    multiplierExpression = "${kafka.retry.multiplier:5}",
+                    maxDelayExpression = "${kafka.retry.max-delay-ms:60000}"),
+            exclude = InvalidAuditEventException.class,
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            numPartitions = "${kafka.topic.partitions:12}",
+            replicationFactor = "${kafka.topic.replicas:1}")
+    @KafkaListener(topics = "${kafka.topic.failed:${kafka.topic.audit}-failed}", groupId = "audit-service-failed")
+    public void processFailedAuditEvent(ConsumerRecord<String, byte[]> record) {
+        // No chainId: retried events may arrive on any instance, so they are chained like API events
+        int inserted = ingestAuditLogs(List.of(parseAuditLog(record.value(), originalTimestamp(record))));
+        log.debug("Retried Kafka Audit Event Created: {}", inserted);
+    }
 
-        log.info("Is this user ( {} ) admin?: {}", userAcl.getUserId(), userAcl.isAdmin());
-        if (userAcl.isAdmin()) {
-            return auditLogRepository.findAll();
+    // Events that could not be ingested, with the reason in the exception headers: kafka_dlt-exception-* when
+    // dead-lettered by the main listener, kafka_exception-* when by the retry topics. They stay in the dead-letter
+    // topic for inspection and replay.
+    @DltHandler
+    public void processDeadLetter(ConsumerRecord<String, byte[]> record) {
+        metrics.deadLetter();
+        log.error("Audit event dead-lettered (from {}, key {}): {}",
+                header(record, KafkaHeaders.DLT_ORIGINAL_TOPIC, KafkaHeaders.ORIGINAL_TOPIC),
+                record.key(), header(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE, KafkaHeaders.EXCEPTION_MESSAGE));
+    }
+
+    // Write a batch of audit logs in one transaction, dropping events whose eventId was already ingested.
+    // Returns the number of rows inserted.
+    public int ingestAuditLogs(List<AuditLog> auditLogs) {
+        // Drop duplicates inside the batch, keeping the first occurrence
+        Map<String, AuditLog> unique = new LinkedHashMap<>();
+        for (AuditLog auditLog : auditLogs) {
+            unique.putIfAbsent(auditLog.getEventId(), auditLog);
         }
 
-        // Otherwise, get the list of entities the user has access to
-        // Return the audit logs filtered by entities the user can access
-        List<String> accessibleEntities = userAcl.getAllowedEntities().stream()
-                .map(UserAclAllowedEntities::getAllowedEntity)
+        // Only eventIds the filter may have seen pay for the uniqueness lookup
+        List<String> maybeSeen = unique.keySet().stream()
+                .filter(recentEventIds::mightContain)
                 .toList();
-        log.info("Filter based on these entities: {}", accessibleEntities);
-        return auditLogRepository.findByEntityTypeIn(accessibleEntities);
+        if (!maybeSeen.isEmpty()) {
+            metrics.dedup(() -> auditLogRepository.findExistingEventIds(maybeSeen)).forEach(unique::remove);
+        }
+        if (unique.isEmpty()) {
+            metrics.batch(auditLogs.size(), 0);
+            return 0;
+        }
+
+        // Conflicting rows that slipped past the filter (e.g. concurrent redelivery) are skipped by the insert
+        List<AuditLog> toInsert = new ArrayList<>(unique.values());
+        List<AuditLog> inserted = metrics.persist(() -> auditLogRepository.insertIgnoringDuplicates(toInsert));
+        unique.keySet().forEach(recentEventIds::put);
+        metrics.batch(auditLogs.size(), inserted.size());
+        // The skipped rows were already published, indexed and cached by whoever wrote them
+        searchIndex.enqueue(inserted);
+        entityStateCache.onIngested(inserted);
+        broadcaster.publish(inserted);
+        return inserted.size();
+    }
+
+    // Ingest a JSON array or NDJSON stream of audit events while it is being read. Valid events are written
+    // in batches of bulkBatchSize (one transaction each); invalid ones are reported by position and skipped.
+    // A database permit is held per batch, so a slow client uploading a large body does not keep one.
+    public BulkIngestResult ingestBulk(InputStream body) throws IOException {
+        BulkIngestResult result = new BulkIngestResult();
+        List<AuditLog> batch = new ArrayList<>(bulkBatchSize);
+        int index = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                long parseStart = System.nanoTime();
+                try {
+                    batch.add(withTimestamp(auditEventParser.readAuditLog(parser), Instant.now()));
+                } catch (InvalidAuditEventException e) {
+                    metrics.invalid();
+                    result.reject(index, e.getEventId(), e.getMessage());
+                } finally {
+                    metrics.parsedSince(parseStart);
+                }
+                index++;
+
+                if (batch.size() >= bulkBatchSize) {
+                    writeBulkBatch(batch, result);
+                }
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            // Malformed JSON: the rest of the body cannot be read, but what was read so far is still written
+            result.reject(index, null, "Malformed JSON: " + e.getOriginalMessage());
+        }
+        writeBulkBatch(batch, result);
+        result.setReceived(index);
+
+        log.debug("Bulk Audit Logs Created: {} (duplicates: {}, rejected: {})",
+                result.getInserted(), result.getDuplicates(), result.getRejected());
+        return result;
+    }
+
+    private void writeBulkBatch(List<AuditLog> batch, BulkIngestResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int inserted;
+        try (DatabaseConcurrencyLimiter.Permit permit = dbLimiter.acquire()) {
+            inserted = ingestAuditLogs(batch);
+        }
+        result.setInserted(result.getInserted() + inserted);
+        result.setDuplicates(result.getDuplicates() + batch.size() - inserted);
+        batch.clear();
+    }
+
+    // Retrieve one page of audit logs (newest first) based on userId, narrowed by the optional filter
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public AuditLogPage getAuditLogsByUser(String userId, AuditLogFilter filter, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        AuditLogCursor position = cursor != null ? AuditLogCursor.decode(cursor) : null;
+
+        UserAccess access = resolveUserAccess(userId);
+        if (!access.isAdmin() && access.getAllowedEntities().isEmpty()) {
+            return new AuditLogPage(List.of(), null);
+        }
+
+        // ACL, filters and keyset position are folded into a single query
+        Specification<AuditLog> specification = Specification.allOf(
+                AuditLogSpecifications.visibleTo(access),
+                AuditLogSpecifications.matching(filter),
+                position == null ? null : AuditLogSpecifications.before(position.getTimestamp(), position.getId()));
+
+        // Fetch one extra row to know whether another page follows
+        return metrics.query(access.isAdmin(),
+                () -> toPage(withArchived(auditLogRepository.findPage(specification, Limit.of(pageSize + 1)),
+                        access, filter, position, pageSize + 1), pageSize),
+                page -> page.getItems().size());
+    }
+
+    // Merges archived rows into a database page when the page does not already end after everything archived
+    private List<AuditLog> withArchived(List<AuditLog> rows, UserAccess access, AuditLogFilter filter,
+                                        AuditLogCursor position, int limit) {
+        Instant archivedUntil = archiveStore.getMaxTimestamp();
+        if (archivedUntil == null
+                || (rows.size() == limit && rows.get(limit - 1).getTimestamp().isAfter(archivedUntil))) {
+            return rows;
+        }
+
+        Instant from = filter == null ? null : filter.getFrom();
+        Instant to = filter == null ? null : filter.getTo();
+        if (position != null) {
+            // Rows at the cursor's timestamp with a lower id still follow it
+            Instant cursorEnd = position.getTimestamp().plusNanos(1);
+            to = to == null || cursorEnd.isBefore(to) ? cursorEnd : to;
+        }
+        Iterator<AuditLog> archived = archiveStore.scan(from, to,
+                access.isAdmin() ? null : access.getAllowedEntities(),
+                auditLog -> access.canView(auditLog.getEntityType())
+                        && (filter == null || filter.matches(auditLog))
+                        && (position == null || position.precedes(auditLog)),
+                true);
+
+        Iterator<AuditLog> merged = new AuditLogMergeIterator(AuditLogMergeIterator.NEWEST_FIRST,
+                List.of(rows.iterator(), archived));
+        List<AuditLog> page = new ArrayList<>(limit);
+        while (page.size() < limit && merged.hasNext()) {
+            page.add(merged.next());
+        }
+        return page;
     }
 
-    public AuditLog saveAuditLog(String eventId, String eventType, String serviceName, String userId,
+    // Resolve the ACL of a user into the admin flag and the set of entity types they can access
+    public UserAccess resolveUserAccess(String userId) {
+        UserAccess access = userAclCache.get(userId);
+        if (access == null) {
+            throw new NotFoundException("UserAcl not found");
+        }
+
+        log.debug("Is this user ( {} ) admin?: {}", userId, access.isAdmin());
+        if (!access.isAdmin()) {
+            log.debug("Filter based on these entities: {}", access.getAllowedEntities());
+        }
+        return access;
+    }
+
+    // Stream every audit log in [from, to) visible to the user as NDJSON, one row in memory at a time. Archived
+    // rows are merged in (timestamp, id) order.
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public long exportAuditLogs(UserAccess access, Instant from, Instant to, OutputStream out) throws IOException {
+        if (!access.isAdmin() && access.getAllowedEntities().isEmpty()) {
+            return 0;
+        }
+
+        ObjectWriter writer = objectMapper.writerFor(AuditLog.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long exported = 0;
+        try (Stream<AuditLog> rows = access.isAdmin()
+                ? auditLogRepository.streamByTimestampRange(from, to)
+                : auditLogRepository.streamByEntityTypeInAndTimestampRange(access.getAllowedEntities(), from, to);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            // The caller owns the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            // Drop each row from the persistence context so memory stays flat; loaded rows are already decoded
+            Iterator<AuditLog> stored = rows.peek(entityManager::detach).iterator();
+            Iterator<AuditLog> merged = archiveStore.getMaxTimestamp() == null
+                    ? stored
+                    : new AuditLogMergeIterator(AuditLogMergeIterator.OLDEST_FIRST, List.of(stored,
+                            archiveStore.scan(from, to, access.isAdmin() ? null : access.getAllowedEntities(),
+                                    auditLog -> access.canView(auditLog.getEntityType()), false)));
+            while (merged.hasNext()) {
+                writer.writeValue(generator, merged.next());
+                generator.writeRaw('\n');
+                exported++;
+            }
+            generator.flush();
+        }
+        log.info("Exported {} audit logs for user ( {} ) between {} and {}", exported, access.getUserId(), from, to);
+        return exported;
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (limit <= 0) {
+            throw new BadRequestException("limit must be a positive number.");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private AuditLogPage toPage(List<AuditLog> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new AuditLogPage(rows, null);
+        }
+        List<AuditLog> items = rows.subList(0, pageSize);
+        return new AuditLogPage(items, AuditLogCursor.of(items.get(pageSize - 1)).encode());
+    }
+
+    public AuditLog saveAuditLog(String eventId, String eventType, String serviceName, Instant timestamp, String userId,
                                  String entityId, String entityType, String oldValue, String newValue, String action) {
-        return auditLogRepository.save(AuditLog.builder()
+        return saveIfAbsent(buildAuditLog(eventId, eventType, serviceName, timestamp, userId, entityId, entityType,
+                oldValue, newValue, action));
+    }
+
+    // Idempotent single insert: an already ingested eventId returns the stored audit log
+    private AuditLog saveIfAbsent(AuditLog auditLog) {
+        if (recentEventIds.mightContain(auditLog.getEventId())) {
+            AuditLog existing = metrics.dedup(() -> auditLogRepository.findByEventId(auditLog.getEventId()));
+            if (existing != null) {
+                metrics.batch(1, 0);
+                return existing;
+            }
+        }
+
+        try {
+            AuditLog saved = metrics.persist(() -> auditLogRepository.save(auditLog));
+            recentEventIds.put(auditLog.getEventId());
+            metrics.batch(1, 1);
+            searchIndex.enqueue(List.of(saved));
+            entityStateCache.onIngested(List.of(saved));
+            broadcaster.publish(List.of(saved));
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // Lost a race against a concurrent insert of the same eventId
+            AuditLog existing = auditLogRepository.findByEventId(auditLog.getEventId());
+            if (existing == null) {
+                throw e;
+            }
+            recentEventIds.put(auditLog.getEventId());
+            metrics.batch(1, 0);
+            return existing;
+        }
+    }
+
+    public AuditLog buildAuditLog(String eventId, String eventType, String serviceName, Instant timestamp, String userId,
+                                  String entityId, String entityType, String oldValue, String newValue, String action) {
+        return AuditLog.builder()
                 .eventId(eventId)
                 .eventType(eventType)
                 .serviceName(serviceName)
-                .timestamp(Instant.now())
+                // Event time decides the partition; events without one take the time they were received
+                .timestamp(timestamp != null ? timestamp : Instant.now())
                 .userId(userId)
                 .entityId(entityId)
                 .entityType(entityType)
                 .oldValue(oldValue)
                 .newValue(newValue)
                 .action(action)
-                .build());
+                .build();
     }
 
-    private AuditLog parseAndCreateAuditLog(String message) {
-        JsonObject jsonObject = gson.fromJson(message, JsonObject.class);
-
-        String eventId = jsonObject.get("eventId").getAsString();
-        String eventType = jsonObject.get("eventType").getAsString();
-        String serviceName = jsonObject.get("serviceName").getAsString();
-        String userId = jsonObject.get("userId").getAsString();
-        String entityId = jsonObject.get("entityId").getAsString();
-        String entityType = jsonObject.get("entityType").getAsString();
-
-        // Parse oldValue and newValue as JsonElement (can be JsonObject, JsonArray, JsonPrimitive, or JsonNull)
-        JsonElement oldValueElement = jsonObject.get("oldValue");
-        JsonElement newValueElement = jsonObject.get("newValue");
+    private AuditLog parseAuditLog(byte[] message, Instant defaultTimestamp) {
+        return withTimestamp(metrics.parse(() -> auditEventParser.parse(message)), defaultTimestamp);
+    }
 
-        // Convert JsonElement to String (or keep as JsonElement if needed)
-        String oldValue = oldValueElement != null && !oldValueElement.isJsonNull() ? oldValueElement.toString() : null;
-        String newValue = newValueElement != null && !newValueElement.isJsonNull() ? newValueElement.toString() : null;
+    private static String header(ConsumerRecord<?, ?> record, String... names) {
+        for (String name : names) {
+            org.apache.kafka.common.header.Header header = record.headers().lastHeader(name);
+            if (header != null) {
+                return new String(header.value(), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
 
-        String action = jsonObject.get("action").getAsString();
+    // Duplicates are detected on the eventId alone (audit_event_id), so any default works. Kafka records default to
+    // their record timestamp, which is the same on every redelivery; other events to the time they were received.
+    private static AuditLog withTimestamp(AuditLog auditLog, Instant defaultTimestamp) {
+        if (auditLog.getTimestamp() == null) {
+            auditLog.setTimestamp(defaultTimestamp);
+        }
+        return auditLog;
+    }
 
-        return saveAuditLog(eventId, eventType, serviceName, userId, entityId, entityType, oldValue, newValue, action);
+    // Republished records are stamped when republished. The main listener's error handler keeps the original
+    // timestamp in a header; the first one wins over those the retry topics may add.
+    private static Instant originalTimestamp(ConsumerRecord<?, ?> record) {
+        Iterator<org.apache.kafka.common.header.Header> original =
+                record.headers().headers(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP).iterator();
+        return Instant.ofEpochMilli(original.hasNext()
+                ? ByteBuffer.wrap(original.next().value()).getLong()
+                : record.timestamp());
     }
 }
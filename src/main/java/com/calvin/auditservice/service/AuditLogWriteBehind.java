@@ -0,0 +1,223 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.ServiceUnavailableException;
+import com.calvin.auditservice.model.AuditLog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Opt-in write-behind for POST /v1/logs: requests only append to a bounded queue and a single background
+// thread writes it in batches through the same idempotent path as the Kafka listener.
+// A full queue is rejected right away (503) instead of parking request threads behind the connection pool.
+// Queued events live in memory only. Events already acknowledged but not written by shutdown are handed to the
+// failed topic, where the Kafka retry path picks them up; events the database rejects go to its dead-letter topic.
+// Only a crash loses queued events.
+@Slf4j
+@Component
+public class AuditLogWriteBehind implements MeterBinder {
+
+    private static final long MAX_RETRY_BACKOFF_MS = 30_000;
+    private static final long HAND_OFF_TIMEOUT_MS = 10_000;
+
+    private final AuditLogService auditLogService;
+    private final KafkaOperations<Object, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String failedTopic;
+    private final boolean enabled;
+    private final BlockingQueue<AuditLog> queue;
+    private final int batchSize;
+    private final Duration retryBackoff;
+    private final boolean virtualThreads;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditLogWriteBehind(AuditLogService auditLogService,
+                               KafkaOperations<Object, Object> kafkaTemplate,
+                               ObjectMapper objectMapper,
+                               @Value("${kafka.topic.failed:${kafka.topic.audit}-failed}") String failedTopic,
+                               @Value("${audit.write-behind.enabled:false}") boolean enabled,
+                               @Value("${audit.write-behind.queue-capacity:10000}") int queueCapacity,
+                               @Value("${audit.write-behind.batch-size:500}") int batchSize,
+                               @Value("${audit.write-behind.retry-backoff:1s}") Duration retryBackoff,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.auditLogService = auditLogService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.failedTopic = failedTopic;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.retryBackoff = retryBackoff;
+        // Virtual threads need Java 21; on older runtimes the writer stays a platform thread
+        this.virtualThreads = virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audit.write-behind.queue.size", queue, BlockingQueue::size)
+                .description("Audit logs waiting for the write-behind writer")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        if (virtualThreads) {
+            writer = new VirtualThreadTaskExecutor().getVirtualThreadFactory().newThread(this::drain);
+            writer.setName("audit-write-behind");
+        } else {
+            writer = new Thread(this::drain, "audit-write-behind");
+            writer.setDaemon(true);
+        }
+        writer.start();
+    }
+
+    // Stop accepting, then give the writer a bounded amount of time to flush what is queued.
+    // Whatever it could not get to is handed to the failed topic rather than dropped.
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(MAX_RETRY_BACKOFF_MS);
+        List<AuditLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warn("Shutting down with {} queued audit logs not written, handing them to {}", remaining.size(), failedTopic);
+            handOff(remaining, failedTopic, null);
+        }
+    }
+
+    public void enqueue(AuditLog auditLog) {
+        if (!running || !queue.offer(auditLog)) {
+            throw new ServiceUnavailableException("Audit log queue is full, retry later.");
+        }
+    }
+
+    public int queuedCount() {
+        return queue.size();
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<AuditLog> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void write(List<AuditLog> batch) throws InterruptedException {
+        long backoff = retryBackoff.toMillis();
+        while (true) {
+            try {
+                int inserted = auditLogService.ingestAuditLogs(batch);
+                log.info("Write-behind Audit Logs Created: {} (duplicates dropped: {})", inserted, batch.size() - inserted);
+                return;
+            } catch (NonTransientDataAccessException e) {
+                // Retrying the same batch cannot succeed; isolate the offending events instead
+                writeIndividually(batch);
+                return;
+            } catch (RuntimeException e) {
+                // Database unavailable or similar: keep the batch, the queue filling up pushes back on callers
+                if (!running) {
+                    log.warn("Handing {} queued audit logs to {} during shutdown: {}", batch.size(), failedTopic, e.getMessage());
+                    handOff(batch, failedTopic, null);
+                    return;
+                }
+                log.error("Failed to write {} queued audit logs, retrying in {} ms: {}", batch.size(), backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void writeIndividually(List<AuditLog> batch) {
+        for (AuditLog auditLog : batch) {
+            try {
+                auditLogService.ingestAuditLogs(List.of(auditLog));
+            } catch (NonTransientDataAccessException e) {
+                // Same outcome as a Kafka event the database rejects: straight to the dead-letter topic
+                log.error("Audit log ( {} ) cannot be stored, handing it to {}-dlt: {}", auditLog.getEventId(), failedTopic, e.getMessage());
+                handOff(List.of(auditLog), failedTopic + "-dlt", e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("Failed to write audit log ( {} ), handing it to {}: {}", auditLog.getEventId(), failedTopic, e.getMessage());
+                handOff(List.of(auditLog), failedTopic, null);
+            }
+        }
+    }
+
+    // Republishes acknowledged events as regular audit event messages keyed by entity, like producers send them.
+    // Failing to publish is the only case left where an acknowledged event is lost, so it is logged per event.
+    private void handOff(List<AuditLog> auditLogs, String topic, String exceptionMessage) {
+        List<AuditLog> sent = new ArrayList<>(auditLogs.size());
+        List<CompletableFuture<SendResult<Object, Object>>> sends = new ArrayList<>(auditLogs.size());
+        for (AuditLog auditLog : auditLogs) {
+            try {
+                ProducerRecord<Object, Object> record = new ProducerRecord<>(topic, auditLog.getEntityId(),
+                        objectMapper.writeValueAsBytes(auditLog));
+                if (exceptionMessage != null) {
+                    record.headers().add(KafkaHeaders.EXCEPTION_MESSAGE, exceptionMessage.getBytes(StandardCharsets.UTF_8));
+                }
+                sends.add(kafkaTemplate.send(record));
+                sent.add(auditLog);
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.error("Lost audit log ( {} ): could not hand it to {}: {}", auditLog.getEventId(), topic, e.getMessage());
+            }
+        }
+        for (int i = 0; i < sends.size(); i++) {
+            AuditLog auditLog = sent.get(i);
+            try {
+                sends.get(i).get(HAND_OFF_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Lost audit log ( {} ): interrupted while handing it to {}", auditLog.getEventId(), topic);
+            } catch (ExecutionException | TimeoutException e) {
+                log.error("Lost audit log ( {} ): could not hand it to {}: {}", auditLog.getEventId(), topic, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.calvin.auditservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+// Meters of the ingestion and query pipeline, scraped from /actuator/prometheus.
+// Kafka consumer (including per-partition lag), Hikari pool and cache meters come from Spring Boot's binders.
+@Component
+public class AuditMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer parseTimer;
+    private final Timer dedupTimer;
+    private final Timer persistTimer;
+    private final DistributionSummary batchSize;
+    private final Counter inserted;
+    private final Counter duplicates;
+    private final Counter invalid;
+    private final Counter deadLetters;
+    // Cumulative time of batch writes, sampled by IngestionBackpressure independently of the registry type
+    private final LongAdder persistCalls = new LongAdder();
+    private final LongAdder persistNanos = new LongAdder();
+
+    public AuditMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.parseTimer = stageTimer("parse");
+        this.dedupTimer = stageTimer("dedup");
+        this.persistTimer = stageTimer("persist");
+        this.batchSize = DistributionSummary.builder("audit.ingest.batch.size")
+                .description("Audit events per ingested batch")
+                .register(registry);
+        this.inserted = eventCounter("inserted");
+        this.duplicates = eventCounter("duplicate");
+        this.invalid = eventCounter("invalid");
+        this.deadLetters = Counter.builder("audit.ingest.dead.letters")
+                .description("Audit events that reached the dead-letter topic")
+                .register(registry);
+    }
+
+    // Parsing includes validation: the parser checks each field while it reads it
+    public <T> T parse(Supplier<T> parse) {
+        return parseTimer.record(parse);
+    }
+
+    // For parsing that throws checked exceptions, e.g. reading from a request body
+    public void parsedSince(long startNanos) {
+        parseTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T dedup(Supplier<T> lookup) {
+        return dbCall("dedup", dedupTimer, lookup);
+    }
+
+    public <T> T persist(Supplier<T> write) {
+        long start = System.nanoTime();
+        try {
+            return dbCall("persist", persistTimer, write);
+        } finally {
+            persistNanos.add(System.nanoTime() - start);
+            persistCalls.increment();
+        }
+    }
+
+    public long persistCalls() {
+        return persistCalls.sum();
+    }
+
+    public long persistNanos() {
+        return persistNanos.sum();
+    }
+
+    public void batch(int size, int insertedCount) {
+        batchSize.record(size);
+        inserted.increment(insertedCount);
+        duplicates.increment(size - insertedCount);
+    }
+
+    public void invalid() {
+        invalid.increment();
+    }
+
+    public void deadLetter() {
+        deadLetters.increment();
+    }
+
+    // Query latency by access path (admin or ACL-filtered) and by the size of the page returned
+    public <T> T query(boolean admin, Supplier<T> query, ToIntFunction<T> rows) {
+        long start = System.nanoTime();
+        T result = dbCall("query", null, query);
+        Timer.builder("audit.query")
+                .description("Audit log page queries")
+                .tag("access", admin ? "admin" : "acl")
+                .tag("rows", rowsBucket(rows.applyAsInt(result)))
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    public void dbError(String operation, DataAccessException e) {
+        Counter.builder("audit.db.errors")
+                .description("Failed database calls")
+                .tag("operation", operation)
+                .tag("exception", e.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    private <T> T dbCall(String operation, Timer timer, Supplier<T> call) {
+        try {
+            return timer != null ? timer.record(call) : call.get();
+        } catch (DataAccessException e) {
+            dbError(operation, e);
+            throw e;
+        }
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("audit.ingest.stage")
+                .description("Time spent per ingestion stage")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private Counter eventCounter(String outcome) {
+        return Counter.builder("audit.ingest.events")
+                .description("Audit events ingested, by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    // Coarse buckets keep the number of time series fixed
+    private static String rowsBucket(int rows) {
+        if (rows == 0) {
+            return "0";
+        }
+        if (rows <= 10) {
+            return "1-10";
+        }
+        if (rows <= 100) {
+            return "11-100";
+        }
+        return "101+";
+    }
+}
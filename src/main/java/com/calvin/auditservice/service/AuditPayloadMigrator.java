@@ -0,0 +1,65 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import com.calvin.auditservice.repository.AuditPayloadCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Re-encodes rows written with plain-text payloads into the DELTA columns, one batch per transaction.
+// Reads stay correct while it runs since the codec decodes both layouts; it only reclaims space.
+@Slf4j
+@Component
+public class AuditPayloadMigrator {
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditPayloadCodec payloadCodec;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${audit.storage.migrate-on-startup:false}")
+    private boolean migrateOnStartup;
+
+    @Value("${audit.storage.migration-batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (migrateOnStartup && payloadCodec.getMode() == AuditPayloadCodec.Mode.DELTA) {
+            int migrated = migrate();
+            log.info("Re-encoded payloads of {} audit log rows", migrated);
+        }
+    }
+
+    // Returns the number of rows re-encoded
+    public int migrate() {
+        int migrated = 0;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            long from = afterId;
+            List<AuditLog> batch = transactionTemplate.execute(status -> {
+                List<AuditLog> rows = auditLogRepository.findPlainPayloadsAfter(from, Limit.of(batchSize));
+                // Loaded rows are already decoded; encoding moves them to the new columns and the flush updates them
+                rows.forEach(payloadCodec::encode);
+                return rows;
+            });
+            if (batch == null || batch.isEmpty()) {
+                return migrated;
+            }
+            migrated += batch.size();
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+}
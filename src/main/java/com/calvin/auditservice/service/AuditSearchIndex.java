@@ -0,0 +1,371 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.AuditEventPosition;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditSearchQuery;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.email.UAX29URLEmailTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Opt-in Lucene index on local disk for finding audit logs by payload content. Ingestion only queues the stored
+// audit logs; a background thread indexes them, so search results trail ingestion by about refresh-interval.
+// Documents are keyed by row id and re-indexing a row replaces it, so reindex() can repair gaps (queue overflow,
+// a crash before the last commit) at any time.
+@Slf4j
+@Component
+public class AuditSearchIndex implements MeterBinder {
+
+    private static final String ID = "id";
+    private static final String ROW_ID = "row_id";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String ENTITY_TYPE = "entityType";
+    private static final String SERVICE_NAME = "serviceName";
+    // Every payload leaf and metadata value, lowercased, as one exact term
+    private static final String VALUE = "value";
+    // The same values prefixed with their JSON path, e.g. "newValue.customer.email=jane@example.com"
+    private static final String PATH_VALUE = "path_value";
+    // Payload string values split into words, keeping e-mail addresses and URLs as single tokens
+    private static final String TEXT = "text";
+    private static final int BATCH_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path directory;
+    private final BlockingQueue<AuditLog> queue;
+    private final long refreshIntervalNanos;
+    private final long commitIntervalNanos;
+    private final double ramBufferMb;
+    private final Analyzer analyzer = new PayloadTextAnalyzer();
+
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private Counter dropped;
+    private volatile boolean running;
+    private Thread indexer;
+
+    public AuditSearchIndex(ObjectMapper objectMapper,
+                            @Value("${audit.search.enabled:false}") boolean enabled,
+                            @Value("${audit.search.directory:data/search-index}") Path directory,
+                            @Value("${audit.search.queue-capacity:50000}") int queueCapacity,
+                            @Value("${audit.search.refresh-interval:1s}") Duration refreshInterval,
+                            @Value("${audit.search.commit-interval:30s}") Duration commitInterval,
+                            @Value("${audit.search.ram-buffer-mb:64}") double ramBufferMb) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.commitIntervalNanos = commitInterval.toNanos();
+        this.ramBufferMb = ramBufferMb;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(ramBufferMb);
+        writer = new IndexWriter(FSDirectory.open(directory), config);
+        searcherManager = new SearcherManager(writer, null);
+        running = true;
+        indexer = new Thread(this::drain, "audit-search-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+        log.info("Audit search index opened at {} ({} documents)", directory.toAbsolutePath(), writer.getDocStats().numDocs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (indexer == null) {
+            return;
+        }
+        running = false;
+        indexer.join(30_000);
+        searcherManager.close();
+        writer.close();
+    }
+
+    // Called after the audit logs were stored; never blocks ingestion
+    public void enqueue(Collection<AuditLog> auditLogs) {
+        if (!running) {
+            return;
+        }
+        int rejected = 0;
+        for (AuditLog auditLog : auditLogs) {
+            if (!queue.offer(auditLog)) {
+                rejected++;
+            }
+        }
+        if (rejected > 0) {
+            dropped.increment(rejected);
+            log.warn("Search index queue is full, {} audit logs not indexed; reindex their time range", rejected);
+        }
+    }
+
+    // Index audit logs synchronously, replacing documents of rows indexed before; returns the number indexed
+    public long index(Iterator<AuditLog> auditLogs) throws IOException {
+        long indexed = 0;
+        while (auditLogs.hasNext()) {
+            AuditLog auditLog = auditLogs.next();
+            writer.updateDocument(new Term(ID, String.valueOf(auditLog.getId())), toDocument(auditLog));
+            indexed++;
+        }
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+        return indexed;
+    }
+
+    // Row ids and timestamps (millisecond precision) of the matching audit logs, newest first
+    public List<AuditEventPosition> search(AuditSearchQuery query, Collection<String> entityTypes, int limit) throws IOException {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(matchQuery(query), BooleanClause.Occur.MUST);
+        if (entityTypes != null) {
+            builder.add(new TermInSetQuery(ENTITY_TYPE, entityTypes.stream().map(BytesRef::new).toList()),
+                    BooleanClause.Occur.FILTER);
+        }
+        if (query.getEntityType() != null) {
+            builder.add(new TermQuery(new Term(ENTITY_TYPE, query.getEntityType())), BooleanClause.Occur.FILTER);
+        }
+        if (query.getServiceName() != null) {
+            builder.add(new TermQuery(new Term(SERVICE_NAME, query.getServiceName())), BooleanClause.Occur.FILTER);
+        }
+        if (query.getFrom() != null || query.getTo() != null) {
+            long from = query.getFrom() != null ? query.getFrom().toEpochMilli() : Long.MIN_VALUE;
+            long to = query.getTo() != null ? query.getTo().toEpochMilli() - 1 : Long.MAX_VALUE;
+            builder.add(LongPoint.newRangeQuery(TIMESTAMP, from, to), BooleanClause.Occur.FILTER);
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopFieldDocs hits = searcher.search(builder.build(), limit,
+                    new Sort(new SortField(TIMESTAMP, SortField.Type.LONG, true)));
+            List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+            List<AuditEventPosition> positions = new ArrayList<>(hits.scoreDocs.length);
+            for (ScoreDoc hit : hits.scoreDocs) {
+                LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(hit.doc, leaves));
+                NumericDocValues rowIds = DocValues.getNumeric(leaf.reader(), ROW_ID);
+                if (rowIds.advanceExact(hit.doc - leaf.docBase)) {
+                    // The sort value is the timestamp
+                    long timestamp = (Long) ((FieldDoc) hit).fields[0];
+                    positions.add(new AuditEventPosition(rowIds.longValue(), Instant.ofEpochMilli(timestamp)));
+                }
+            }
+            return positions;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        dropped = Counter.builder("audit.search.dropped")
+                .description("Audit logs not indexed because the search index queue was full")
+                .register(registry);
+        Gauge.builder("audit.search.queue.size", queue, BlockingQueue::size)
+                .description("Audit logs waiting to be indexed")
+                .register(registry);
+    }
+
+    private Query matchQuery(AuditSearchQuery query) {
+        String value = query.getText().toLowerCase(Locale.ROOT);
+        if (query.getPath() != null) {
+            return new TermQuery(new Term(PATH_VALUE, query.getPath() + "=" + value));
+        }
+        BooleanQuery.Builder match = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(VALUE, value)), BooleanClause.Occur.SHOULD);
+        Query words = new QueryBuilder(analyzer).createPhraseQuery(TEXT, query.getText());
+        if (words != null) {
+            match.add(words, BooleanClause.Occur.SHOULD);
+        }
+        return match.build();
+    }
+
+    private void drain() {
+        long lastRefresh = System.nanoTime();
+        long lastCommit = lastRefresh;
+        boolean uncommitted = false;
+        boolean unrefreshed = false;
+        List<AuditLog> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    for (AuditLog auditLog : batch) {
+                        writer.updateDocument(new Term(ID, String.valueOf(auditLog.getId())), toDocument(auditLog));
+                    }
+                    batch.clear();
+                    uncommitted = true;
+                    unrefreshed = true;
+                }
+
+                long now = System.nanoTime();
+                if (unrefreshed && now - lastRefresh >= refreshIntervalNanos) {
+                    searcherManager.maybeRefresh();
+                    lastRefresh = now;
+                    unrefreshed = false;
+                }
+                if (uncommitted && (now - lastCommit >= commitIntervalNanos || !running)) {
+                    writer.commit();
+                    lastCommit = now;
+                    uncommitted = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to index {} audit logs: {}", batch.size(), e.getMessage());
+                dropped.increment(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private Document toDocument(AuditLog auditLog) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(auditLog.getId()), Field.Store.NO));
+        document.add(new NumericDocValuesField(ROW_ID, auditLog.getId()));
+        long timestamp = auditLog.getTimestamp().toEpochMilli();
+        document.add(new LongPoint(TIMESTAMP, timestamp));
+        document.add(new NumericDocValuesField(TIMESTAMP, timestamp));
+
+        keyword(document, "eventId", auditLog.getEventId());
+        keyword(document, "eventType", auditLog.getEventType());
+        keyword(document, SERVICE_NAME, auditLog.getServiceName());
+        keyword(document, "userId", auditLog.getUserId());
+        keyword(document, "entityId", auditLog.getEntityId());
+        keyword(document, ENTITY_TYPE, auditLog.getEntityType());
+        keyword(document, "action", auditLog.getAction());
+
+        payload(document, "oldValue", auditLog.getOldValue());
+        payload(document, "newValue", auditLog.getNewValue());
+        return document;
+    }
+
+    private static void keyword(Document document, String field, String value) {
+        if (value == null) {
+            return;
+        }
+        document.add(new StringField(field, value, Field.Store.NO));
+        value(document, field, value);
+    }
+
+    private void payload(Document document, String field, String payload) {
+        if (payload == null) {
+            return;
+        }
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            // Not JSON: the whole payload is a single value
+            text(document, field, payload);
+            return;
+        }
+        flatten(document, field, node);
+    }
+
+    // Array elements share their array's path ("items[].sku") so a path matches any element
+    private static void flatten(Document document, String path, JsonNode node) {
+        if (node.isObject()) {
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                flatten(document, path + "." + field.getKey(), field.getValue());
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                flatten(document, path + "[]", element);
+            }
+        } else if (!node.isNull()) {
+            text(document, path, node.asText());
+        }
+    }
+
+    private static void text(Document document, String path, String value) {
+        value(document, path, value);
+        document.add(new TextField(TEXT, value, Field.Store.NO));
+    }
+
+    private static void value(Document document, String path, String value) {
+        String term = value.toLowerCase(Locale.ROOT);
+        document.add(new StringField(VALUE, term, Field.Store.NO));
+        document.add(new StringField(PATH_VALUE, path + "=" + term, Field.Store.NO));
+    }
+
+    // Lowercased words, e-mail addresses and URLs; a gap between values keeps phrases from spanning two values
+    private static final class PayloadTextAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            UAX29URLEmailTokenizer tokenizer = new UAX29URLEmailTokenizer();
+            TokenStream stream = new LowerCaseFilter(tokenizer);
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+
+        @Override
+        public int getPositionIncrementGap(String fieldName) {
+            return 100;
+        }
+    }
+}
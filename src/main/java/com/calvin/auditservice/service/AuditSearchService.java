@@ -0,0 +1,148 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.exception.NotFoundException;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditEventPosition;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditSearchQuery;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Payload search: the index returns matching row ids (already restricted to the user's entity types), and only
+// those rows are read from the database, by primary key. Rows archived since they were indexed are read from the
+// archive instead, within the time span of the missing hits.
+@Slf4j
+@Service
+public class AuditSearchService {
+
+    @Autowired
+    private AuditSearchIndex searchIndex;
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditArchiveStore archiveStore;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${audit.query.default-page-size:100}")
+    private int defaultLimit;
+
+    @Value("${audit.query.max-page-size:1000}")
+    private int maxLimit;
+
+    public List<AuditLog> search(String userId, AuditSearchQuery query, Integer limit) throws IOException {
+        requireEnabled();
+        if (query.getText() == null || query.getText().isBlank()) {
+            throw new BadRequestException("q must not be empty.");
+        }
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be a positive number.");
+        }
+
+        UserAccess access = auditLogService.resolveUserAccess(userId);
+        if (!access.isAdmin() && access.getAllowedEntities().isEmpty()) {
+            return List.of();
+        }
+        List<AuditEventPosition> hits = searchIndex.search(query, access.isAdmin() ? null : access.getAllowedEntities(),
+                Math.min(limit != null ? limit : defaultLimit, maxLimit));
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, AuditLog> rows = auditLogRepository.findAllById(hits.stream().map(AuditEventPosition::id).toList())
+                .stream()
+                .collect(Collectors.toMap(AuditLog::getId, Function.identity(), (first, second) -> first, HashMap::new));
+        if (rows.size() < hits.size()) {
+            addArchivedRows(hits, rows, access.isAdmin() ? null : access.getAllowedEntities());
+        }
+
+        // Keep the index order (newest first); ids of rows deleted since they were indexed are skipped
+        List<AuditLog> results = new ArrayList<>(hits.size());
+        for (AuditEventPosition hit : hits) {
+            AuditLog auditLog = rows.get(hit.id());
+            if (auditLog != null) {
+                results.add(auditLog);
+            }
+        }
+        return results;
+    }
+
+    // Repair: index every audit log in [from, to) again, e.g. after a crash, a dropped batch or enabling search
+    // on existing data
+    @Transactional(readOnly = true)
+    public long reindex(String userId, Instant from, Instant to) throws IOException {
+        requireEnabled();
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("from must be before to.");
+        }
+        if (!auditLogService.resolveUserAccess(userId).isAdmin()) {
+            throw new UnauthorizedException("Only admins can rebuild the search index.");
+        }
+
+        long indexed;
+        try (Stream<AuditLog> rows = auditLogRepository.streamByTimestampRange(from, to)) {
+            // Rows are detached once read so memory stays flat
+            indexed = searchIndex.index(rows.peek(entityManager::detach).iterator());
+        }
+        log.info("Reindexed {} audit logs between {} and {}", indexed, from, to);
+        return indexed;
+    }
+
+    // The index keeps documents of archived rows, so hits missing from audit_log are looked up in the archive.
+    // Index timestamps are truncated to milliseconds, hence the extra millisecond at the end of the span.
+    private void addArchivedRows(List<AuditEventPosition> hits, Map<Long, AuditLog> rows, Set<String> entityTypes) {
+        Instant archivedUntil = archiveStore.getMaxTimestamp();
+        if (archivedUntil == null) {
+            return;
+        }
+        List<AuditEventPosition> archivedHits = hits.stream()
+                .filter(hit -> !rows.containsKey(hit.id()) && !hit.timestamp().isAfter(archivedUntil))
+                .toList();
+        if (archivedHits.isEmpty()) {
+            return;
+        }
+        Set<Long> missing = archivedHits.stream().map(AuditEventPosition::id).collect(Collectors.toSet());
+        // Hits are newest first
+        Instant from = archivedHits.get(archivedHits.size() - 1).timestamp();
+        Instant to = archivedHits.get(0).timestamp().plusMillis(1);
+        Iterator<AuditLog> archived = archiveStore.scan(from, to, entityTypes, row -> missing.contains(row.getId()), false);
+        while (archived.hasNext() && !missing.isEmpty()) {
+            AuditLog auditLog = archived.next();
+            missing.remove(auditLog.getId());
+            rows.put(auditLog.getId(), auditLog);
+        }
+    }
+
+    private void requireEnabled() {
+        if (!searchIndex.isEnabled()) {
+            throw new NotFoundException("Audit search is not enabled (audit.search.enabled).");
+        }
+    }
+}
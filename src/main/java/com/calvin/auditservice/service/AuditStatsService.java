@@ -0,0 +1,82 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditStatsBucket;
+import com.calvin.auditservice.model.AuditStatsQuery;
+import com.calvin.auditservice.model.StatsGranularity;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditStatsRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Event counts per time bucket, read from the rollup tables only: the cost depends on the number of buckets
+// returned, not on the number of audit logs they summarize
+@Slf4j
+@Service
+public class AuditStatsService {
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private AuditStatsRollupRepository statsRollupRepository;
+
+    @Autowired
+    private AuditArchiveStore archiveStore;
+
+    @Value("${audit.stats.max-buckets:10000}")
+    private long maxBuckets;
+
+    public List<AuditStatsBucket> getStats(String userId, AuditStatsQuery query) {
+        if (!query.getFrom().isBefore(query.getTo())) {
+            throw new BadRequestException("from must be before to.");
+        }
+        StatsGranularity granularity = query.getGranularity();
+        long buckets = ChronoUnit.SECONDS.between(query.getFrom(), query.getTo()) / granularity.seconds();
+        if (buckets > maxBuckets) {
+            throw new BadRequestException("The range spans more than " + maxBuckets + " " +
+                    granularity.name().toLowerCase() + " buckets; use a coarser granularity.");
+        }
+
+        UserAccess access = auditLogService.resolveUserAccess(userId);
+        if (access.isAdmin()) {
+            return statsRollupRepository.findBuckets(query, null);
+        }
+        if (access.getAllowedEntities().isEmpty()) {
+            return List.of();
+        }
+        return statsRollupRepository.findBuckets(query, access.getAllowedEntities());
+    }
+
+    // Backfill: recompute the rollups of the UTC days overlapping [from, to) from audit_log and the archive
+    public int rebuild(String userId, Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("from must be before to.");
+        }
+        if (!auditLogService.resolveUserAccess(userId).isAdmin()) {
+            throw new UnauthorizedException("Only admins can rebuild audit statistics.");
+        }
+
+        Instant start = StatsGranularity.DAY.bucketOf(from);
+        Instant end = StatsGranularity.DAY.bucketOf(to.minusNanos(1)).plus(1, ChronoUnit.DAYS);
+        Instant archivedUntil = archiveStore.getMaxTimestamp();
+        int written = 0;
+        // One hour per transaction: ingestion waits for each one, so it only stalls while an hour of rows is counted
+        for (Instant hour = start; hour.isBefore(end); hour = hour.plus(1, ChronoUnit.HOURS)) {
+            Instant next = hour.plus(1, ChronoUnit.HOURS);
+            written += statsRollupRepository.rebuildRollups(hour, next, archivedUntil,
+                    archiveStore.scan(hour, next, null, auditLog -> true, false));
+        }
+        written += statsRollupRepository.rebuildDayRollups(start, end);
+        log.info("Rebuilt audit statistics between {} and {}: {} rollup rows", start, end, written);
+        return written;
+    }
+}
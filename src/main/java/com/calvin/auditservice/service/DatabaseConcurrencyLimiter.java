@@ -0,0 +1,90 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Caps how many HTTP requests use the database at once so that request concurrency (Tomcat's 200 threads, or
+// unbounded with virtual threads on Java 21) never exceeds what the connection pool can serve. Kafka listeners and
+// the write-behind writer are already bounded by their thread counts and keep the remaining connections.
+// Waiters give up after the acquire timeout with a 503 instead of piling up behind the pool's own timeout.
+@Component
+public class DatabaseConcurrencyLimiter implements MeterBinder {
+
+    private final Semaphore requests;
+    private final Semaphore exports;
+    private final long acquireTimeoutNanos;
+
+    public DatabaseConcurrencyLimiter(@Value("${audit.db-limiter.max-concurrent:3}") int maxConcurrent,
+                                      @Value("${audit.db-limiter.max-concurrent-exports:1}") int maxConcurrentExports,
+                                      @Value("${audit.db-limiter.acquire-timeout:10s}") Duration acquireTimeout) {
+        this.requests = new Semaphore(maxConcurrent, true);
+        this.exports = new Semaphore(maxConcurrentExports, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    public Permit acquire() {
+        long deadline = System.nanoTime() + acquireTimeoutNanos;
+        acquire(requests, deadline);
+        return Permit.of(requests::release);
+    }
+
+    // Exports hold their connection for the whole download, so they also take one of the few export permits
+    // and cannot occupy every request permit
+    public Permit acquireExport() {
+        long deadline = System.nanoTime() + acquireTimeoutNanos;
+        acquire(exports, deadline);
+        try {
+            acquire(requests, deadline);
+        } catch (RuntimeException e) {
+            exports.release();
+            throw e;
+        }
+        return Permit.of(() -> {
+            requests.release();
+            exports.release();
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audit.db-limiter.waiting", requests, Semaphore::getQueueLength)
+                .description("Requests waiting for a database permit")
+                .register(registry);
+    }
+
+    private static void acquire(Semaphore semaphore, long deadline) {
+        try {
+            if (!semaphore.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new ServiceUnavailableException("Too many concurrent database requests, retry later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for a database permit.");
+        }
+    }
+
+    // Released by try-with-resources or by the code that finishes the request; only the first close releases
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+
+        static Permit of(Runnable release) {
+            AtomicBoolean released = new AtomicBoolean();
+            return () -> {
+                if (released.compareAndSet(false, true)) {
+                    release.run();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.EntityState;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU cache of reconstructed entity states, keyed by entity and by the id of the last event replayed into them:
+// every asOf between that event and the entity's next one shares the entry.
+// Events stored in order never change a cached state. An event stored behind a cached state (a late event or a
+// backfill) evicts the entity here; the inserting transaction deletes its snapshots from the event's timestamp on.
+@Component
+public class EntityStateCache implements MeterBinder {
+
+    private final Cache<EntityKey, EntityStates> cache;
+    private final int statesPerEntity;
+    private final Duration snapshotLag;
+
+    public EntityStateCache(@Value("${audit.reconstruction.cache.maximum-states:10000}") long maximumStates,
+                            @Value("${audit.reconstruction.cache.states-per-entity:16}") int statesPerEntity,
+                            @Value("${audit.reconstruction.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                            @Value("${audit.reconstruction.snapshot-lag:1h}") Duration snapshotLag) {
+        this.statesPerEntity = statesPerEntity;
+        this.snapshotLag = snapshotLag;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumStates)
+                .weigher((EntityKey key, EntityStates states) -> states.byLastEventId().size())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    public EntityState get(String entityType, String entityId, long lastEventId) {
+        EntityStates states = cache.getIfPresent(new EntityKey(entityType, entityId));
+        return states == null ? null : states.byLastEventId().get(lastEventId);
+    }
+
+    public void put(EntityState state) {
+        cache.asMap().compute(new EntityKey(state.getEntityType(), state.getEntityId()),
+                (key, states) -> (states == null ? EntityStates.EMPTY : states).with(state, statesPerEntity));
+    }
+
+    // Snapshots are only taken of events older than the snapshot lag, so only events that old can be behind one
+    public Instant snapshotHorizon() {
+        return Instant.now().minus(snapshotLag);
+    }
+
+    // Called with every stored batch of audit logs
+    public void onIngested(Collection<AuditLog> auditLogs) {
+        for (AuditLog auditLog : auditLogs) {
+            cache.asMap().computeIfPresent(new EntityKey(auditLog.getEntityType(), auditLog.getEntityId()),
+                    (k, states) -> auditLog.getTimestamp().isAfter(states.newestEventTimestamp()) ? states : null);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "entity-state");
+    }
+
+    private record EntityKey(String entityType, String entityId) {
+    }
+
+    // Immutable; replaced as a whole so the weigher sees the new size
+    private record EntityStates(Map<Long, EntityState> byLastEventId, Instant newestEventTimestamp) {
+        static final EntityStates EMPTY = new EntityStates(Map.of(), Instant.MIN);
+
+        EntityStates with(EntityState state, int maximumStates) {
+            LinkedHashMap<Long, EntityState> states = new LinkedHashMap<>(byLastEventId);
+            states.remove(state.getLastEventId());
+            states.put(state.getLastEventId(), state);
+            while (states.size() > maximumStates) {
+                states.remove(states.keySet().iterator().next());
+            }
+            Instant newest = state.getLastEventTimestamp().isAfter(newestEventTimestamp)
+                    ? state.getLastEventTimestamp() : newestEventTimestamp;
+            return new EntityStates(states, newest);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.NotFoundException;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditEntitySnapshot;
+import com.calvin.auditservice.model.AuditEventPosition;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.EntityState;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditEntitySnapshotRepository;
+import com.calvin.auditservice.repository.AuditLogMergeIterator;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import com.calvin.auditservice.repository.JsonMergePatch;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Reconstructs an entity as of a point in time by replaying its audit events in (timestamp, id) order.
+// Each event applies the change from its oldValue to its newValue, so events carrying the full state and events
+// carrying only the changed fields both replay correctly. An event without oldValue (a create) sets the state to
+// its newValue; one without newValue (a delete) removes the entity.
+// Replay starts from the latest snapshot at or before asOf, and a snapshot is stored every snapshot-interval
+// replayed events, so long histories are only replayed once.
+@Slf4j
+@Service
+public class EntityStateService {
+
+    @Autowired
+    private AuditLogService auditLogService;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditEntitySnapshotRepository snapshotRepository;
+
+    @Autowired
+    private EntityStateCache stateCache;
+
+    @Autowired
+    private AuditArchiveStore archiveStore;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${audit.reconstruction.snapshot-interval:100}")
+    private int snapshotInterval;
+
+    // Read-write: the replay may store snapshots
+    @Transactional
+    public EntityState getState(String userId, String entityType, String entityId, Instant asOf) {
+        if (!auditLogService.resolveUserAccess(userId).canView(entityType)) {
+            throw new UnauthorizedException("User ( " + userId + " ) cannot view entity type " + entityType + ".");
+        }
+
+        List<AuditEventPosition> last = auditLogRepository.findEventPositions(entityType, entityId, asOf, Limit.of(1));
+        AuditEventPosition lastEvent = last.isEmpty() ? null : last.get(0);
+        Instant archivedUntil = archiveStore.getMaxTimestamp();
+        if (archivedUntil != null && (lastEvent == null || !lastEvent.timestamp().isAfter(archivedUntil))) {
+            Iterator<AuditLog> archived = archivedHistory(entityType, entityId, null, asOf, true);
+            if (archived.hasNext()) {
+                AuditLog newest = archived.next();
+                if (lastEvent == null || newest.getTimestamp().isAfter(lastEvent.timestamp())
+                        || (newest.getTimestamp().equals(lastEvent.timestamp()) && newest.getId() > lastEvent.id())) {
+                    lastEvent = new AuditEventPosition(newest.getId(), newest.getTimestamp());
+                }
+            }
+        }
+        if (lastEvent == null) {
+            throw new NotFoundException("No audit events for " + entityType + " " + entityId + " at or before " + asOf + ".");
+        }
+
+        EntityState state = stateCache.get(entityType, entityId, lastEvent.id());
+        if (state == null) {
+            state = replay(entityType, entityId, asOf);
+            stateCache.put(state);
+        }
+        return state.toBuilder().asOf(asOf).build();
+    }
+
+    private EntityState replay(String entityType, String entityId, Instant asOf) {
+        AuditEntitySnapshot snapshot = snapshotRepository
+                .findFirstByEntityTypeAndEntityIdAndAsOfTimestampLessThanEqualOrderByAsOfTimestampDescAsOfIdDesc(
+                        entityType, entityId, asOf);
+        JsonElement state = snapshot == null || snapshot.getState() == null ? null : JsonParser.parseString(snapshot.getState());
+        Long lastEventId = snapshot == null ? null : snapshot.getAsOfId();
+        Instant lastEventTimestamp = snapshot == null ? null : snapshot.getAsOfTimestamp();
+
+        Instant horizon = stateCache.snapshotHorizon();
+        List<AuditEntitySnapshot> snapshots = new ArrayList<>();
+        int replayed = 0;
+        try (Stream<AuditLog> stored = snapshot == null
+                ? auditLogRepository.streamEntityHistory(entityType, entityId, asOf)
+                : auditLogRepository.streamEntityHistoryAfter(entityType, entityId, snapshot.getAsOfTimestamp(),
+                        snapshot.getAsOfId(), asOf)) {
+            // Drop each row from the persistence context so memory stays flat
+            Iterator<AuditLog> events = new AuditLogMergeIterator(AuditLogMergeIterator.OLDEST_FIRST, List.of(
+                    stored.peek(entityManager::detach).iterator(),
+                    archivedHistory(entityType, entityId, snapshot, asOf, false)));
+            while (events.hasNext()) {
+                AuditLog event = events.next();
+                state = apply(state, event);
+                lastEventId = event.getId();
+                lastEventTimestamp = event.getTimestamp();
+                replayed++;
+                // Recent events may still be joined by late ones, so only settled history is snapshotted
+                if (replayed % snapshotInterval == 0 && lastEventTimestamp.isBefore(horizon)) {
+                    snapshots.add(AuditEntitySnapshot.builder()
+                            .entityType(entityType)
+                            .entityId(entityId)
+                            .asOfTimestamp(lastEventTimestamp)
+                            .asOfId(lastEventId)
+                            .state(state == null ? null : state.toString())
+                            .build());
+                }
+            }
+        }
+        snapshots.forEach(snapshotRepository::insertIgnoringDuplicate);
+        log.debug("Reconstructed {} {} as of {}: {} events replayed, {} snapshots written", entityType, entityId,
+                asOf, replayed, snapshots.size());
+
+        return EntityState.builder()
+                .entityType(entityType)
+                .entityId(entityId)
+                .lastEventId(lastEventId)
+                .lastEventTimestamp(lastEventTimestamp)
+                .deleted(state == null)
+                .state(state == null ? null : state.toString())
+                .build();
+    }
+
+    // The entity's archived events after the snapshot (if any) up to asOf
+    private Iterator<AuditLog> archivedHistory(String entityType, String entityId, AuditEntitySnapshot after,
+                                               Instant asOf, boolean newestFirst) {
+        return archiveStore.scan(after == null ? null : after.getAsOfTimestamp(), asOf.plusNanos(1), Set.of(entityType),
+                event -> entityType.equals(event.getEntityType()) && entityId.equals(event.getEntityId())
+                        && (after == null || event.getTimestamp().isAfter(after.getAsOfTimestamp())
+                        || (event.getTimestamp().equals(after.getAsOfTimestamp()) && event.getId() > after.getAsOfId())),
+                newestFirst);
+    }
+
+    static JsonElement apply(JsonElement state, AuditLog event) {
+        if (event.getNewValue() == null) {
+            return event.getOldValue() == null ? state : null;
+        }
+        JsonElement newValue = parse(event.getNewValue());
+        if (state == null || event.getOldValue() == null) {
+            return newValue;
+        }
+        JsonElement oldValue = parse(event.getOldValue());
+        if (!state.isJsonObject() || !oldValue.isJsonObject() || !newValue.isJsonObject()) {
+            return newValue;
+        }
+        return JsonMergePatch.apply(state, JsonMergePatch.diff((JsonObject) oldValue, (JsonObject) newValue));
+    }
+
+    // Payloads that are not JSON are kept as strings
+    private static JsonElement parse(String value) {
+        try {
+            return JsonParser.parseString(value);
+        } catch (JsonParseException e) {
+            return new JsonPrimitive(value);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.calvin.auditservice.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pauses the Kafka listener containers while the database cannot keep up, so events wait in Kafka instead of
+// failing into the retry topics, and HTTP requests keep the connections. Paused when the batch writes of the last
+// check interval averaged more than pause-latency, or more than max-pending-connections threads wait for a pooled
+// connection. While paused a probe query is timed instead; the containers resume once it answers within
+// resume-latency with no thread waiting, and at least min-pause after pausing.
+@Slf4j
+@Component
+public class IngestionBackpressure implements MeterBinder {
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final AuditMetrics metrics;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long pauseLatencyNanos;
+    private final long resumeLatencyNanos;
+    private final int maxPendingConnections;
+    private final long minPauseNanos;
+
+    private final AtomicLong pauses = new AtomicLong();
+    private volatile boolean paused;
+    private long pausedAt;
+    private long lastPersistCalls;
+    private long lastPersistNanos;
+
+    public IngestionBackpressure(KafkaListenerEndpointRegistry listenerRegistry, AuditMetrics metrics,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${audit.backpressure.enabled:true}") boolean enabled,
+                                 @Value("${audit.backpressure.pause-latency:2s}") Duration pauseLatency,
+                                 @Value("${audit.backpressure.resume-latency:200ms}") Duration resumeLatency,
+                                 @Value("${audit.backpressure.max-pending-connections:2}") int maxPendingConnections,
+                                 @Value("${audit.backpressure.min-pause:5s}") Duration minPause) {
+        this.listenerRegistry = listenerRegistry;
+        this.metrics = metrics;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.pauseLatencyNanos = pauseLatency.toNanos();
+        this.resumeLatencyNanos = resumeLatency.toNanos();
+        this.maxPendingConnections = maxPendingConnections;
+        this.minPauseNanos = minPause.toNanos();
+    }
+
+    @Scheduled(fixedDelayString = "${audit.backpressure.check-interval:1s}")
+    public synchronized void check() {
+        if (!enabled) {
+            return;
+        }
+        int pending = pendingConnections();
+        if (!paused) {
+            long calls = metrics.persistCalls();
+            long nanos = metrics.persistNanos();
+            long writes = calls - lastPersistCalls;
+            long averageNanos = writes == 0 ? 0 : (nanos - lastPersistNanos) / writes;
+            lastPersistCalls = calls;
+            lastPersistNanos = nanos;
+            if (averageNanos > pauseLatencyNanos || pending > maxPendingConnections) {
+                log.warn("Pausing Kafka ingestion: average write {} ms, {} threads waiting for a connection",
+                        Duration.ofNanos(averageNanos).toMillis(), pending);
+                setPaused(true);
+                pausedAt = System.nanoTime();
+                pauses.incrementAndGet();
+            }
+        } else if (System.nanoTime() - pausedAt >= minPauseNanos && pending == 0
+                && probeNanos() <= resumeLatencyNanos) {
+            log.info("Resuming Kafka ingestion after {} ms", Duration.ofNanos(System.nanoTime() - pausedAt).toMillis());
+            setPaused(false);
+            // Writes still in flight when the containers paused must not count against the next interval
+            lastPersistCalls = metrics.persistCalls();
+            lastPersistNanos = metrics.persistNanos();
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audit.ingest.paused", this, backpressure -> backpressure.paused ? 1 : 0)
+                .description("Whether Kafka ingestion is paused because the database cannot keep up")
+                .register(registry);
+        FunctionCounter.builder("audit.ingest.pauses", pauses, AtomicLong::get)
+                .description("Times Kafka ingestion was paused")
+                .register(registry);
+    }
+
+    // Every @KafkaListener container: the main topic, the retry topics and the dead-letter topic.
+    // A container pauses before its next poll, once the batch in progress is done.
+    private void setPaused(boolean pause) {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            if (pause) {
+                container.pause();
+            } else {
+                container.resume();
+            }
+        }
+        paused = pause;
+    }
+
+    private int pendingConnections() {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+                // No pool before the first connection was requested
+                return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+            }
+        } catch (SQLException e) {
+            log.debug("Connection pool not inspectable", e);
+        }
+        return 0;
+    }
+
+    // Time to borrow a connection and run a trivial query; a failure counts as too slow
+    private long probeNanos() {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.queryForObject("select 1", Integer.class);
+            return System.nanoTime() - start;
+        } catch (DataAccessException e) {
+            log.debug("Database probe failed", e);
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.calvin.auditservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter over recently ingested eventIds. A negative answer is definite, so new events skip the
+// uniqueness lookup; a positive answer only means "maybe seen" and is confirmed against the database.
+// Two generations are kept: once the current one holds `capacity` ids it becomes the previous one and the
+// oldest generation is dropped, so the filter only remembers the most recent 1-2x capacity ids.
+@Component
+public class RecentEventIdFilter {
+
+    private final int capacity;
+    private final int numBits;
+    private final int numHashes;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    public RecentEventIdFilter(@Value("${audit.dedup.filter-capacity:1000000}") int capacity,
+                               @Value("${audit.dedup.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.capacity = capacity;
+        this.numBits = (int) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        this.current = new Generation(numBits);
+        this.previous = new Generation(numBits);
+    }
+
+    public boolean mightContain(String eventId) {
+        long hash = hash(eventId);
+        return current.mightContain(hash, numHashes) || previous.mightContain(hash, numHashes);
+    }
+
+    public void put(String eventId) {
+        long hash = hash(eventId);
+        Generation generation = current;
+        generation.put(hash, numHashes);
+        if (generation.count.incrementAndGet() >= capacity) {
+            rotate(generation);
+        }
+    }
+
+    private synchronized void rotate(Generation full) {
+        if (current == full) {
+            previous = full;
+            current = new Generation(numBits);
+        }
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes followed by the SplitMix64 finalizer
+    private static long hash(String eventId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : eventId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    private static final class Generation {
+        private final AtomicLongArray bits;
+        private final int numBits;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Generation(int numBits) {
+            this.numBits = numBits;
+            this.bits = new AtomicLongArray((numBits + 63) >>> 6);
+        }
+
+        private boolean mightContain(long hash, int numHashes) {
+            // Kirsch-Mitzenmacher: derive the k probe positions from the two 32-bit halves of one hash
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < numHashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, numBits);
+                if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void put(long hash, int numHashes) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < numHashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, numBits);
+                long mask = 1L << bit;
+                int index = bit >>> 6;
+                long word;
+                do {
+                    word = bits.get(index);
+                } while ((word & mask) == 0 && !bits.compareAndSet(index, word, word | mask));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.CacheStatistics;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.model.UserAcl;
+import com.calvin.auditservice.model.UserAclAllowedEntities;
+import com.calvin.auditservice.repository.UserAclRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Bounded cache of resolved ACLs keyed by userId; entries expire after a TTL and are evicted by size
+@Slf4j
+@Component
+public class UserAclCache implements MeterBinder {
+
+    private final UserAclRepository userAclRepository;
+    private final Cache<String, UserAccess> cache;
+
+    public UserAclCache(UserAclRepository userAclRepository,
+                        @Value("${audit.acl-cache.maximum-size:10000}") long maximumSize,
+                        @Value("${audit.acl-cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.userAclRepository = userAclRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    // Returns the resolved ACL, or null when the user has no ACL (misses are not cached)
+    public UserAccess get(String userId) {
+        return cache.get(userId, this::load);
+    }
+
+    public void invalidate(String userId) {
+        log.info("Invalidating cached ACL of user ( {} )", userId);
+        cache.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        log.info("Invalidating all cached ACLs");
+        cache.invalidateAll();
+    }
+
+    public CacheStatistics statistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+
+    // Hit/miss/eviction meters of the cache, bound by Spring Boot like any MeterBinder bean
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "user-acl");
+    }
+
+    private UserAccess load(String userId) {
+        UserAcl userAcl = userAclRepository.findByUserId(userId);
+        if (userAcl == null) {
+            return null;
+        }
+        if (userAcl.isAdmin()) {
+            return new UserAccess(userId, true, Set.of());
+        }
+        Set<String> accessibleEntities = userAcl.getAllowedEntities().stream()
+                .map(UserAclAllowedEntities::getAllowedEntity)
+                .collect(Collectors.toUnmodifiableSet());
+        return new UserAccess(userId, false, accessibleEntities);
+    }
+}
@@ -0,0 +1,115 @@
+package com.calvin.auditservice.config;
+
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1, topics = "audit-events")
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "kafka.topic.partitions=1",
+        "kafka.consumer.concurrency=1",
+        "kafka.consumer.retry.delay-ms=10",
+        "kafka.consumer.retry.max-delay-ms=50"
+})
+class BaseConfigurationTest {
+    // More failures than the bounded in-place retries used to allow before the event was moved to the failed topic
+    private static final int FAILURES = 8;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        FailingInsert.remaining.set(FAILURES);
+        jdbcTemplate.execute("create trigger fail_first_event before insert on audit_log for each row call \""
+                + FailingInsert.class.getName() + "\"");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop trigger if exists fail_first_event");
+    }
+
+    @Test
+    void shouldRetryAFailingEventInPlaceSoLaterEventsOfItsEntityCannotOvertakeIt() throws Exception {
+        produce(List.of(
+                message("order-1-created", "order-1"),
+                message("order-2-created", "order-2"),
+                message("order-1-shipped", "order-1")));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (storedEventIds().size() < 3) {
+            assertTrue(System.nanoTime() < deadline, "Audit events were not stored in time: " + storedEventIds());
+            Thread.sleep(50);
+        }
+
+        assertEquals(0, FailingInsert.remaining.get());
+        // The partition chain records the order in which events were stored
+        assertEquals(List.of("order-1-created", "order-2-created", "order-1-shipped"), storedEventIds());
+    }
+
+    private List<String> storedEventIds() {
+        return jdbcTemplate.queryForList("select event_id from audit_log where chain_id = 'kafka-0' order by chain_seq",
+                String.class);
+    }
+
+    private void produce(List<String[]> messages) {
+        DefaultKafkaProducerFactory<String, byte[]> producerFactory = new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(embeddedKafka), new StringSerializer(), new ByteArraySerializer());
+        KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(producerFactory);
+        for (String[] message : messages) {
+            template.send("audit-events", message[0], message[1].getBytes(StandardCharsets.UTF_8));
+        }
+        template.flush();
+        producerFactory.destroy();
+    }
+
+    private static String[] message(String eventId, String entityId) {
+        return new String[]{entityId, """
+                {"eventId":"%s","eventType":"UPDATE","serviceName":"order-service",\
+                "timestamp":"2025-02-17T12:00:00Z","userId":"user1","entityId":"%s","entityType":"ORDER",\
+                "newValue":{"status":"NEW"},"action":"UPDATE"}""".formatted(eventId, entityId)};
+    }
+
+    // Fails the insert of the first event like a database that times out, until FAILURES attempts were made
+    public static class FailingInsert implements Trigger {
+        static final AtomicInteger remaining = new AtomicInteger();
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLTimeoutException {
+            if (Arrays.asList(newRow).contains("order-1-created") && remaining.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                throw new SQLTimeoutException("statement timed out");
+            }
+        }
+    }
+}
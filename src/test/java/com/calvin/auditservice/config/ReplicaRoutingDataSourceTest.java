@@ -0,0 +1,97 @@
+package com.calvin.auditservice.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DriverManagerDataSource primary = h2("primary");
+    private final DriverManagerDataSource replica = h2("replica");
+    private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica,
+            "select seconds from replication_lag", Duration.ofSeconds(5));
+    private final LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+    @BeforeEach
+    void setUp() {
+        routing.afterPropertiesSet();
+        for (DriverManagerDataSource node : new DriverManagerDataSource[] {primary, replica}) {
+            JdbcTemplate template = new JdbcTemplate(node);
+            template.execute("drop table if exists node");
+            template.execute("create table node (name varchar(16))");
+            template.update("insert into node values (?)", node == primary ? "primary" : "replica");
+        }
+        new JdbcTemplate(replica).execute("create table if not exists replication_lag (seconds double)");
+        setLag(0);
+    }
+
+    @Test
+    void shouldServeOnlyReadOnlyReplicaReadsFromTheReplica() {
+        // Not checked yet
+        assertEquals("primary", node(true, true));
+
+        routing.checkReplica();
+        assertEquals("replica", node(true, true));
+        assertEquals("primary", node(false, true));
+        assertEquals("primary", node(true, false));
+        assertEquals("primary", jdbcTemplate.queryForObject("select name from node", String.class));
+    }
+
+    @Test
+    void shouldFallBackToThePrimaryWhileTheReplicaLags() {
+        setLag(30);
+        routing.checkReplica();
+        assertFalse(routing.isReplicaAvailable());
+        assertEquals("primary", node(true, true));
+
+        setLag(1);
+        routing.checkReplica();
+        assertEquals("replica", node(true, true));
+    }
+
+    @Test
+    void shouldFallBackToThePrimaryWhenTheReplicaIsDown() {
+        routing.checkReplica();
+        replica.setUrl("jdbc:h2:tcp://localhost:1/unreachable");
+
+        assertEquals("primary", node(true, true));
+        assertFalse(routing.isReplicaAvailable());
+
+        routing.checkReplica();
+        assertFalse(routing.isReplicaAvailable());
+    }
+
+    private String node(boolean replicaRead, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        boolean previous = replicaRead && ReplicaRoutingDataSource.enterReplicaRead();
+        try {
+            return transactionTemplate.execute(status ->
+                    jdbcTemplate.queryForObject("select name from node", String.class));
+        } finally {
+            if (replicaRead) {
+                ReplicaRoutingDataSource.exitReplicaRead(previous);
+            }
+        }
+    }
+
+    private void setLag(double seconds) {
+        JdbcTemplate template = new JdbcTemplate(replica);
+        template.update("delete from replication_lag");
+        template.update("insert into replication_lag values (?)", seconds);
+    }
+
+    private static DriverManagerDataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
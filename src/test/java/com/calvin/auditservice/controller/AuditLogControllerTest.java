@@ -1,8 +1,15 @@
 package com.calvin.auditservice.controller;
 
+import com.calvin.auditservice.exception.NotFoundException;
+import com.calvin.auditservice.exception.ServiceUnavailableException;
 import com.calvin.auditservice.exception.UnauthorizedException;
 import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditLogPage;
+import com.calvin.auditservice.model.BulkIngestResult;
+import com.calvin.auditservice.model.UserAccess;
 import com.calvin.auditservice.service.AuditLogService;
+import com.calvin.auditservice.service.AuditLogWriteBehind;
+import com.calvin.auditservice.service.DatabaseConcurrencyLimiter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -13,15 +20,34 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.kafka.test.context.EmbeddedKafka;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import java.time.Instant;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -31,58 +57,221 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ExtendWith(MockitoExtension.class)
 @AutoConfigureMockMvc
 class AuditLogControllerTest {
+    private static final String CREATE_REQUEST = """
+            {
+                "eventId": "event123",
+                "eventType": "CREATE",
+                "serviceName": "service1",
+                "timestamp": "2025-02-18T10:00:00Z",
+                "userId": "user1",
+                "entityId": "entity1",
+                "entityType": "entity1",
+                "oldValue": "{}",
+                "newValue": "{}",
+                "action": "create"
+            }
+            """;
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private AuditLogService auditLogService;
 
+    @MockBean
+    private AuditLogWriteBehind writeBehind;
+
     @Autowired
     private AuditLogController auditLogController;
 
+    @Autowired
+    private DatabaseConcurrencyLimiter dbLimiter;
+
     @Test
     void shouldGetAuditLogsByUserId() throws Exception {
         List<AuditLog> logs = List.of(AuditLog.builder().id(1L).eventId("event123").build());
-        when(auditLogService.getAuditLogsByUser("user1")).thenReturn(logs);
+        when(auditLogService.getAuditLogsByUser(eq("user1"), any(), eq(null), eq(null))).thenReturn(new AuditLogPage(logs, null));
 
         mockMvc.perform(get("/v1/logs/user1"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.size()").value(1))
-                .andExpect(jsonPath("$[0].eventId").value("event123"));
+                .andExpect(jsonPath("$[0].eventId").value("event123"))
+                .andExpect(header().doesNotExist(AuditLogController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void shouldReturnNextCursorHeaderWhenMorePagesExist() throws Exception {
+        List<AuditLog> logs = List.of(AuditLog.builder().id(2L).eventId("event2").build());
+        when(auditLogService.getAuditLogsByUser(eq("user1"), any(), eq("cursor1"), eq(1))).thenReturn(new AuditLogPage(logs, "cursor2"));
+
+        mockMvc.perform(get("/v1/logs/user1").param("cursor", "cursor1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].eventId").value("event2"))
+                .andExpect(header().string(AuditLogController.NEXT_CURSOR_HEADER, "cursor2"));
     }
 
     @Test
     void shouldReturnUnauthorizedWhenFetchingLogsWithoutAuth() throws Exception {
-        doThrow(new UnauthorizedException("Authentication is required")).when(auditLogService).getAuditLogsByUser(anyString());
+        doThrow(new UnauthorizedException("Authentication is required")).when(auditLogService)
+                .getAuditLogsByUser(anyString(), any(), any(), any());
 
         mockMvc.perform(get("/v1/logs/user1"))
                 .andExpect(status().isUnauthorized())
                 .andExpect(jsonPath("$.message").value("Authentication is required"));
     }
 
+    @Test
+    void shouldBindQueryFiltersButNotThePathUserId() throws Exception {
+        when(auditLogService.getAuditLogsByUser(eq("admin-user-id"), any(), any(), any()))
+                .thenReturn(new AuditLogPage(List.of(), null));
+
+        mockMvc.perform(get("/v1/logs/admin-user-id")
+                        .param("serviceName", "UserService")
+                        .param("entityId", "johndoe123")
+                        .param("actor", "admin123")
+                        .param("from", "2025-02-17T12:00:00Z"))
+                .andExpect(status().isOk());
+
+        verify(auditLogService).getAuditLogsByUser(eq("admin-user-id"), argThat(filter ->
+                "UserService".equals(filter.getServiceName())
+                        && "johndoe123".equals(filter.getEntityId())
+                        && "admin123".equals(filter.getActor())
+                        && Instant.parse("2025-02-17T12:00:00Z").equals(filter.getFrom())
+                        && filter.getTo() == null), eq(null), eq(null));
+    }
+
+    @Test
+    void shouldRejectEmptyTimeRange() throws Exception {
+        mockMvc.perform(get("/v1/logs/admin-user-id")
+                        .param("from", "2025-02-18T00:00:00Z")
+                        .param("to", "2025-02-17T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamExportAsNdjson() throws Exception {
+        UserAccess access = new UserAccess("user1", true, Set.of());
+        when(auditLogService.resolveUserAccess("user1")).thenReturn(access);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("{\"eventId\":\"event1\"}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(auditLogService).exportAuditLogs(eq(access), any(), any(), any());
+
+        MvcResult result = mockMvc.perform(get("/v1/logs/user1/export")
+                        .param("from", "2025-02-01T00:00:00Z")
+                        .param("to", "2025-03-01T00:00:00Z"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(content().string("{\"eventId\":\"event1\"}\n"));
+    }
+
+    @Test
+    void shouldReleaseExportPermitWhenTheAsyncRequestEndsBeforeTheBodyFinishes() throws Exception {
+        UserAccess access = new UserAccess("user1", true, Set.of());
+        when(auditLogService.resolveUserAccess("user1")).thenReturn(access);
+        CountDownLatch stalled = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            stalled.await();
+            return 0L;
+        }).when(auditLogService).exportAuditLogs(eq(access), any(), any(), any());
+
+        MvcResult result = mockMvc.perform(get("/v1/logs/user1/export")
+                        .param("from", "2025-02-01T00:00:00Z")
+                        .param("to", "2025-03-01T00:00:00Z"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        try {
+            // Timed out or the client went away: the container completes the request while the body still runs
+            result.getRequest().getAsyncContext().complete();
+            // The only export permit is free again
+            dbLimiter.acquireExport().close();
+        } finally {
+            stalled.countDown();
+        }
+    }
+
+    @Test
+    void shouldReturnNotFoundBeforeStreamingExportForUnknownUser() throws Exception {
+        when(auditLogService.resolveUserAccess("unknown")).thenThrow(new NotFoundException("UserAcl not found"));
+
+        mockMvc.perform(get("/v1/logs/unknown/export")
+                        .param("from", "2025-02-01T00:00:00Z")
+                        .param("to", "2025-03-01T00:00:00Z"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("UserAcl not found"));
+    }
+
     @Test
     void shouldCreateAuditLogSuccessfully() throws Exception {
         AuditLog auditLog = AuditLog.builder().id(1L).eventId("event123").build();
-        when(auditLogService.saveAuditLog(anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString())).thenReturn(auditLog);
+        when(auditLogService.saveAuditLog(anyString(), anyString(), anyString(), any(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString())).thenReturn(auditLog);
 
         mockMvc.perform(post("/v1/logs")
                         .contentType("application/json")
-                        .content("""
-                            {
-                                "eventId": "event123",
-                                "eventType": "CREATE",
-                                "serviceName": "service1",
-                                "userId": "user1",
-                                "entity": "entity1",
-                                "oldValue": "{}",
-                                "newValue": "{}",
-                                "action": "create"
-                            }
-                        """))
+                        .content(CREATE_REQUEST))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.message").value("Audit log created successfully"));
     }
 
+    @Test
+    void shouldAcceptAuditLogIntoWriteBehindQueue() throws Exception {
+        AuditLog auditLog = AuditLog.builder().eventId("event123").build();
+        when(writeBehind.isEnabled()).thenReturn(true);
+        when(auditLogService.buildAuditLog(eq("event123"), anyString(), anyString(), any(), anyString(), anyString(), anyString(), anyString(), anyString(), anyString())).thenReturn(auditLog);
+
+        mockMvc.perform(post("/v1/logs")
+                        .contentType("application/json")
+                        .content(CREATE_REQUEST))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.message").value("Audit log accepted"));
+
+        verify(writeBehind).enqueue(auditLog);
+        verify(auditLogService, never()).saveAuditLog(any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldReturnServiceUnavailableWhenWriteBehindQueueIsFull() throws Exception {
+        when(writeBehind.isEnabled()).thenReturn(true);
+        doThrow(new ServiceUnavailableException("Audit log queue is full, retry later.")).when(writeBehind).enqueue(any());
+
+        mockMvc.perform(post("/v1/logs")
+                        .contentType("application/json")
+                        .content(CREATE_REQUEST))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.message").value("Audit log queue is full, retry later."));
+    }
+
+    @Test
+    void shouldStreamBulkBodyToServiceAndReturnResult() throws Exception {
+        BulkIngestResult result = new BulkIngestResult();
+        result.setReceived(2);
+        result.setInserted(1);
+        result.reject(1, "event2", "entityId is required");
+        StringBuilder received = new StringBuilder();
+        when(auditLogService.ingestBulk(any())).thenAnswer(invocation -> {
+            received.append(new String(invocation.<InputStream>getArgument(0).readAllBytes(), StandardCharsets.UTF_8));
+            return result;
+        });
+
+        mockMvc.perform(post("/v1/logs/bulk")
+                        .contentType("application/x-ndjson")
+                        .content(CREATE_REQUEST.replace("\n", "") + "\n{\"eventId\": \"event2\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].eventId").value("event2"));
+
+        assertTrue(received.toString().contains("{\"eventId\": \"event2\"}"));
+    }
+
     @Test
     void shouldReturnBadRequestWhenCreatingInvalidAuditLog() throws Exception {
         mockMvc.perform(post("/v1/logs")
@@ -95,4 +284,15 @@ class AuditLogControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message").value("Invalid input data."));
     }
+
+    @Test
+    void shouldCreateAuditLogWithoutTimestamp() throws Exception {
+        // The service stamps it with the time it was received
+        mockMvc.perform(post("/v1/logs")
+                        .contentType("application/json")
+                        .content(CREATE_REQUEST.replace("\"timestamp\": \"2025-02-18T10:00:00Z\",", "")))
+                .andExpect(status().isCreated());
+        verify(auditLogService).saveAuditLog(eq("event123"), anyString(), anyString(), isNull(), anyString(),
+                anyString(), anyString(), anyString(), anyString(), anyString());
+    }
 }
@@ -0,0 +1,233 @@
+package com.calvin.auditservice.load;
+
+import com.calvin.auditservice.repository.AuditLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Soak test of Kafka ingestion against the real service and H2, with concurrent reads.
+// Excluded from the default build; run with: mvn -P load-tests test [-Dload.events=200000 -Dload.min-throughput=2000]
+@Slf4j
+@Tag("load")
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@EmbeddedKafka(partitions = AuditIngestionLoadTest.PARTITIONS, topics = "audit-events")
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.calvin=WARN",
+        "kafka.topic.partitions=" + AuditIngestionLoadTest.PARTITIONS,
+        "spring.kafka.consumer.properties.interceptor.classes=com.calvin.auditservice.load.CommitLatencyInterceptor"
+})
+class AuditIngestionLoadTest {
+    static final int PARTITIONS = 3;
+    private static final String TOPIC = "audit-events";
+    private static final String GROUP = "audit-service";
+
+    @Value("${load.events:20000}")
+    private int events;
+
+    // Sustained events/s below this fails the test
+    @Value("${load.min-throughput:500}")
+    private double minThroughput;
+
+    @Value("${load.payload-size:512}")
+    private int payloadSize;
+
+    @Value("${load.readers:2}")
+    private int readers;
+
+    @Value("${load.timeout:300}")
+    private long timeoutSeconds;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private KafkaAdmin kafkaAdmin;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldSustainBaselineThroughputWithConcurrentReads() throws Exception {
+        CommitLatencyInterceptor.reset();
+        jdbcTemplate.update("insert into user_acl (id, user_id, is_admin) values (1, 'admin-user-id', true)");
+
+        AtomicBoolean loading = new AtomicBoolean(true);
+        List<Long> readLatencies = Collections.synchronizedList(new ArrayList<>());
+        List<Long> lagSamples = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService background = Executors.newFixedThreadPool(readers + 1);
+        for (int i = 0; i < readers; i++) {
+            background.submit(() -> readWhile(loading, readLatencies));
+        }
+
+        try (AdminClient admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            background.submit(() -> sampleLagWhile(loading, admin, lagSamples));
+
+            long start = System.nanoTime();
+            produce();
+            long produced = System.nanoTime();
+            awaitCommitted(start);
+            long end = System.nanoTime();
+            loading.set(false);
+
+            double seconds = (end - start) / 1e9;
+            double throughput = events / seconds;
+            log.warn("Load: {} events in {} s: {} events/s (produce phase {} s)",
+                    events, format(seconds), format(throughput), format((produced - start) / 1e9));
+            log.warn("Produce-to-commit latency ms: {}", percentiles(CommitLatencyInterceptor.latenciesNanos()));
+            log.warn("GET /v1/logs latency ms during load ({} requests): {}", readLatencies.size(), percentiles(readLatencies));
+            log.warn("Consumer lag samples every 500 ms: {}", lagSamples);
+
+            assertEquals(events, auditLogRepository.count());
+            assertTrue(throughput >= minThroughput,
+                    "Throughput " + format(throughput) + " events/s is below the baseline of " + minThroughput);
+        } finally {
+            loading.set(false);
+            background.shutdown();
+            background.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void produce() {
+        Map<String, Object> props = KafkaTestUtils.producerProps(embeddedKafka);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024);
+        DefaultKafkaProducerFactory<String, byte[]> producerFactory =
+                new DefaultKafkaProducerFactory<>(props, new StringSerializer(), new ByteArraySerializer());
+        KafkaTemplate<String, byte[]> template = new KafkaTemplate<>(producerFactory);
+        String payload = "x".repeat(payloadSize);
+        for (int i = 0; i < events; i++) {
+            String entityId = "entity-" + (i % 1000);
+            long sentAt = System.nanoTime();
+            template.send(TOPIC, entityId, message(i, entityId, payload)).thenAccept(result ->
+                    CommitLatencyInterceptor.sent(result.getRecordMetadata().partition(),
+                            result.getRecordMetadata().offset(), sentAt));
+        }
+        template.flush();
+        producerFactory.destroy();
+    }
+
+    private void awaitCommitted(long start) throws InterruptedException {
+        long deadline = start + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (CommitLatencyInterceptor.latenciesNanos().size() < events) {
+            if (System.nanoTime() > deadline) {
+                fail("Only " + CommitLatencyInterceptor.latenciesNanos().size() + " of " + events +
+                        " events committed within " + timeoutSeconds + " s");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private void readWhile(AtomicBoolean loading, List<Long> latencies) {
+        while (loading.get()) {
+            long start = System.nanoTime();
+            try {
+                mockMvc.perform(get("/v1/logs/admin-user-id").param("limit", "100"))
+                        .andExpect(status().isOk());
+            } catch (Exception e) {
+                log.error("GET during load failed", e);
+                return;
+            }
+            latencies.add(System.nanoTime() - start);
+        }
+    }
+
+    private void sampleLagWhile(AtomicBoolean loading, AdminClient admin, List<Long> samples) {
+        while (loading.get()) {
+            try {
+                Map<TopicPartition, OffsetAndMetadata> committed =
+                        admin.listConsumerGroupOffsets(GROUP).partitionsToOffsetAndMetadata().get();
+                Map<TopicPartition, OffsetSpec> latest = committed.keySet().isEmpty()
+                        ? Map.of(new TopicPartition(TOPIC, 0), OffsetSpec.latest())
+                        : committed.keySet().stream().collect(Collectors.toMap(Function.identity(), p -> OffsetSpec.latest()));
+                long lag = 0;
+                for (var entry : admin.listOffsets(latest).all().get().entrySet()) {
+                    OffsetAndMetadata offset = committed.get(entry.getKey());
+                    lag += entry.getValue().offset() - (offset == null ? 0 : offset.offset());
+                }
+                samples.add(lag);
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Lag sampling failed", e);
+                return;
+            }
+        }
+    }
+
+    private byte[] message(int i, String entityId, String payload) {
+        return ("{\"eventId\": \"load-" + i + "\", \"eventType\": \"update\", \"serviceName\": \"load-test\", " +
+                "\"timestamp\": \"" + Instant.now() + "\", \"userId\": \"user-" + (i % 50) + "\", " +
+                "\"entityId\": \"" + entityId + "\", \"entityType\": \"User\", " +
+                "\"oldValue\": {\"name\": \"old\", \"data\": \"" + payload + "\"}, " +
+                "\"newValue\": {\"name\": \"new-" + i + "\", \"data\": \"" + payload + "\"}, " +
+                "\"action\": \"update\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String percentiles(List<Long> nanos) {
+        if (nanos.isEmpty()) {
+            return "no samples";
+        }
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        return "p50=" + format(percentile(sorted, 0.50)) + " p99=" + format(percentile(sorted, 0.99)) +
+                " p999=" + format(percentile(sorted, 0.999)) + " max=" + format(sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static String format(double value) {
+        return String.format("%.1f", value);
+    }
+}
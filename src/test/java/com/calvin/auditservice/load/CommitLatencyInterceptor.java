@@ -0,0 +1,63 @@
+package com.calvin.auditservice.load;
+
+import org.apache.kafka.clients.consumer.ConsumerInterceptor;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Consumer interceptor measuring produce-to-commit latency. The listener commits offsets only after the
+// database transaction, so an offset commit marks every earlier record of that partition as stored.
+// Kafka instantiates interceptors itself, hence the static state.
+public class CommitLatencyInterceptor implements ConsumerInterceptor<Object, Object> {
+
+    private static final Map<Integer, ConcurrentNavigableMap<Long, Long>> SENT_AT_NANOS = new ConcurrentHashMap<>();
+    private static final List<Long> LATENCIES_NANOS = new CopyOnWriteArrayList<>();
+
+    static void reset() {
+        SENT_AT_NANOS.clear();
+        LATENCIES_NANOS.clear();
+    }
+
+    static void sent(int partition, long offset, long sentAtNanos) {
+        SENT_AT_NANOS.computeIfAbsent(partition, p -> new ConcurrentSkipListMap<>()).put(offset, sentAtNanos);
+    }
+
+    static List<Long> latenciesNanos() {
+        return LATENCIES_NANOS;
+    }
+
+    @Override
+    public void onCommit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        long now = System.nanoTime();
+        offsets.forEach((partition, committed) -> {
+            ConcurrentNavigableMap<Long, Long> pending = SENT_AT_NANOS.get(partition.partition());
+            if (pending == null) {
+                return;
+            }
+            // The committed offset is the next one to consume
+            ConcurrentNavigableMap<Long, Long> done = pending.headMap(committed.offset());
+            done.values().forEach(sentAt -> LATENCIES_NANOS.add(now - sentAt));
+            done.clear();
+        });
+    }
+
+    @Override
+    public ConsumerRecords<Object, Object> onConsume(ConsumerRecords<Object, Object> records) {
+        return records;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditArchiveStoreTest {
+    private static final Instant BASE = Instant.parse("2024-11-01T00:00:00.123456Z");
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldReadBackRowsAcrossRowGroupsInBothDirections() throws Exception {
+        AuditArchiveStore store = open();
+        List<AuditLog> rows = new ArrayList<>();
+        for (int i = 0; i < AuditArchiveSegment.ROWS_PER_GROUP * 2 + 10; i++) {
+            rows.add(auditLog(i + 1, i, i % 3 == 0 ? "Order" : "UserProfile",
+                    i % 5 == 0 ? null : "{\"name\":\"Z\u00fcrich " + i + "\"}"));
+        }
+        assertEquals(rows.size(), store.write(rows.iterator()));
+
+        List<AuditLog> oldestFirst = toList(store.scan(null, null, null, row -> true, false));
+        assertEquals(rows, oldestFirst);
+        List<AuditLog> newestFirst = toList(store.scan(null, null, null, row -> true, true));
+        Collections.reverse(newestFirst);
+        assertEquals(rows, newestFirst);
+        assertEquals(BASE.plusSeconds(rows.size() - 1), store.getMaxTimestamp());
+
+        // Bounds are [from, to), entity types skip segments, the predicate sees the metadata columns
+        List<AuditLog> orders = toList(store.scan(BASE.plusSeconds(3), BASE.plusSeconds(12), Set.of("Order"),
+                row -> "Order".equals(row.getEntityType()), false));
+        assertEquals(List.of(4L, 7L, 10L), orders.stream().map(AuditLog::getId).toList());
+        assertEquals("{\"name\":\"Z\u00fcrich 3\"}", orders.get(0).getOldValue());
+        assertNull(oldestFirst.get(0).getOldValue());
+        assertFalse(store.scan(null, null, Set.of("Invoice"), row -> true, false).hasNext());
+        assertFalse(store.scan(BASE.plusSeconds(rows.size()), null, null, row -> true, false).hasNext());
+    }
+
+    @Test
+    void shouldMergeOverlappingSegmentsOnceAndReloadThemFromDisk() throws Exception {
+        AuditArchiveStore store = open();
+        store.write(List.of(auditLog(1, 0, "Order", "{}"), auditLog(3, 20, "Order", "{}")).iterator());
+        store.write(List.of(auditLog(2, 10, "Order", "{}"), auditLog(4, 30, "Order", "{}")).iterator());
+        // The same rows archived twice after a crash between writing and deleting them
+        store.write(List.of(auditLog(3, 20, "Order", "{}"), auditLog(4, 30, "Order", "{}")).iterator());
+        Files.writeString(directory.resolve("audit-interrupted.tmp"), "partial");
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(store.scan(null, null, null, row -> true, false)));
+        assertEquals(List.of(4L, 3L, 2L, 1L), ids(open().scan(null, null, null, row -> true, true)));
+    }
+
+    @Test
+    void shouldKeepTheColumnsChainVerificationRehashes() throws Exception {
+        AuditArchiveStore store = open();
+        AuditLog plain = auditLog(1, 0, "Order", "{}");
+        plain.setPlainOldValue(plain.getOldValue());
+        plain.setPlainNewValue(plain.getNewValue());
+        AuditLog encoded = auditLog(2, 10, "Order", "{}");
+        encoded.setEncodedNewValue(new byte[]{0, 1, 2});
+        encoded.setChainId("kafka-3");
+        encoded.setChainSeq(0L);
+        encoded.setPrevHash(new byte[AuditLogHasher.HASH_LENGTH]);
+        encoded.setHash(new byte[]{7, 8, 9});
+        store.write(List.of(plain, encoded).iterator());
+
+        List<AuditLog> rows = toList(store.scan(null, null, null, row -> true, false));
+        assertNull(rows.get(0).getChainId());
+        assertNull(rows.get(0).getChainSeq());
+        assertNull(rows.get(0).getHash());
+        assertEquals(plain.getNewValue(), rows.get(0).getPlainNewValue());
+        assertEquals("kafka-3", rows.get(1).getChainId());
+        assertEquals(0L, rows.get(1).getChainSeq());
+        assertArrayEquals(new byte[AuditLogHasher.HASH_LENGTH], rows.get(1).getPrevHash());
+        assertArrayEquals(new byte[]{7, 8, 9}, rows.get(1).getHash());
+        assertArrayEquals(new byte[]{0, 1, 2}, rows.get(1).getEncodedNewValue());
+        assertNull(rows.get(1).getEncodedOldValue());
+        assertNull(rows.get(1).getPlainNewValue());
+    }
+
+    private AuditArchiveStore open() throws Exception {
+        AuditArchiveStore store = new AuditArchiveStore(true, directory, 6);
+        store.open();
+        return store;
+    }
+
+    private static List<Long> ids(Iterator<AuditLog> rows) {
+        return toList(rows).stream().map(AuditLog::getId).toList();
+    }
+
+    private static List<AuditLog> toList(Iterator<AuditLog> rows) {
+        List<AuditLog> list = new ArrayList<>();
+        rows.forEachRemaining(list::add);
+        return list;
+    }
+
+    private static AuditLog auditLog(long id, long secondsAfterBase, String entityType, String oldValue) {
+        return AuditLog.builder()
+                .id(id)
+                .eventId("event" + id)
+                .eventType("update")
+                .serviceName("order-service")
+                .timestamp(BASE.plusSeconds(secondsAfterBase))
+                .userId("user1")
+                .entityId("entity" + id)
+                .entityType(entityType)
+                .oldValue(oldValue)
+                .newValue("{\"name\":\"Z\u00fcrich " + secondsAfterBase + "\"}")
+                .action("update")
+                .build();
+    }
+}
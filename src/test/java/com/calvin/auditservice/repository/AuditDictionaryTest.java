@@ -0,0 +1,68 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditDictionaryTest {
+
+    private final DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:dictionary;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final TransactionTemplate transactionTemplate =
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    private final AuditDictionary dictionary = new AuditDictionary(jdbcTemplate, Duration.ofHours(1));
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("drop table if exists audit_dictionary");
+        jdbcTemplate.execute("create table audit_dictionary (code integer generated by default as identity " +
+                "primary key, term varchar(255) not null unique)");
+    }
+
+    @Test
+    void shouldCacheCodesRegisteredInTheIngestingTransactionOnlyOnceItCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            dictionary.register(List.of(auditLog("UserService")));
+            assertNotEquals(AuditDictionary.UNKNOWN, dictionary.code("UserService"));
+            status.setRollbackOnly();
+        });
+        assertEquals(AuditDictionary.UNKNOWN, dictionary.code("UserService"));
+
+        Integer code = transactionTemplate.execute(status -> {
+            dictionary.register(List.of(auditLog("UserService")));
+            return dictionary.code("UserService");
+        });
+        assertEquals(code, jdbcTemplate.queryForObject(
+                "select code from audit_dictionary where term = 'UserService'", Integer.class));
+        assertEquals(code, dictionary.code("UserService"));
+        assertEquals("UserService", dictionary.term(code));
+    }
+
+    @Test
+    void shouldReadTheTableAtMostOncePerIntervalForUnknownValues() {
+        assertEquals(AuditDictionary.UNKNOWN, dictionary.code("OrderService"));
+
+        // Added by another instance: unknown until the next reload
+        jdbcTemplate.update("insert into audit_dictionary (term) values ('OrderService')");
+        assertEquals(AuditDictionary.UNKNOWN, dictionary.code("OrderService"));
+
+        // A stored code is always resolved, and reloads the other values with it
+        Integer code = jdbcTemplate.queryForObject("select code from audit_dictionary", Integer.class);
+        assertEquals("OrderService", dictionary.term(code));
+        assertEquals(code, dictionary.code("OrderService"));
+    }
+
+    private static AuditLog auditLog(String serviceName) {
+        return AuditLog.builder().eventId("event1").serviceName(serviceName).build();
+    }
+}
@@ -0,0 +1,178 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditLogFilter;
+import com.calvin.auditservice.model.UserAccess;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@Import({AuditPayloadCodec.class, AuditDictionary.class})
+class AuditLogRepositoryTest {
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldInsertBatchAndIgnoreExistingEventIds() {
+        auditLogRepository.save(auditLog("event1", Instant.parse("2025-02-17T12:00:00Z")));
+
+        List<AuditLog> inserted = auditLogRepository.insertIgnoringDuplicates(List.of(
+                auditLog("event1", Instant.parse("2025-02-17T12:00:00Z")),
+                auditLog("event2", Instant.parse("2025-02-17T12:01:00Z")),
+                auditLog("event3", Instant.parse("2025-02-17T12:02:00Z"))
+        ));
+
+        assertEquals(List.of("event2", "event3"), inserted.stream().map(AuditLog::getEventId).toList());
+        assertEquals(3, auditLogRepository.count());
+        assertEquals(Set.of("event1", "event3"), auditLogRepository.findExistingEventIds(List.of("event1", "event3", "event4")));
+        assertEquals("{\"name\":\"event2\"}", auditLogRepository.findByEventId("event2").getNewValue());
+    }
+
+    @Test
+    void shouldIgnoreExistingEventIdsWhateverTheirTimestamp() {
+        // Retried by a producer that sends no timestamp: stamped with a new receive time on every attempt
+        auditLogRepository.insertIgnoringDuplicates(List.of(auditLog("event1", Instant.parse("2025-02-17T12:00:00Z"))));
+
+        List<AuditLog> inserted = auditLogRepository.insertIgnoringDuplicates(List.of(
+                auditLog("event1", Instant.parse("2025-02-17T12:00:05Z"))));
+
+        assertEquals(List.of(), inserted);
+        assertEquals(1, auditLogRepository.count());
+        assertThrows(DataIntegrityViolationException.class, () ->
+                auditLogRepository.saveAndFlush(auditLog("event1", Instant.parse("2025-02-17T12:00:09Z"))));
+    }
+
+    @Test
+    void shouldAssignIdsThatDoNotCollideWithJpaInserts() {
+        AuditLog saved = auditLogRepository.save(auditLog("event1", Instant.now()));
+        auditLogRepository.insertIgnoringDuplicates(List.of(auditLog("event2", Instant.now())));
+        AuditLog savedAfter = auditLogRepository.save(auditLog("event3", Instant.now()));
+
+        Long batchId = auditLogRepository.findByEventId("event2").getId();
+        assertNotEquals(saved.getId(), batchId);
+        assertNotEquals(savedAfter.getId(), batchId);
+    }
+
+    @Test
+    void shouldComposeAclFiltersAndKeysetIntoOnePageQuery() {
+        Instant base = Instant.parse("2025-02-17T12:00:00Z");
+        auditLogRepository.insertIgnoringDuplicates(List.of(
+                auditLog("event1", base, "User", "user1"),
+                auditLog("event2", base.plusSeconds(60), "User", "user1"),
+                auditLog("event3", base.plusSeconds(60), "User", "user1"),
+                auditLog("event4", base.plusSeconds(120), "Order", "order1"),
+                auditLog("event5", base.plusSeconds(180), "User", "user2")
+        ));
+        UserAccess access = new UserAccess("non-admin-user-id", false, Set.of("User"));
+        AuditLogFilter filter = AuditLogFilter.builder().entityId("user1").from(base.plusSeconds(30)).build();
+
+        List<AuditLog> firstPage = auditLogRepository.findPage(Specification.allOf(
+                AuditLogSpecifications.visibleTo(access), AuditLogSpecifications.matching(filter)), Limit.of(1));
+        AuditLog last = firstPage.get(0);
+        List<AuditLog> secondPage = auditLogRepository.findPage(Specification.allOf(
+                AuditLogSpecifications.visibleTo(access), AuditLogSpecifications.matching(filter),
+                AuditLogSpecifications.before(last.getTimestamp(), last.getId())), Limit.of(10));
+
+        assertEquals(List.of("event3"), firstPage.stream().map(AuditLog::getEventId).toList());
+        assertEquals(List.of("event2"), secondPage.stream().map(AuditLog::getEventId).toList());
+        assertEquals(4, auditLogRepository.findPage(AuditLogSpecifications.visibleTo(access), Limit.of(10)).size());
+        assertEquals(5, auditLogRepository.findPage(
+                AuditLogSpecifications.visibleTo(new UserAccess("admin-user-id", true, Set.of())), Limit.of(10)).size());
+    }
+
+    @Test
+    void shouldStoreLowCardinalityColumnsAsDictionaryCodes() {
+        Instant base = Instant.parse("2025-02-17T12:00:00Z");
+        auditLogRepository.save(auditLog("event1", base, "Invoice", "invoice1"));
+        auditLogRepository.insertIgnoringDuplicates(List.of(auditLog("event2", base.plusSeconds(60))));
+        entityManager.flush();
+        entityManager.clear();
+
+        // eventType and action share the code of "update"
+        assertEquals(4, jdbcTemplate.queryForObject("select count(*) from audit_dictionary " +
+                "where term in ('UserService', 'User', 'Invoice', 'update')", Integer.class));
+        assertEquals(jdbcTemplate.queryForObject("select code from audit_dictionary where term = 'Invoice'", Integer.class),
+                jdbcTemplate.queryForObject("select entity_type_code from audit_log where event_id = 'event1'", Integer.class));
+
+        // Values that were never stored match nothing and are not added
+        UserAccess access = new UserAccess("non-admin-user-id", false, Set.of("Invoice", "Shipment"));
+        List<AuditLog> visible = auditLogRepository.findPage(AuditLogSpecifications.visibleTo(access), Limit.of(10));
+        assertEquals(List.of("event1"), visible.stream().map(AuditLog::getEventId).toList());
+        assertEquals("Invoice", visible.get(0).getEntityType());
+        assertEquals("UserService", visible.get(0).getServiceName());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from audit_dictionary where term = 'Shipment'",
+                Integer.class));
+    }
+
+    @Test
+    void shouldStoreOldValueAsDeltaAndStillReadPlainRows() {
+        String description = "x".repeat(2000);
+        AuditLog large = auditLog("event1", Instant.parse("2025-02-17T12:00:00Z"));
+        large.setOldValue("{\"name\":\"old\",\"description\":\"" + description + "\"}");
+        large.setNewValue("{\"name\":\"new\",\"description\":\"" + description + "\"}");
+        auditLogRepository.save(large);
+        auditLogRepository.insertIgnoringDuplicates(List.of(auditLog("event2", Instant.parse("2025-02-17T12:01:00Z"))));
+        jdbcTemplate.update("insert into audit_log (id, event_id, timestamp, old_value, new_value) values (-1, 'legacy', ?, ?, ?)",
+                Timestamp.from(Instant.parse("2025-02-17T12:02:00Z")), "{\"name\":\"a\"}", "{\"name\":\"b\"}");
+        entityManager.flush();
+        entityManager.clear();
+
+        AuditLog reloaded = auditLogRepository.findByEventId("event1");
+        assertEquals(large.getOldValue(), reloaded.getOldValue());
+        assertEquals(large.getNewValue(), reloaded.getNewValue());
+        assertNull(reloaded.getPlainOldValue());
+        // Only the changed field is stored for oldValue, and newValue is compressed well below its raw size
+        assertTrue(reloaded.getEncodedOldValue().length < 32);
+        assertTrue(reloaded.getEncodedNewValue().length < 200);
+        assertEquals("{\"name\":\"old\"}", auditLogRepository.findByEventId("event2").getOldValue());
+        assertEquals("{\"name\":\"a\"}", auditLogRepository.findByEventId("legacy").getOldValue());
+
+        assertEquals(List.of(-1L), auditLogRepository.findPlainPayloadsAfter(Long.MIN_VALUE, Limit.of(10)).stream()
+                .map(AuditLog::getId).toList());
+    }
+
+    private static AuditLog auditLog(String eventId, Instant timestamp) {
+        return auditLog(eventId, timestamp, "User", "user1");
+    }
+
+    private static AuditLog auditLog(String eventId, Instant timestamp, String entityType, String entityId) {
+        return AuditLog.builder()
+                .eventId(eventId)
+                .eventType("update")
+                .serviceName("UserService")
+                .timestamp(timestamp)
+                .userId("user1")
+                .entityId(entityId)
+                .entityType(entityType)
+                .oldValue("{\"name\":\"old\"}")
+                .newValue("{\"name\":\"" + eventId + "\"}")
+                .action("update")
+                .build();
+    }
+}
@@ -0,0 +1,170 @@
+package com.calvin.auditservice.repository;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditStatsBucket;
+import com.calvin.auditservice.model.AuditStatsQuery;
+import com.calvin.auditservice.model.StatsDimension;
+import com.calvin.auditservice.model.StatsGranularity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@Import({AuditPayloadCodec.class, AuditDictionary.class})
+class AuditStatsRollupRepositoryTest {
+    private static final Instant BASE = Instant.parse("2025-02-17T12:00:00Z");
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private AuditStatsRollupRepository statsRollupRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldCountInsertedLogsIntoEveryGranularityAndSkipDuplicates() {
+        auditLogRepository.insertIgnoringDuplicates(List.of(
+                auditLog("event1", BASE, "UserService", "User", "update"),
+                auditLog("event2", BASE.plusSeconds(30), "UserService", "User", "update"),
+                auditLog("event3", BASE.plusSeconds(90), "OrderService", "Order", "create")
+        ));
+        auditLogRepository.insertIgnoringDuplicates(List.of(
+                auditLog("event1", BASE, "UserService", "User", "update"),
+                auditLog("event4", BASE.plusSeconds(3600), "UserService", "User", null)
+        ));
+        // Single saves go through JPA and the entity listener
+        auditLogRepository.save(auditLog("event5", BASE.plusSeconds(5), "UserService", "User", "update"));
+        entityManager.flush();
+
+        assertEquals(List.of(
+                new AuditStatsBucket(BASE, "UserService", "User", "update", 3),
+                new AuditStatsBucket(BASE.plusSeconds(60), "OrderService", "Order", "create", 1),
+                new AuditStatsBucket(BASE.plusSeconds(3600), "UserService", "User", null, 1)
+        ), statsRollupRepository.findBuckets(query(StatsGranularity.MINUTE, StatsDimension.values()), null));
+
+        assertEquals(List.of(
+                new AuditStatsBucket(BASE, null, null, null, 4),
+                new AuditStatsBucket(BASE.plusSeconds(3600), null, null, null, 1)
+        ), statsRollupRepository.findBuckets(query(StatsGranularity.HOUR), null));
+
+        assertEquals(List.of(new AuditStatsBucket(Instant.parse("2025-02-17T00:00:00Z"), null, "User", null, 4)),
+                statsRollupRepository.findBuckets(query(StatsGranularity.DAY, StatsDimension.ENTITY_TYPE), Set.of("User")));
+    }
+
+    @Test
+    void shouldLeaveRollupsUnchangedWhenABatchIsReingested() {
+        List<AuditLog> batch = List.of(
+                auditLog("event1", BASE, "UserService", "User", "update"),
+                auditLog("event2", BASE.plusSeconds(30), "UserService", "User", "update"));
+        assertEquals(2, auditLogRepository.insertIgnoringDuplicates(batch).size());
+        List<AuditStatsBucket> before = statsRollupRepository.findBuckets(
+                query(StatsGranularity.MINUTE, StatsDimension.values()), null);
+
+        // Redelivered after a restart: same events, fresh entities
+        assertEquals(List.of(), auditLogRepository.insertIgnoringDuplicates(List.of(
+                auditLog("event1", BASE, "UserService", "User", "update"),
+                auditLog("event2", BASE.plusSeconds(30), "UserService", "User", "update"))));
+
+        assertEquals(before, statsRollupRepository.findBuckets(
+                query(StatsGranularity.MINUTE, StatsDimension.values()), null));
+        assertEquals(List.of(new AuditStatsBucket(BASE, "UserService", "User", "update", 2)), before);
+    }
+
+    @Test
+    void shouldRebuildRollupsFromAuditLog() {
+        auditLogRepository.insertIgnoringDuplicates(List.of(
+                auditLog("event1", BASE, "UserService", "User", "update"),
+                auditLog("event2", BASE.plusSeconds(3600), "UserService", "User", "update")
+        ));
+        // Rows that reached audit_log without the rollups, e.g. a backfill
+        jdbcTemplate.update("delete from audit_stats_rollup");
+        jdbcTemplate.update("insert into audit_log (id, event_id, timestamp, service_name_code, entity_type_code, " +
+                "action_code) select -1, 'backfilled', ?, s.code, e.code, a.code from audit_dictionary s, " +
+                "audit_dictionary e, audit_dictionary a where s.term = 'UserService' and e.term = 'User' " +
+                "and a.term = 'update'", Timestamp.from(BASE.plusSeconds(10)));
+
+        int written = statsRollupRepository.rebuildRollups(Instant.parse("2025-02-17T00:00:00Z"),
+                Instant.parse("2025-02-18T00:00:00Z"), null, Collections.emptyIterator())
+                + statsRollupRepository.rebuildDayRollups(Instant.parse("2025-02-17T00:00:00Z"),
+                Instant.parse("2025-02-18T00:00:00Z"));
+
+        assertEquals(2 + 2 + 1, written);
+        assertEquals(List.of(
+                new AuditStatsBucket(BASE, null, null, null, 2),
+                new AuditStatsBucket(BASE.plusSeconds(3600), null, null, null, 1)
+        ), statsRollupRepository.findBuckets(query(StatsGranularity.HOUR), null));
+        assertEquals(List.of(new AuditStatsBucket(BASE, null, null, null, 2)),
+                statsRollupRepository.findBuckets(query(StatsGranularity.MINUTE), null).subList(0, 1));
+    }
+
+    @Test
+    void shouldCountArchivedRowsOnceWhenRebuilding() {
+        List<AuditLog> stored = auditLogRepository.insertIgnoringDuplicates(List.of(
+                auditLog("event1", BASE, "UserService", "User", "update"),
+                auditLog("event2", BASE.plusSeconds(3600), "UserService", "User", "update")
+        ));
+        // event1 is archived but not deleted from audit_log yet; event0 only remains in the archive
+        AuditLog archivedOnly = auditLog("event0", BASE.minusSeconds(10), "UserService", "User", "update");
+        archivedOnly.setId(-1L);
+
+        int written = statsRollupRepository.rebuildRollups(Instant.parse("2025-02-17T00:00:00Z"),
+                Instant.parse("2025-02-18T00:00:00Z"), BASE, List.of(archivedOnly, stored.get(0)).iterator())
+                + statsRollupRepository.rebuildDayRollups(Instant.parse("2025-02-17T00:00:00Z"),
+                Instant.parse("2025-02-18T00:00:00Z"));
+
+        assertEquals(3 + 3 + 1, written);
+        assertEquals(List.of(
+                new AuditStatsBucket(BASE.minusSeconds(3600), null, null, null, 1),
+                new AuditStatsBucket(BASE, null, null, null, 1),
+                new AuditStatsBucket(BASE.plusSeconds(3600), null, null, null, 1)
+        ), statsRollupRepository.findBuckets(query(StatsGranularity.HOUR), null));
+        assertEquals(List.of(new AuditStatsBucket(Instant.parse("2025-02-17T00:00:00Z"), null, null, null, 3)),
+                statsRollupRepository.findBuckets(query(StatsGranularity.DAY), null));
+    }
+
+    private static AuditStatsQuery query(StatsGranularity granularity, StatsDimension... groupBy) {
+        return AuditStatsQuery.builder()
+                .granularity(granularity)
+                .from(Instant.parse("2025-02-17T00:00:00Z"))
+                .to(Instant.parse("2025-02-18T00:00:00Z"))
+                .groupBy(List.of(groupBy))
+                .build();
+    }
+
+    private static AuditLog auditLog(String eventId, Instant timestamp, String serviceName, String entityType,
+                                     String action) {
+        return AuditLog.builder()
+                .eventId(eventId)
+                .eventType("update")
+                .serviceName(serviceName)
+                .timestamp(timestamp)
+                .userId("user1")
+                .entityId("entity1")
+                .entityType(entityType)
+                .newValue("{}")
+                .action(action)
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditDictionary;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import com.calvin.auditservice.repository.AuditPayloadCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "audit.archive.enabled=true",
+        "audit.archive.directory=target/test-archive/${random.uuid}",
+        "audit.archive.rows-per-segment=2"
+})
+@Import({AuditPayloadCodec.class, AuditDictionary.class, AuditArchiver.class, AuditArchiveStore.class,
+        EntityStateService.class, EntityStateCache.class})
+class AuditArchiverTest {
+    private static final Instant BASE = Instant.parse("2024-11-01T00:00:00Z");
+
+    @Autowired
+    private AuditArchiver archiver;
+
+    @Autowired
+    private AuditArchiveStore archiveStore;
+
+    @Autowired
+    private EntityStateService stateService;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @MockBean
+    private AuditLogService auditLogService;
+
+    @Test
+    void shouldMoveAgedRowsToSegmentsAndReplayAcrossBothTiers() {
+        when(auditLogService.resolveUserAccess("admin-user-id")).thenReturn(new UserAccess("admin-user-id", true, Set.of()));
+        auditLogRepository.insertIgnoringDuplicates(List.of(
+                event("e1", 0, null, "{\"v\":1}"),
+                event("e2", 60, "{\"v\":1}", "{\"v\":2}"),
+                event("e3", 120, "{\"v\":2}", "{\"v\":3}"),
+                event("e4", 86_400, "{\"v\":3}", "{\"v\":4}")));
+
+        assertEquals(3, archiver.archive(BASE.plusSeconds(3600)));
+        assertEquals(List.of("e4"), auditLogRepository.findAll().stream().map(AuditLog::getEventId).toList());
+        List<String> archived = new ArrayList<>();
+        archiveStore.scan(null, null, null, row -> true, false)
+                .forEachRemaining(row -> archived.add(row.getEventId() + "=" + row.getNewValue()));
+        assertEquals(List.of("e1={\"v\":1}", "e2={\"v\":2}", "e3={\"v\":3}"), archived);
+        assertEquals(0, archiver.archive(BASE.plusSeconds(3600)));
+
+        // Only archived events, then archived and stored ones
+        assertEquals("{\"v\":2}", stateService.getState("admin-user-id", "Order", "order1", BASE.plusSeconds(90)).getState());
+        assertEquals("{\"v\":4}", stateService.getState("admin-user-id", "Order", "order1", BASE.plusSeconds(90_000)).getState());
+    }
+
+    private static AuditLog event(String eventId, long secondsAfterBase, String oldValue, String newValue) {
+        return AuditLog.builder()
+                .eventId(eventId)
+                .eventType("update")
+                .serviceName("order-service")
+                .timestamp(BASE.plusSeconds(secondsAfterBase))
+                .userId("user1")
+                .entityId("order1")
+                .entityType("Order")
+                .oldValue(oldValue)
+                .newValue(newValue)
+                .action(oldValue == null ? "create" : "update")
+                .build();
+    }
+}
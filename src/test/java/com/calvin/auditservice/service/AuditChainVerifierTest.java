@@ -0,0 +1,193 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.ChainBreak;
+import com.calvin.auditservice.model.ChainVerification;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditDictionary;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import com.calvin.auditservice.repository.AuditPayloadCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+// Not transactional: the verifier reads on its own threads and connections, so the rows must be committed
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "audit.chain.api-chains=1",
+        "audit.chain.verify.segment-size=3",
+        "audit.archive.enabled=true",
+        "audit.archive.directory=target/test-archive/${random.uuid}"
+})
+@Import({AuditPayloadCodec.class, AuditDictionary.class, AuditChainVerifier.class, AuditArchiver.class,
+        AuditArchiveStore.class})
+class AuditChainVerifierTest {
+    private static final Instant BASE = Instant.parse("2025-02-17T12:00:00Z");
+
+    @Autowired
+    private AuditChainVerifier chainVerifier;
+
+    @Autowired
+    private AuditArchiver archiver;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private AuditLogService auditLogService;
+
+    @BeforeEach
+    void setUp() {
+        when(auditLogService.resolveUserAccess("admin-user-id")).thenReturn(new UserAccess("admin-user-id", true, Set.of()));
+        List<AuditLog> kafka = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            AuditLog auditLog = event("k" + i, i);
+            auditLog.setChainId("kafka-" + i % 2);
+            kafka.add(auditLog);
+        }
+        auditLogRepository.insertIgnoringDuplicates(kafka);
+        // Both insert paths append to the same API chain
+        auditLogRepository.insertIgnoringDuplicates(List.of(event("a0", 10), event("a1", 11)));
+        auditLogRepository.save(event("a2", 12));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from audit_log");
+        jdbcTemplate.update("delete from audit_chain_head");
+        jdbcTemplate.update("delete from audit_event_id");
+        jdbcTemplate.update("delete from audit_stats_rollup");
+    }
+
+    @Test
+    void shouldVerifyIntactChainsInParallelSegments() {
+        ChainVerification verification = verify();
+
+        assertTrue(verification.isValid(), () -> verification.getBreaks().toString());
+        assertEquals(3, verification.getChains());
+        assertEquals(11, verification.getRowsVerified());
+        assertEquals(List.of(1L, 2L, 3L), jdbcTemplate.queryForList(
+                "select chain_seq from audit_log where chain_id = 'api-0' order by timestamp", Long.class));
+    }
+
+    @Test
+    void shouldNotLeaveGapsForRedeliveredDuplicates() {
+        // Redelivered after a rebalance: an already stored event between two new ones
+        List<AuditLog> redelivered = new ArrayList<>();
+        for (String eventId : List.of("k8", "k2", "k9")) {
+            AuditLog auditLog = event(eventId, eventId.equals("k2") ? 2 : 20 + redelivered.size());
+            auditLog.setChainId("kafka-0");
+            redelivered.add(auditLog);
+        }
+
+        assertEquals(List.of(redelivered.get(0), redelivered.get(2)), auditLogRepository.insertIgnoringDuplicates(redelivered));
+
+        ChainVerification verification = verify();
+        assertTrue(verification.isValid(), () -> verification.getBreaks().toString());
+        assertEquals(13, verification.getRowsVerified());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), jdbcTemplate.queryForList(
+                "select chain_seq from audit_log where chain_id = 'kafka-0' order by chain_seq", Long.class));
+        assertEquals(6L, jdbcTemplate.queryForObject(
+                "select seq from audit_chain_head where chain_id = 'kafka-0'", Long.class));
+    }
+
+    @Test
+    void shouldReportChangedDeletedAndReplacedRows() {
+        jdbcTemplate.update("update audit_log set user_id = 'user2' where event_id = 'k2'");
+        jdbcTemplate.update("delete from audit_log where event_id = 'k5'");
+        // A rehashed replacement still does not link to the stored hash of its predecessor
+        jdbcTemplate.update("update audit_log set prev_hash = hash where event_id = 'a1'");
+
+        ChainVerification verification = verify();
+
+        assertFalse(verification.isValid());
+        assertEquals(List.of(
+                        "api-0 2 a1 HASH_MISMATCH", "api-0 2 a1 LINK_MISMATCH",
+                        "kafka-0 2 k2 HASH_MISMATCH",
+                        "kafka-1 3 null GAP"),
+                breaks(verification));
+    }
+
+    // Gets a fresh archive directory
+    @Test
+    @DirtiesContext
+    void shouldArchiveChainPrefixesAndVerifyAcrossBothTiers() {
+        // Appended to kafka-0 after k6 but older than the cutoff: it must wait for k6, or kafka-0 gets a hole
+        AuditLog late = event("k8", 1);
+        late.setChainId("kafka-0");
+        auditLogRepository.insertIgnoringDuplicates(List.of(late));
+
+        assertEquals(5, archiver.archive(BASE.plusSeconds(5)));
+        assertEquals(List.of("a0", "a1", "a2", "k5", "k6", "k7", "k8"), jdbcTemplate.queryForList(
+                "select event_id from audit_log order by event_id", String.class));
+        ChainVerification verification = verify();
+        assertTrue(verification.isValid(), () -> verification.getBreaks().toString());
+        assertEquals(3, verification.getChains());
+        assertEquals(12, verification.getRowsVerified());
+
+        // The first stored row of kafka-0 no longer links to its archived predecessor
+        jdbcTemplate.update("update audit_log set prev_hash = hash where event_id = 'k6'");
+        assertEquals(List.of("kafka-0 4 k6 HASH_MISMATCH", "kafka-0 4 null LINK_MISMATCH"), breaks(verify()));
+    }
+
+    @Test
+    void shouldOnlyLetAdminsVerify() {
+        when(auditLogService.resolveUserAccess("ops-user")).thenReturn(new UserAccess("ops-user", false, Set.of("Order")));
+
+        assertThrows(UnauthorizedException.class, () -> chainVerifier.verify("ops-user", BASE, BASE.plusSeconds(60)));
+    }
+
+    private ChainVerification verify() {
+        return chainVerifier.verify("admin-user-id", BASE, BASE.plusSeconds(60));
+    }
+
+    private static List<String> breaks(ChainVerification verification) {
+        return verification.getBreaks().stream()
+                .map(b -> b.getChainId() + " " + b.getSeq() + " " + b.getEventId() + " " + b.getReason())
+                .sorted()
+                .toList();
+    }
+
+    private static AuditLog event(String eventId, long secondsAfterBase) {
+        return AuditLog.builder()
+                .eventId(eventId)
+                .eventType("update")
+                .serviceName("order-service")
+                .timestamp(BASE.plusSeconds(secondsAfterBase))
+                .userId("user1")
+                .entityId("order1")
+                .entityType("Order")
+                .oldValue("{\"status\":\"NEW\"}")
+                .newValue("{\"status\":\"PAID\"}")
+                .action("update")
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.InvalidAuditEventException;
+import com.calvin.auditservice.model.AuditLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditEventParserTest {
+
+    private final AuditEventParser parser = new AuditEventParser(new ObjectMapper());
+
+    @Test
+    void shouldReadScalarsAndCopyRawPayloadSpans() {
+        AuditLog auditLog = parse("""
+            {"eventId": "event1", "eventType": "update", "serviceName": "service1",
+             "timestamp": "2025-02-17T12:34:56Z", "userId": "user1", "entityId": "entity1", "entityType": "User",
+             "extra": {"ignored": [1, 2]},
+             "oldValue": { "name" : "J\u00f6hn",  "tags": [1, 2.50] },
+             "newValue": "{\\"name\\": \\"John\\"}",
+             "action": "update"}
+            """);
+
+        assertEquals("event1", auditLog.getEventId());
+        assertEquals("update", auditLog.getEventType());
+        assertEquals("service1", auditLog.getServiceName());
+        assertEquals(Instant.parse("2025-02-17T12:34:56Z"), auditLog.getTimestamp());
+        assertEquals("user1", auditLog.getUserId());
+        assertEquals("entity1", auditLog.getEntityId());
+        assertEquals("User", auditLog.getEntityType());
+        assertEquals("update", auditLog.getAction());
+        // JSON payloads are passed through byte for byte, JSON-encoded strings are unwrapped
+        assertEquals("{ \"name\" : \"J\u00f6hn\",  \"tags\": [1, 2.50] }", auditLog.getOldValue());
+        assertEquals("{\"name\": \"John\"}", auditLog.getNewValue());
+    }
+
+    @Test
+    void shouldReportEveryViolationOfAnInvalidEvent() {
+        InvalidAuditEventException exception = assertThrows(InvalidAuditEventException.class, () ->
+                parse("{\"eventId\": \"event1\", \"eventType\": {\"a\": 1}, \"timestamp\": \"today\", \"entityType\": \"User\"}"));
+
+        assertEquals("event1", exception.getEventId());
+        assertEquals(List.of("eventType must be a scalar value", "timestamp must be an ISO-8601 instant",
+                "eventType is required", "entityId is required"), exception.getViolations());
+    }
+
+    @Test
+    void shouldRejectMalformedOrNonObjectMessages() {
+        assertThrows(InvalidAuditEventException.class, () -> parse("{\"eventId\": \"event1\","));
+        assertThrows(InvalidAuditEventException.class, () -> parse("[1, 2]"));
+        assertThrows(InvalidAuditEventException.class, () -> parse(""));
+        InvalidAuditEventException trailing = assertThrows(InvalidAuditEventException.class, () ->
+                parse("{\"eventId\": \"e\", \"eventType\": \"t\", \"entityId\": \"i\", \"entityType\": \"y\"} {}"));
+        assertEquals(List.of("unexpected content after the audit event"), trailing.getViolations());
+    }
+
+    private AuditLog parse(String message) {
+        return parser.parse(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,150 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.UserAccess;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class AuditLogBroadcasterTest {
+
+    private static final UserAccess ORDERS_ONLY = new UserAccess("ops-user", false, Set.of("Order"));
+
+    @Test
+    void shouldOnlyDeliverEventsTheSubscriberMayView() throws Exception {
+        AuditLogBroadcaster broadcaster = broadcaster(10, AuditLogBroadcaster.OverflowPolicy.DISCONNECT);
+        RecordingEmitter all = new RecordingEmitter(false);
+        RecordingEmitter orderService = new RecordingEmitter(false);
+        broadcaster.subscribe(all, ORDERS_ONLY, null, null);
+        broadcaster.subscribe(orderService, ORDERS_ONLY, "Order", "order-service");
+
+        broadcaster.publish(List.of(
+                auditLog(1L, "Order", "order-service"),
+                auditLog(2L, "User", "user-service"),
+                auditLog(3L, "Order", "billing-service")));
+
+        assertEquals(List.of("1", "3"), all.auditEventIds(2));
+        assertEquals(List.of("1"), orderService.auditEventIds(1));
+        assertTrue(all.sent.stream().noneMatch(event -> event.contains("\"entityType\":\"User\"")));
+    }
+
+    @Test
+    void shouldDisconnectASubscriberThatFallsBehindWithoutBlockingPublish() throws Exception {
+        AuditLogBroadcaster broadcaster = broadcaster(2, AuditLogBroadcaster.OverflowPolicy.DISCONNECT);
+        RecordingEmitter slow = new RecordingEmitter(true);
+        broadcaster.subscribe(slow, ORDERS_ONLY, null, null);
+
+        broadcaster.publish(List.of(auditLog(1L, "Order", "order-service")));
+        assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+        broadcaster.publish(List.of(auditLog(2L, "Order", "order-service"), auditLog(3L, "Order", "order-service"),
+                auditLog(4L, "Order", "order-service")));
+
+        assertEquals(0, broadcaster.subscriberCount());
+        slow.release.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldSkipEventsAndReportHowManyWhenSampling() throws Exception {
+        AuditLogBroadcaster broadcaster = broadcaster(2, AuditLogBroadcaster.OverflowPolicy.SAMPLE);
+        RecordingEmitter slow = new RecordingEmitter(true);
+        broadcaster.subscribe(slow, ORDERS_ONLY, null, null);
+
+        broadcaster.publish(List.of(auditLog(1L, "Order", "order-service")));
+        assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+        broadcaster.publish(List.of(auditLog(2L, "Order", "order-service"), auditLog(3L, "Order", "order-service"),
+                auditLog(4L, "Order", "order-service"), auditLog(5L, "Order", "order-service")));
+        slow.release.countDown();
+
+        assertEquals(List.of("1", "2", "3"), slow.auditEventIds(3));
+        assertTrue(slow.sent.stream().anyMatch(event -> event.contains("event:dropped\ndata:2")));
+        assertEquals(1, broadcaster.subscriberCount());
+    }
+
+    private static AuditLogBroadcaster broadcaster(int bufferSize, AuditLogBroadcaster.OverflowPolicy overflow) {
+        return new AuditLogBroadcaster(mock(UserAclCache.class),
+                JsonMapper.builder().findAndAddModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build(),
+                bufferSize, 10, overflow, Duration.ofMinutes(1), Duration.ofMinutes(1), false);
+    }
+
+    private static AuditLog auditLog(Long id, String entityType, String serviceName) {
+        return AuditLog.builder()
+                .id(id)
+                .eventId("event" + id)
+                .eventType("update")
+                .serviceName(serviceName)
+                .timestamp(Instant.parse("2025-02-17T12:00:00Z"))
+                .userId("user1")
+                .entityId("entity" + id)
+                .entityType(entityType)
+                .newValue("{}")
+                .action("update")
+                .build();
+    }
+
+    // Records the events as SSE text; when blocking, the first audit event is held until release
+    private static class RecordingEmitter extends SseEmitter {
+        final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        private final boolean blocking;
+
+        RecordingEmitter(boolean blocking) {
+            this.blocking = blocking;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                text.append(data.getData());
+            }
+            if (blocking && text.indexOf("event:audit") >= 0 && sending.getCount() > 0) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            sent.add(text.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        List<String> auditEventIds(int expected) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sent.stream().filter(event -> event.contains("event:audit")).count() < expected
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            List<String> ids = new ArrayList<>();
+            for (String event : sent) {
+                if (event.contains("event:audit")) {
+                    ids.add(event.substring(event.indexOf("id:") + 3, event.indexOf('\n')));
+                }
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.calvin.auditservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AuditLogPartitionManagerTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private AuditLogPartitionManager partitionManager;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(partitionManager, "enabled", true);
+        ReflectionTestUtils.setField(partitionManager, "monthsAhead", 2);
+        ReflectionTestUtils.setField(partitionManager, "monthsBack", 1);
+        ReflectionTestUtils.setField(partitionManager, "retentionMonths", 0);
+        ReflectionTestUtils.setField(partitionManager, "retentionMode", AuditLogPartitionManager.RetentionMode.DETACH);
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void shouldCreateMissingPartitionsAroundTheCurrentMonthOnPostgres() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<String>>any())).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq("audit_log"))).thenReturn(1);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("audit_log")))
+                .thenReturn(List.of(AuditLogPartitionManager.partitionName(current), "audit_log_default"));
+        when(jdbcTemplate.queryForList(startsWith("select distinct"), eq(String.class))).thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(startsWith("select exists"), eq(Boolean.class))).thenReturn(false);
+
+        partitionManager.maintainPartitions();
+
+        // One month back and two ahead; the current month exists already
+        verify(jdbcTemplate, times(3)).execute(startsWith("create table if not exists audit_log_p"));
+        YearMonth previous = current.minusMonths(1);
+        verify(jdbcTemplate).execute("create table if not exists " + AuditLogPartitionManager.partitionName(previous) +
+                " partition of audit_log for values from ('" + previous.atDay(1) + " 00:00:00+00') to ('" +
+                current.atDay(1) + " 00:00:00+00')");
+        verify(jdbcTemplate, never()).execute("create table if not exists " +
+                AuditLogPartitionManager.partitionName(current) + " partition of audit_log for values from ('" +
+                current.atDay(1) + " 00:00:00+00') to ('" + current.plusMonths(1).atDay(1) + " 00:00:00+00')");
+        verify(jdbcTemplate, never()).execute(startsWith("alter table audit_log attach"));
+    }
+
+    @Test
+    void shouldMoveBackfilledRowsOutOfTheDefaultPartitionBeforeAttaching() {
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<String>>any())).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq("audit_log"))).thenReturn(1);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("audit_log"))).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(startsWith("select distinct"), eq(String.class))).thenReturn(List.of("202403"));
+        String inDefault = " from audit_log_default where timestamp >= '2024-03-01 00:00:00+00' " +
+                "and timestamp < '2024-04-01 00:00:00+00'";
+        when(jdbcTemplate.queryForObject(startsWith("select exists"), eq(Boolean.class))).thenAnswer(invocation ->
+                invocation.getArgument(0).equals("select exists (select 1" + inDefault + ")"));
+        when(jdbcTemplate.update("insert into audit_log_p202403 select *" + inDefault)).thenReturn(42);
+
+        partitionManager.maintainPartitions();
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).execute("lock table audit_log_default in share row exclusive mode");
+        order.verify(jdbcTemplate).execute(
+                "create table audit_log_p202403 (like audit_log including defaults including constraints)");
+        order.verify(jdbcTemplate).update("insert into audit_log_p202403 select *" + inDefault);
+        order.verify(jdbcTemplate).update("delete" + inDefault);
+        order.verify(jdbcTemplate).execute("alter table audit_log attach partition audit_log_p202403 " +
+                "for values from ('2024-03-01 00:00:00+00') to ('2024-04-01 00:00:00+00')");
+        verify(jdbcTemplate, never()).execute(startsWith("create table if not exists audit_log_p202403"));
+    }
+
+    @Test
+    void shouldNotRecreateMonthsRetentionRetired() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        ReflectionTestUtils.setField(partitionManager, "monthsBack", 12);
+        ReflectionTestUtils.setField(partitionManager, "retentionMonths", 2);
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<String>>any())).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq("audit_log"))).thenReturn(1);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("audit_log"))).thenReturn(List.of());
+        // A late event of a retired month
+        when(jdbcTemplate.queryForList(startsWith("select distinct"), eq(String.class)))
+                .thenReturn(List.of(current.minusMonths(5).format(DateTimeFormatter.ofPattern("yyyyMM"))));
+        when(jdbcTemplate.queryForObject(startsWith("select exists"), eq(Boolean.class))).thenReturn(false);
+
+        partitionManager.maintainPartitions();
+
+        // Two months back (the oldest kept is current - 2), the current month and two ahead
+        verify(jdbcTemplate, times(5)).execute(startsWith("create table if not exists audit_log_p"));
+        verify(jdbcTemplate).execute(startsWith("create table if not exists " +
+                AuditLogPartitionManager.partitionName(current.minusMonths(2)) + " "));
+        verify(jdbcTemplate, never()).execute(startsWith("create table if not exists " +
+                AuditLogPartitionManager.partitionName(current.minusMonths(3)) + " "));
+        verify(jdbcTemplate, never()).execute(startsWith("create table audit_log_p"));
+    }
+
+    @Test
+    void shouldKeepSingleTableOnH2() {
+        when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<String>>any())).thenReturn("H2");
+
+        partitionManager.maintainPartitions();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void shouldDetachAndDropPartitionsOlderThanRetention() {
+        ReflectionTestUtils.setField(partitionManager, "retentionMode", AuditLogPartitionManager.RetentionMode.DROP);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("audit_log")))
+                .thenReturn(List.of("audit_log_p202412", "audit_log_p202501", "audit_log_p202502", "audit_log_default"));
+
+        partitionManager.applyRetention(YearMonth.of(2025, 2));
+
+        verify(jdbcTemplate).execute("alter table audit_log detach partition audit_log_p202412");
+        verify(jdbcTemplate).execute("drop table audit_log_p202412");
+        verify(jdbcTemplate).execute("alter table audit_log detach partition audit_log_p202501");
+        verify(jdbcTemplate).execute("drop table audit_log_p202501");
+        verify(jdbcTemplate, never()).execute("alter table audit_log detach partition audit_log_p202502");
+        verify(jdbcTemplate, never()).execute("alter table audit_log detach partition audit_log_default");
+    }
+
+    @Test
+    void shouldNameMonthlyPartitions() {
+        assertEquals("audit_log_p202502", AuditLogPartitionManager.partitionName(YearMonth.of(2025, 2)));
+    }
+}
@@ -1,23 +1,54 @@
 package com.calvin.auditservice.service;
 
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.exception.InvalidAuditEventException;
 import com.calvin.auditservice.exception.NotFoundException;
 import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditLogPage;
+import com.calvin.auditservice.model.BulkIngestResult;
+import com.calvin.auditservice.model.BulkItemError;
+import com.calvin.auditservice.model.UserAccess;
 import com.calvin.auditservice.model.UserAcl;
 import com.calvin.auditservice.model.UserAclAllowedEntities;
+import com.calvin.auditservice.repository.AuditArchiveStore;
 import com.calvin.auditservice.repository.AuditLogRepository;
 import com.calvin.auditservice.repository.UserAclRepository;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
@@ -31,17 +62,58 @@ class AuditLogServiceTest {
     private UserAclRepository userAclRepository;
 
     @Mock
-    private Gson gson;
+    private EntityManager entityManager;
+
+    @Mock
+    private AuditSearchIndex searchIndex;
+
+    @Mock
+    private EntityStateCache entityStateCache;
+
+    @Mock
+    private AuditLogBroadcaster broadcaster;
+
+    @Mock
+    private AuditArchiveStore archiveStore;
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Spy
+    private AuditEventParser auditEventParser = new AuditEventParser(objectMapper);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private AuditMetrics auditMetrics = new AuditMetrics(meterRegistry);
+
+    // One permit: a batch that kept it would fail the next one
+    @Spy
+    private DatabaseConcurrencyLimiter dbLimiter = new DatabaseConcurrencyLimiter(1, 1, Duration.ofMillis(50));
 
     @InjectMocks
     private AuditLogService auditLogService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(auditLogService, "defaultPageSize", 100);
+        ReflectionTestUtils.setField(auditLogService, "maxPageSize", 1000);
+        ReflectionTestUtils.setField(auditLogService, "bulkBatchSize", 2);
+        ReflectionTestUtils.setField(auditLogService, "userAclCache",
+                new UserAclCache(userAclRepository, 100, Duration.ofMinutes(5)));
+        ReflectionTestUtils.setField(auditLogService, "recentEventIds", new RecentEventIdFilter(1000, 0.01));
+    }
+
     @Test
     void shouldCreateEventLog() {
         String eventId = "event123";
         AuditLog log = AuditLog.builder().id(1L).eventId(eventId).build();
         when(auditLogRepository.save(any(AuditLog.class))).thenReturn(log);
 
-        AuditLog savedLog = auditLogService.saveAuditLog(eventId, "create", "service1",
+        AuditLog savedLog = auditLogService.saveAuditLog(eventId, "create", "service1", null,
                 "user1", "user1", "entity1", "{}", "{}", "create");
 
         assertNotNull(savedLog);
@@ -55,7 +127,7 @@ class AuditLogServiceTest {
         when(userAclRepository.findByUserId(userId)).thenReturn(null);
 
         NotFoundException exception = assertThrows(NotFoundException.class, () ->
-                auditLogService.getAuditLogsByUser(userId)
+                auditLogService.getAuditLogsByUser(userId, null, null, null)
         );
 
         assertEquals("UserAcl not found", exception.getMessage());
@@ -73,13 +145,94 @@ class AuditLogServiceTest {
         );
 
         when(userAclRepository.findByUserId(userId)).thenReturn(adminAcl);
-        when(auditLogRepository.findAll()).thenReturn(allLogs);
+        when(auditLogRepository.findPage(any(), eq(Limit.of(101)))).thenReturn(allLogs);
 
-        List<AuditLog> result = auditLogService.getAuditLogsByUser(userId);
+        AuditLogPage result = auditLogService.getAuditLogsByUser(userId, null, null, null);
 
         assertNotNull(result);
-        assertEquals(2, result.size());
-        verify(auditLogRepository, times(1)).findAll();
+        assertEquals(2, result.getItems().size());
+        assertNull(result.getNextCursor());
+        verify(auditLogRepository, times(1)).findPage(any(), eq(Limit.of(101)));
+        assertEquals(1, meterRegistry.get("audit.query").tags("access", "admin", "rows", "1-10").timer().count());
+    }
+
+    @Test
+    void shouldReturnCursorAndContinueFromItWhenMoreLogsExist() {
+        String userId = "admin-user-id";
+        UserAcl adminAcl = new UserAcl();
+        adminAcl.setAdmin(true);
+        Instant now = Instant.parse("2025-02-18T10:00:00.123456Z");
+
+        List<AuditLog> firstRows = List.of(
+            AuditLog.builder().id(3L).eventId("event3").timestamp(now).build(),
+            AuditLog.builder().id(2L).eventId("event2").timestamp(now).build()
+        );
+
+        when(userAclRepository.findByUserId(userId)).thenReturn(adminAcl);
+        when(auditLogRepository.findPage(any(), eq(Limit.of(2)))).thenReturn(firstRows);
+
+        AuditLogPage firstPage = auditLogService.getAuditLogsByUser(userId, null, null, 1);
+
+        assertEquals(1, firstPage.getItems().size());
+        assertNotNull(firstPage.getNextCursor());
+
+        when(auditLogRepository.findPage(any(), eq(Limit.of(2)))).thenReturn(List.of(firstRows.get(1)));
+
+        AuditLogPage secondPage = auditLogService.getAuditLogsByUser(userId, null, firstPage.getNextCursor(), 1);
+
+        assertEquals("event2", secondPage.getItems().get(0).getEventId());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void shouldMergeArchivedRowsIntoPageWhenItReachesTheArchivedRange() {
+        String userId = "admin-user-id";
+        UserAcl adminAcl = new UserAcl();
+        adminAcl.setAdmin(true);
+        Instant archivedUntil = Instant.parse("2024-11-01T00:00:00Z");
+        AuditLog stored = AuditLog.builder().id(9L).eventId("event9").timestamp(archivedUntil.plusSeconds(60)).build();
+        // Still in the database as well: archived but not yet deleted
+        AuditLog archivedAndStored = AuditLog.builder().id(5L).eventId("event5").timestamp(archivedUntil).build();
+        AuditLog archived = AuditLog.builder().id(4L).eventId("event4").timestamp(archivedUntil.minusSeconds(60)).build();
+
+        when(userAclRepository.findByUserId(userId)).thenReturn(adminAcl);
+        when(auditLogRepository.findPage(any(), eq(Limit.of(3)))).thenReturn(List.of(stored, archivedAndStored));
+        when(archiveStore.getMaxTimestamp()).thenReturn(archivedUntil);
+        when(archiveStore.scan(any(), any(), any(), any(), eq(true)))
+                .thenReturn(List.of(archivedAndStored, archived).iterator());
+
+        AuditLogPage page = auditLogService.getAuditLogsByUser(userId, null, null, 2);
+
+        assertEquals(List.of("event9", "event5"), page.getItems().stream().map(AuditLog::getEventId).toList());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    void shouldCapPageSizeAndRejectInvalidPagingParameters() {
+        String userId = "admin-user-id";
+        UserAcl adminAcl = new UserAcl();
+        adminAcl.setAdmin(true);
+        when(userAclRepository.findByUserId(userId)).thenReturn(adminAcl);
+        when(auditLogRepository.findPage(any(), eq(Limit.of(1001)))).thenReturn(List.of());
+
+        auditLogService.getAuditLogsByUser(userId, null, null, 50_000);
+
+        verify(auditLogRepository, times(1)).findPage(any(), eq(Limit.of(1001)));
+        assertThrows(BadRequestException.class, () -> auditLogService.getAuditLogsByUser(userId, null, null, 0));
+        assertThrows(BadRequestException.class, () -> auditLogService.getAuditLogsByUser(userId, null, "not-a-cursor", null));
+    }
+
+    @Test
+    void shouldReturnEmptyPageWithoutQueryWhenUserHasNoAllowedEntities() {
+        UserAcl userAcl = new UserAcl();
+        userAcl.setAdmin(false);
+        userAcl.setAllowedEntities(List.of());
+        when(userAclRepository.findByUserId("user1")).thenReturn(userAcl);
+
+        AuditLogPage result = auditLogService.getAuditLogsByUser("user1", null, null, null);
+
+        assertTrue(result.getItems().isEmpty());
+        verify(auditLogRepository, times(0)).findPage(any(), any());
     }
 
     @Test
@@ -98,43 +251,325 @@ class AuditLogServiceTest {
         );
 
         when(userAclRepository.findByUserId(userId)).thenReturn(userAcl);
-        when(auditLogRepository.findByEntityTypeIn(List.of("entity1", "entity2"))).thenReturn(filteredLogs);
+        when(auditLogRepository.findPage(any(), eq(Limit.of(101)))).thenReturn(filteredLogs);
 
-        List<AuditLog> result = auditLogService.getAuditLogsByUser(userId);
+        AuditLogPage result = auditLogService.getAuditLogsByUser(userId, null, null, null);
 
         assertNotNull(result);
-        assertEquals(2, result.size());
-        verify(auditLogRepository, times(1)).findByEntityTypeIn(List.of("entity1", "entity2"));
+        assertEquals(2, result.getItems().size());
+        verify(auditLogRepository, times(1)).findPage(any(), eq(Limit.of(101)));
+    }
+
+    @Test
+    void shouldSaveKafkaBatchInSingleCall() {
+        String first = eventMessage("event1");
+        String second = eventMessage("event2");
+
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        auditLogService.processAuditEvents(List.of(bytes(first), bytes(second)), List.of(0, 3),
+                List.of(1L, 2L));
+
+        verify(auditLogRepository, times(1)).insertIgnoringDuplicates(argThat(logs -> logs.size() == 2
+                && logs.get(0).getChainId().equals("kafka-0") && logs.get(1).getChainId().equals("kafka-3")));
+        verify(auditLogRepository, times(0)).save(any(AuditLog.class));
     }
 
     @Test
-    void shouldProcessAuditEventAndSaveLog() {
+    void shouldSaveParsedPrefixAndReportFailedRecordIndex() {
+        String valid = eventMessage("event1");
+        String invalid = "{\"eventId\": \"event2\"}";
+
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () ->
+                auditLogService.processAuditEvents(List.of(bytes(valid), bytes(invalid)), List.of(0, 0),
+                        List.of(1L, 2L))
+        );
+
+        assertEquals(1, exception.getIndex());
+        InvalidAuditEventException cause = assertInstanceOf(InvalidAuditEventException.class, exception.getCause());
+        assertEquals("event2", cause.getEventId());
+        assertEquals(List.of("eventType is required", "entityId is required", "entityType is required"), cause.getViolations());
+        verify(auditLogRepository, times(1)).insertIgnoringDuplicates(argThat(logs -> logs.size() == 1));
+    }
+
+    @Test
+    void shouldWriteAFailedBatchOneRecordAtATimeAndReportOnlyTheRecordThatFails() {
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            List<AuditLog> logs = invocation.getArgument(0);
+            if (logs.size() > 1 || logs.get(0).getEventId().equals("event2")) {
+                throw new QueryTimeoutException("statement timeout");
+            }
+            return logs;
+        });
+
+        BatchListenerFailedException exception = assertThrows(BatchListenerFailedException.class, () ->
+                auditLogService.processAuditEvents(List.of(bytes(eventMessage("event1")), bytes(eventMessage("event2")),
+                        bytes(eventMessage("event3"))), List.of(0, 0, 0), List.of(1L, 2L, 3L)));
+
+        // event1 is committed; the batch is redelivered from event2, and event3 waits behind it
+        assertEquals(1, exception.getIndex());
+        assertInstanceOf(QueryTimeoutException.class, exception.getCause());
+        verify(auditLogRepository).insertIgnoringDuplicates(argThat(logs -> logs.size() == 1
+                && logs.get(0).getEventId().equals("event1")));
+        verify(auditLogRepository, never()).insertIgnoringDuplicates(argThat(logs -> logs.size() == 1
+                && logs.get(0).getEventId().equals("event3")));
+    }
+
+    @Test
+    void shouldDropDuplicatesWithinBatchAndSkipLookupForUnseenEventIds() {
+        List<AuditLog> batch = List.of(
+                AuditLog.builder().eventId("event1").build(),
+                AuditLog.builder().eventId("event2").build(),
+                AuditLog.builder().eventId("event1").build()
+        );
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        int inserted = auditLogService.ingestAuditLogs(batch);
+
+        assertEquals(2, inserted);
+        verify(auditLogRepository, times(1)).insertIgnoringDuplicates(argThat(logs -> logs.size() == 2));
+        verify(auditLogRepository, times(0)).findExistingEventIds(anyCollection());
+    }
+
+    @Test
+    void shouldLookUpRecentlySeenEventIdsAndDropStoredDuplicates() {
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        auditLogService.ingestAuditLogs(List.of(AuditLog.builder().eventId("event1").build()));
+
+        when(auditLogRepository.findExistingEventIds(List.of("event1"))).thenReturn(Set.of("event1"));
+
+        int inserted = auditLogService.ingestAuditLogs(List.of(
+                AuditLog.builder().eventId("event1").build(),
+                AuditLog.builder().eventId("event2").build()
+        ));
+
+        assertEquals(1, inserted);
+        verify(auditLogRepository, times(1)).findExistingEventIds(List.of("event1"));
+        verify(auditLogRepository, times(1)).insertIgnoringDuplicates(argThat(logs ->
+                logs.size() == 1 && logs.get(0).getEventId().equals("event2")));
+    }
+
+    @Test
+    void shouldPublishIndexAndCacheOnlyTheRowsTheInsertWrote() {
+        AuditLog written = AuditLog.builder().eventId("event1").build();
+        AuditLog concurrentDuplicate = AuditLog.builder().eventId("event2").build();
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenReturn(List.of(written));
+
+        int inserted = auditLogService.ingestAuditLogs(List.of(written, concurrentDuplicate));
+
+        assertEquals(1, inserted);
+        verify(broadcaster).publish(List.of(written));
+        verify(searchIndex).enqueue(List.of(written));
+        verify(entityStateCache).onIngested(List.of(written));
+    }
+
+    @Test
+    void shouldCountIngestedDuplicateAndInvalidEvents() {
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThrows(BatchListenerFailedException.class, () -> auditLogService.processAuditEvents(List.of(
+                bytes("{\"eventId\": \"event1\", \"eventType\": \"create\", \"entityId\": \"e1\", \"entityType\": \"User\"}"),
+                bytes("{\"eventId\": \"event1\", \"eventType\": \"create\", \"entityId\": \"e1\", \"entityType\": \"User\"}"),
+                bytes("{\"eventId\": \"event2\"}")), List.of(0, 0, 0), List.of(1L, 2L, 3L)));
+
+        assertEquals(1, meterRegistry.get("audit.ingest.events").tag("outcome", "inserted").counter().count());
+        assertEquals(1, meterRegistry.get("audit.ingest.events").tag("outcome", "duplicate").counter().count());
+        assertEquals(1, meterRegistry.get("audit.ingest.events").tag("outcome", "invalid").counter().count());
+        assertEquals(3, meterRegistry.get("audit.ingest.stage").tag("stage", "parse").timer().count());
+        assertEquals(1, meterRegistry.get("audit.ingest.stage").tag("stage", "persist").timer().count());
+    }
+
+    @Test
+    void shouldReturnStoredLogWhenSavingRecentlySeenEventId() {
+        AuditLog stored = AuditLog.builder().id(1L).eventId("event123").build();
+        when(auditLogRepository.save(any(AuditLog.class))).thenReturn(stored);
+        auditLogService.saveAuditLog("event123", "create", "service1", null, "user1", "user1", "entity1", "{}", "{}", "create");
+
+        when(auditLogRepository.findByEventId("event123")).thenReturn(stored);
+        AuditLog result = auditLogService.saveAuditLog("event123", "create", "service1", null, "user1", "user1",
+                "entity1", "{}", "{}", "create");
+
+        assertSame(stored, result);
+        verify(auditLogRepository, times(1)).save(any(AuditLog.class));
+    }
+
+    @Test
+    void shouldServeRepeatedAclLookupsFromCacheUntilInvalidated() {
+        String userId = "non-admin-user-id";
+        UserAcl userAcl = new UserAcl();
+        userAcl.setAdmin(false);
+        userAcl.setAllowedEntities(List.of(
+                UserAclAllowedEntities.builder().allowedEntity("User").userAcl(userAcl).build()));
+        when(userAclRepository.findByUserId(userId)).thenReturn(userAcl);
+
+        UserAccess first = auditLogService.resolveUserAccess(userId);
+        UserAccess second = auditLogService.resolveUserAccess(userId);
+
+        assertSame(first, second);
+        assertEquals(Set.of("User"), first.getAllowedEntities());
+        assertThrows(UnsupportedOperationException.class, () -> first.getAllowedEntities().add("Order"));
+        verify(userAclRepository, times(1)).findByUserId(userId);
+
+        UserAclCache cache = (UserAclCache) ReflectionTestUtils.getField(auditLogService, "userAclCache");
+        assertEquals(1, cache.statistics().getHitCount());
+        assertEquals(1, cache.statistics().getMissCount());
+
+        cache.invalidate(userId);
+        auditLogService.resolveUserAccess(userId);
+
+        verify(userAclRepository, times(2)).findByUserId(userId);
+    }
+
+    @Test
+    void shouldNotCacheMissingAcl() {
+        when(userAclRepository.findByUserId("user1")).thenReturn(null);
+
+        assertThrows(NotFoundException.class, () -> auditLogService.resolveUserAccess("user1"));
+        assertThrows(NotFoundException.class, () -> auditLogService.resolveUserAccess("user1"));
+
+        verify(userAclRepository, times(2)).findByUserId("user1");
+    }
+
+    @Test
+    void shouldExportVisibleLogsAsNdjsonAndDetachEachRow() throws Exception {
+        Instant from = Instant.parse("2025-02-01T00:00:00Z");
+        Instant to = Instant.parse("2025-03-01T00:00:00Z");
+        UserAccess access = new UserAccess("non-admin-user-id", false, Set.of("User"));
+        AuditLog first = AuditLog.builder().id(1L).eventId("event1").entityType("User")
+                .timestamp(Instant.parse("2025-02-17T12:34:56Z")).build();
+        AuditLog second = AuditLog.builder().id(2L).eventId("event2").entityType("User")
+                .timestamp(Instant.parse("2025-02-17T12:40:10Z")).build();
+        when(auditLogRepository.streamByEntityTypeInAndTimestampRange(Set.of("User"), from, to))
+                .thenReturn(Stream.of(first, second));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = auditLogService.exportAuditLogs(access, from, to, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, exported);
+        assertEquals(2, lines.length);
+        assertEquals("event1", objectMapper.readTree(lines[0]).get("eventId").asText());
+        assertEquals("2025-02-17T12:40:10Z", objectMapper.readTree(lines[1]).get("timestamp").asText());
+        verify(entityManager, times(1)).detach(first);
+        verify(entityManager, times(1)).detach(second);
+    }
+
+    @Test
+    void shouldExportNothingWhenUserHasNoAllowedEntities() throws Exception {
+        UserAccess access = new UserAccess("non-admin-user-id", false, Set.of());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = auditLogService.exportAuditLogs(access, Instant.EPOCH, Instant.now(), out);
+
+        assertEquals(0, exported);
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void shouldKeepEventTimestampFromMessage() {
         String message = """
+            {"eventId": "event1", "eventType": "update", "serviceName": "service1",
+             "timestamp": "2025-02-17T12:34:56Z", "userId": "user1", "entityId": "entity1",
+             "entityType": "entity1", "oldValue": null, "newValue": {}, "action": "update"}
+            """;
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        auditLogService.processAuditEvents(List.of(bytes(message)), List.of(0), List.of(1L));
+
+        verify(auditLogRepository).insertIgnoringDuplicates(argThat(logs ->
+                logs.get(0).getTimestamp().equals(Instant.parse("2025-02-17T12:34:56Z"))));
+    }
+
+    @Test
+    void shouldDefaultMissingTimestampToTheRecordTimestamp() {
+        // Every redelivery of the record gets the same timestamp, so it hits the same unique key
+        String message = "{\"eventId\": \"event1\", \"eventType\": \"create\", \"entityId\": \"e1\", \"entityType\": \"User\"}";
+        Instant produced = Instant.parse("2025-02-17T12:34:56.789Z");
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        auditLogService.processAuditEvents(List.of(bytes(message)), List.of(0), List.of(produced.toEpochMilli()));
+        auditLogService.processAuditEvents(List.of(bytes(message)), List.of(0), List.of(produced.toEpochMilli()));
+
+        verify(auditLogRepository, times(2)).insertIgnoringDuplicates(argThat(logs ->
+                logs.get(0).getTimestamp().equals(produced)));
+    }
+
+    @Test
+    void shouldDefaultRetriedEventsToTheOriginalRecordTimestamp() {
+        String message = "{\"eventId\": \"event1\", \"eventType\": \"create\", \"entityId\": \"e1\", \"entityType\": \"User\"}";
+        Instant produced = Instant.parse("2025-02-17T12:34:56.789Z");
+        ConsumerRecord<String, byte[]> record = new ConsumerRecord<>("audit-events-failed-retry-0", 0, 0, "e1", bytes(message));
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP,
+                ByteBuffer.allocate(Long.BYTES).putLong(produced.toEpochMilli()).array());
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        auditLogService.processFailedAuditEvent(record);
+
+        verify(auditLogRepository).insertIgnoringDuplicates(argThat(logs ->
+                logs.get(0).getTimestamp().equals(produced) && logs.get(0).getChainId() == null));
+    }
+
+    @Test
+    void shouldIngestBulkArrayInBatchesAndReportInvalidEvents() throws Exception {
+        String body = "[" + eventMessage("event1") + "," + eventMessage("event2") + ",\"not an object\"," +
+                "{\"eventId\": \"event3\", \"timestamp\": \"yesterday\"}," + eventMessage("event4") + "," +
+                eventMessage("event5").replace("\"timestamp\": \"2025-02-18T10:00:00Z\",", "") + "," +
+                eventMessage("event1") + "]";
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(auditLogRepository.findExistingEventIds(anyCollection())).thenReturn(Set.of("event1"));
+
+        BulkIngestResult result = auditLogService.ingestBulk(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(7, result.getReceived());
+        assertEquals(4, result.getInserted());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(2, result.getRejected());
+        assertEquals(new BulkItemError(2, null, "audit event must be a JSON object"), result.getErrors().get(0));
+        assertEquals(new BulkItemError(3, "event3", "timestamp must be an ISO-8601 instant; eventType is required; " +
+                "entityId is required; entityType is required"), result.getErrors().get(1));
+        // Batches of two valid events, payloads kept as JSON text
+        verify(auditLogRepository).insertIgnoringDuplicates(argThat(logs -> logs.size() == 2
+                && logs.get(0).getEventId().equals("event1") && logs.get(0).getNewValue().equals("{\"name\":\"value\"}") && logs.get(0).getTimestamp() != null));
+        // Received without a timestamp
+        verify(auditLogRepository).insertIgnoringDuplicates(argThat(logs -> logs.size() == 2
+                && logs.get(1).getEventId().equals("event5") && logs.get(1).getTimestamp() != null));
+        // A permit per batch written
+        verify(dbLimiter, times(3)).acquire();
+    }
+
+    @Test
+    void shouldIngestBulkNdjsonAndKeepPrefixOfMalformedBody() throws Exception {
+        String body = eventMessage("event1").replace("\n", "") + "\n" + eventMessage("event2").replace("\n", "") + "\n{\"eventId\": ";
+        when(auditLogRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BulkIngestResult result = auditLogService.ingestBulk(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.getInserted());
+        assertEquals(1, result.getRejected());
+        assertEquals(2, result.getErrors().get(0).getIndex());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Malformed JSON"));
+    }
+
+    private static byte[] bytes(String message) {
+        return message.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String eventMessage(String eventId) {
+        return """
             {
-                "eventId": "event123",
+                "eventId": "%s",
                 "eventType": "CREATE",
                 "serviceName": "service1",
+                "timestamp": "2025-02-18T10:00:00Z",
                 "userId": "user1",
                 "entityId": "entity1",
                 "entityType": "entity1",
-                "oldValue": "{}",
-                "newValue": "{}",
+                "oldValue": {},
+                "newValue": {"name": "value"},
                 "action": "create"
             }
-            """;
-
-        JsonObject jsonObject = new Gson().fromJson(message, JsonObject.class);
-
-        AuditLog auditLog = AuditLog.builder().id(1L).eventId("event123").build();
-
-        // Mock parseAuditLog behavior
-        when(gson.fromJson(message, JsonObject.class)).thenReturn(jsonObject);
-        when(auditLogRepository.save(any(AuditLog.class))).thenReturn(auditLog);
-
-        // Process the audit event
-        auditLogService.processAuditEvent(message);
-
-        // Then verify the log was saved
-        verify(auditLogRepository, times(1)).save(any(AuditLog.class));
+            """.formatted(eventId);
     }
-}
\ No newline at end of file
+}
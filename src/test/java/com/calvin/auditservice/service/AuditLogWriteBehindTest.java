@@ -0,0 +1,156 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.ServiceUnavailableException;
+import com.calvin.auditservice.model.AuditLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AuditLogWriteBehindTest {
+
+    private final AuditLogService auditLogService = mock(AuditLogService.class);
+    private final KafkaOperations<Object, Object> kafkaTemplate = mock();
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private AuditLogWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        when(kafkaTemplate.send(ArgumentMatchers.<ProducerRecord<Object, Object>>any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writeBehind.stop();
+    }
+
+    @Test
+    void shouldWriteQueuedAuditLogsInBatches() {
+        writeBehind = writeBehind(100, 10, Duration.ofMillis(10), false);
+        writeBehind.start();
+
+        for (int i = 0; i < 25; i++) {
+            writeBehind.enqueue(auditLog("event" + i));
+        }
+
+        verify(auditLogService, timeout(5000).atLeast(3)).ingestAuditLogs(argThat(batch -> batch.size() <= 10));
+        verify(auditLogService, never()).ingestAuditLogs(argThat(batch -> batch.size() > 10));
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(auditLogService.ingestAuditLogs(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+        writeBehind = writeBehind(2, 10, Duration.ofMillis(10), false);
+        writeBehind.start();
+
+        // The writer holds the first event while the next two fill the queue
+        writeBehind.enqueue(auditLog("event1"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writeBehind.enqueue(auditLog("event2"));
+        writeBehind.enqueue(auditLog("event3"));
+
+        assertThrows(ServiceUnavailableException.class, () -> writeBehind.enqueue(auditLog("event4")));
+        release.countDown();
+    }
+
+    @Test
+    void shouldRetryTransientFailuresAndFallBackToSingleWritesOnBadBatches() {
+        when(auditLogService.ingestAuditLogs(anyList()))
+                .thenThrow(new QueryTimeoutException("database busy"))
+                .thenThrow(new DataIntegrityViolationException("value too long"))
+                .thenReturn(1);
+        writeBehind = writeBehind(100, 10, Duration.ofMillis(10), false);
+        writeBehind.start();
+
+        writeBehind.enqueue(auditLog("event1"));
+
+        verify(auditLogService, timeout(5000).times(3)).ingestAuditLogs(List.of(auditLog("event1")));
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void shouldHandEventsTheDatabaseRejectsToTheDeadLetterTopic() {
+        when(auditLogService.ingestAuditLogs(anyList())).thenThrow(new DataIntegrityViolationException("value too long"));
+        writeBehind = writeBehind(100, 10, Duration.ofMillis(10), false);
+        writeBehind.start();
+
+        writeBehind.enqueue(auditLog("event1"));
+
+        ProducerRecord<Object, Object> record = handedOff();
+        assertEquals("audit-events-failed-dlt", record.topic());
+        assertEquals("entity-event1", record.key());
+        assertEquals("value too long",
+                new String(record.headers().lastHeader(KafkaHeaders.EXCEPTION_MESSAGE).value(), StandardCharsets.UTF_8));
+        assertEquals(auditLog("event1"), new AuditEventParser(objectMapper).parse((byte[]) record.value()));
+    }
+
+    @Test
+    void shouldHandEventsStillQueuedAtShutdownToTheFailedTopic() throws InterruptedException {
+        when(auditLogService.ingestAuditLogs(anyList())).thenThrow(new QueryTimeoutException("database down"));
+        writeBehind = writeBehind(100, 10, Duration.ofMillis(10), false);
+        writeBehind.start();
+
+        writeBehind.enqueue(auditLog("event1"));
+        verify(auditLogService, timeout(5000).atLeastOnce()).ingestAuditLogs(anyList());
+        writeBehind.stop();
+
+        ProducerRecord<Object, Object> record = handedOff();
+        assertEquals("audit-events-failed", record.topic());
+        assertNull(record.headers().lastHeader(KafkaHeaders.EXCEPTION_MESSAGE));
+        assertEquals(auditLog("event1"), new AuditEventParser(objectMapper).parse((byte[]) record.value()));
+    }
+
+    private ProducerRecord<Object, Object> handedOff() {
+        ArgumentCaptor<ProducerRecord<Object, Object>> captor = ArgumentCaptor.captor();
+        verify(kafkaTemplate, timeout(5000)).send(captor.capture());
+        return captor.getValue();
+    }
+
+    private AuditLogWriteBehind writeBehind(int queueCapacity, int batchSize, Duration retryBackoff, boolean virtualThreads) {
+        return new AuditLogWriteBehind(auditLogService, kafkaTemplate, objectMapper, "audit-events-failed",
+                true, queueCapacity, batchSize, retryBackoff, virtualThreads);
+    }
+
+    private static AuditLog auditLog(String eventId) {
+        return AuditLog.builder()
+                .eventId(eventId)
+                .eventType("UPDATE")
+                .timestamp(Instant.parse("2024-01-01T00:00:00Z"))
+                .entityId("entity-" + eventId)
+                .entityType("Order")
+                .newValue("{\"status\":\"SHIPPED\"}")
+                .build();
+    }
+}
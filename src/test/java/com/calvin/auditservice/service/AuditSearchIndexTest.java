@@ -0,0 +1,118 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.AuditEventPosition;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditSearchQuery;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditSearchIndexTest {
+
+    @TempDir
+    private Path directory;
+
+    private AuditSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        searchIndex = new AuditSearchIndex(new ObjectMapper(), true, directory, 100,
+                Duration.ofMillis(10), Duration.ofMillis(10), 16);
+        searchIndex.bindTo(new SimpleMeterRegistry());
+        searchIndex.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchIndex.stop();
+    }
+
+    @Test
+    void shouldFindQueuedAuditLogsByPayloadValuePathAndWords() throws Exception {
+        searchIndex.enqueue(List.of(
+                auditLog(1L, "ORDER", "2025-02-17T12:00:00Z",
+                        "{\"customer\":{\"email\":\"Jane@Example.com\"},\"note\":\"Customer asked for a refund\"}"),
+                auditLog(2L, "ORDER", "2025-02-17T13:00:00Z",
+                        "{\"items\":[{\"sku\":\"A-100\"},{\"sku\":\"B-200\"}],\"contact\":\"jane@example.com\"}")));
+        awaitIndexed("a-100", 1);
+
+        assertEquals(List.of(2L, 1L), search(query("jane@example.com", null), null, 10));
+        assertEquals(List.of(1L), search(query("jane@example.com", "newValue.customer.email"), null, 10));
+        assertEquals(List.of(2L), search(query("B-200", "newValue.items[].sku"), null, 10));
+        assertEquals(List.of(1L), search(query("asked for a refund", null), null, 10));
+        assertEquals(List.of(), search(query("refund asked", null), null, 10));
+        assertEquals(List.of(2L), search(query("jane@example.com", null), null, 1));
+    }
+
+    @Test
+    void shouldOnlyReturnAllowedEntityTypesWithinTheTimeRange() throws Exception {
+        searchIndex.enqueue(List.of(
+                auditLog(1L, "ORDER", "2025-02-17T12:00:00Z", "{\"orderNumber\":\"SO-42\"}"),
+                auditLog(2L, "INVOICE", "2025-02-17T13:00:00Z", "{\"orderNumber\":\"SO-42\"}"),
+                auditLog(3L, "ORDER", "2025-02-18T12:00:00Z", "{\"orderNumber\":\"SO-42\"}")));
+        awaitIndexed("so-42", 3);
+
+        assertEquals(List.of(3L, 1L), search(query("SO-42", null), Set.of("ORDER"), 10));
+        assertEquals(List.of(), search(query("SO-42", null), Set.of("USER"), 10));
+
+        AuditSearchQuery firstDay = query("SO-42", null);
+        firstDay.setFrom(Instant.parse("2025-02-17T00:00:00Z"));
+        firstDay.setTo(Instant.parse("2025-02-18T00:00:00Z"));
+        assertEquals(List.of(2L, 1L), search(firstDay, null, 10));
+    }
+
+    @Test
+    void shouldReplaceTheDocumentWhenARowIsIndexedAgain() throws Exception {
+        assertEquals(1, searchIndex.index(List.of(
+                auditLog(1L, "ORDER", "2025-02-17T12:00:00Z", "{\"status\":\"PENDING\"}")).iterator()));
+        assertEquals(List.of(new AuditEventPosition(1L, Instant.parse("2025-02-17T12:00:00Z"))),
+                searchIndex.search(query("pending", null), null, 10));
+
+        searchIndex.index(List.of(auditLog(1L, "ORDER", "2025-02-17T12:00:00Z", "{\"status\":\"SHIPPED\"}")).iterator());
+
+        assertEquals(List.of(), search(query("pending", null), null, 10));
+        assertEquals(List.of(1L), search(query("shipped", null), null, 10));
+    }
+
+    private void awaitIndexed(String text, int hits) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (search(query(text, null), null, 10).size() < hits) {
+            assertTrue(System.nanoTime() < deadline, "Audit logs were not indexed in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static AuditSearchQuery query(String text, String path) {
+        return AuditSearchQuery.builder().text(text).path(path).build();
+    }
+
+    private List<Long> search(AuditSearchQuery query, Set<String> entityTypes, int limit) throws Exception {
+        return searchIndex.search(query, entityTypes, limit).stream().map(AuditEventPosition::id).toList();
+    }
+
+    private static AuditLog auditLog(Long id, String entityType, String timestamp, String newValue) {
+        return AuditLog.builder()
+                .id(id)
+                .eventId("event" + id)
+                .eventType("UPDATE")
+                .serviceName("order-service")
+                .timestamp(Instant.parse(timestamp))
+                .userId("user1")
+                .entityId("entity" + id)
+                .entityType(entityType)
+                .newValue(newValue)
+                .action("UPDATE")
+                .build();
+    }
+}
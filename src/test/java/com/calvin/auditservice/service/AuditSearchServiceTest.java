@@ -0,0 +1,93 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.model.AuditEventPosition;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditSearchQuery;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditSearchServiceTest {
+    @Mock
+    private AuditSearchIndex searchIndex;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private AuditArchiveStore archiveStore;
+
+    @InjectMocks
+    private AuditSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(searchService, "defaultLimit", 100);
+        ReflectionTestUtils.setField(searchService, "maxLimit", 1000);
+        when(searchIndex.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    void shouldReadHitsArchivedSinceTheyWereIndexedFromTheArchive() throws Exception {
+        AuditSearchQuery query = AuditSearchQuery.builder().text("SO-42").build();
+        when(auditLogService.resolveUserAccess("non-admin-user-id"))
+                .thenReturn(new UserAccess("non-admin-user-id", false, Set.of("ORDER")));
+        when(searchIndex.search(query, Set.of("ORDER"), 100)).thenReturn(List.of(
+                new AuditEventPosition(4L, Instant.parse("2025-02-18T12:00:00Z")),
+                new AuditEventPosition(3L, Instant.parse("2025-02-17T12:00:00.250Z")),
+                new AuditEventPosition(2L, Instant.parse("2025-02-17T11:00:00Z")),
+                new AuditEventPosition(1L, Instant.parse("2025-02-17T10:00:00Z"))));
+        when(auditLogRepository.findAllById(List.of(4L, 3L, 2L, 1L)))
+                .thenReturn(List.of(auditLog(4L, "2025-02-18T12:00:00Z")));
+        when(archiveStore.getMaxTimestamp()).thenReturn(Instant.parse("2025-02-17T23:00:00Z"));
+        // Row 2 was deleted: neither audit_log nor the archive has it
+        when(archiveStore.scan(eq(Instant.parse("2025-02-17T10:00:00Z")), eq(Instant.parse("2025-02-17T12:00:00.251Z")),
+                eq(Set.of("ORDER")), any(), eq(false)))
+                .thenReturn(List.of(auditLog(1L, "2025-02-17T10:00:00Z"), auditLog(3L, "2025-02-17T12:00:00.250123Z")).iterator());
+
+        List<AuditLog> results = searchService.search("non-admin-user-id", query, null);
+
+        assertEquals(List.of(4L, 3L, 1L), results.stream().map(AuditLog::getId).toList());
+    }
+
+    @Test
+    void shouldNotScanTheArchiveWhenEveryHitIsStored() throws Exception {
+        AuditSearchQuery query = AuditSearchQuery.builder().text("SO-42").build();
+        when(auditLogService.resolveUserAccess("admin-user-id")).thenReturn(new UserAccess("admin-user-id", true, Set.of()));
+        when(searchIndex.search(query, null, 10)).thenReturn(List.of(
+                new AuditEventPosition(1L, Instant.parse("2025-02-17T10:00:00Z"))));
+        when(auditLogRepository.findAllById(List.of(1L))).thenReturn(List.of(auditLog(1L, "2025-02-17T10:00:00Z")));
+
+        assertEquals(1, searchService.search("admin-user-id", query, 10).size());
+        verifyNoInteractions(archiveStore);
+    }
+
+    private static AuditLog auditLog(Long id, String timestamp) {
+        return AuditLog.builder()
+                .id(id)
+                .eventId("event" + id)
+                .timestamp(Instant.parse(timestamp))
+                .entityId("entity" + id)
+                .entityType("ORDER")
+                .build();
+    }
+}
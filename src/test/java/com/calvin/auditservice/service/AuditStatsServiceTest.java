@@ -0,0 +1,109 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.BadRequestException;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.AuditStatsQuery;
+import com.calvin.auditservice.model.StatsGranularity;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditStatsRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditStatsServiceTest {
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private AuditStatsRollupRepository statsRollupRepository;
+
+    @Mock
+    private AuditArchiveStore archiveStore;
+
+    @InjectMocks
+    private AuditStatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(statsService, "maxBuckets", 1000L);
+    }
+
+    @Test
+    void shouldRestrictStatsToAllowedEntityTypes() {
+        AuditStatsQuery query = query(StatsGranularity.HOUR, "2025-02-17T00:00:00Z", "2025-02-18T00:00:00Z");
+        when(auditLogService.resolveUserAccess("admin-user-id")).thenReturn(new UserAccess("admin-user-id", true, Set.of()));
+        when(auditLogService.resolveUserAccess("non-admin-user-id"))
+                .thenReturn(new UserAccess("non-admin-user-id", false, Set.of("User")));
+        when(auditLogService.resolveUserAccess("no-access-user-id"))
+                .thenReturn(new UserAccess("no-access-user-id", false, Set.of()));
+
+        statsService.getStats("admin-user-id", query);
+        statsService.getStats("non-admin-user-id", query);
+        assertEquals(List.of(), statsService.getStats("no-access-user-id", query));
+
+        verify(statsRollupRepository).findBuckets(query, null);
+        verify(statsRollupRepository).findBuckets(query, Set.of("User"));
+        verifyNoMoreInteractions(statsRollupRepository);
+    }
+
+    @Test
+    void shouldRejectRangesWithTooManyBuckets() {
+        assertThrows(BadRequestException.class, () -> statsService.getStats("admin-user-id",
+                query(StatsGranularity.MINUTE, "2025-02-17T00:00:00Z", "2025-02-18T00:00:00Z")));
+        assertThrows(BadRequestException.class, () -> statsService.getStats("admin-user-id",
+                query(StatsGranularity.DAY, "2025-02-18T00:00:00Z", "2025-02-17T00:00:00Z")));
+        verifyNoInteractions(statsRollupRepository);
+    }
+
+    @Test
+    void shouldRebuildWholeDaysHourByHourForAdminsOnly() {
+        when(auditLogService.resolveUserAccess("admin-user-id")).thenReturn(new UserAccess("admin-user-id", true, Set.of()));
+        when(auditLogService.resolveUserAccess("non-admin-user-id"))
+                .thenReturn(new UserAccess("non-admin-user-id", false, Set.of("User")));
+
+        Iterator<AuditLog> archived = Collections.emptyIterator();
+        when(archiveStore.getMaxTimestamp()).thenReturn(Instant.parse("2025-02-17T06:00:00Z"));
+        when(archiveStore.scan(any(), any(), isNull(), any(), eq(false))).thenReturn(archived);
+
+        statsService.rebuild("admin-user-id", Instant.parse("2025-02-17T10:00:00Z"), Instant.parse("2025-02-18T00:00:00Z"));
+
+        verify(archiveStore).scan(eq(Instant.parse("2025-02-17T23:00:00Z")), eq(Instant.parse("2025-02-18T00:00:00Z")),
+                isNull(), any(), eq(false));
+        verify(statsRollupRepository).rebuildRollups(Instant.parse("2025-02-17T00:00:00Z"),
+                Instant.parse("2025-02-17T01:00:00Z"), Instant.parse("2025-02-17T06:00:00Z"), archived);
+        verify(statsRollupRepository).rebuildRollups(Instant.parse("2025-02-17T23:00:00Z"),
+                Instant.parse("2025-02-18T00:00:00Z"), Instant.parse("2025-02-17T06:00:00Z"), archived);
+        verify(statsRollupRepository, times(24)).rebuildRollups(any(), any(), any(), any());
+        verify(statsRollupRepository).rebuildDayRollups(Instant.parse("2025-02-17T00:00:00Z"),
+                Instant.parse("2025-02-18T00:00:00Z"));
+        assertThrows(UnauthorizedException.class, () -> statsService.rebuild("non-admin-user-id",
+                Instant.parse("2025-02-17T00:00:00Z"), Instant.parse("2025-02-18T00:00:00Z")));
+        verify(statsRollupRepository, times(24)).rebuildRollups(any(), any(), any(), any());
+    }
+
+    private static AuditStatsQuery query(StatsGranularity granularity, String from, String to) {
+        return AuditStatsQuery.builder()
+                .granularity(granularity)
+                .from(Instant.parse(from))
+                .to(Instant.parse(to))
+                .groupBy(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseConcurrencyLimiterTest {
+
+    private final DatabaseConcurrencyLimiter limiter = new DatabaseConcurrencyLimiter(2, 1, Duration.ofMillis(50));
+
+    @Test
+    void shouldRejectRequestsBeyondPermitsUntilOneIsReleased() {
+        DatabaseConcurrencyLimiter.Permit first = limiter.acquire();
+        DatabaseConcurrencyLimiter.Permit second = limiter.acquire();
+
+        assertThrows(ServiceUnavailableException.class, limiter::acquire);
+
+        first.close();
+        limiter.acquire().close();
+        second.close();
+    }
+
+    @Test
+    void shouldCapExportsWithoutTakingEveryRequestPermit() {
+        DatabaseConcurrencyLimiter.Permit export = limiter.acquireExport();
+
+        assertThrows(ServiceUnavailableException.class, limiter::acquireExport);
+        limiter.acquire().close();
+
+        export.close();
+        limiter.acquireExport().close();
+    }
+
+    @Test
+    void shouldReturnExportPermitWhenNoRequestPermitIsLeft() {
+        DatabaseConcurrencyLimiter.Permit first = limiter.acquire();
+        DatabaseConcurrencyLimiter.Permit second = limiter.acquire();
+
+        assertThrows(ServiceUnavailableException.class, limiter::acquireExport);
+
+        first.close();
+        second.close();
+        limiter.acquireExport().close();
+    }
+
+    @Test
+    void shouldReleaseAPermitOnlyOnce() {
+        DatabaseConcurrencyLimiter.Permit export = limiter.acquireExport();
+        export.close();
+        export.close();
+
+        DatabaseConcurrencyLimiter.Permit first = limiter.acquire();
+        DatabaseConcurrencyLimiter.Permit second = limiter.acquire();
+        assertThrows(ServiceUnavailableException.class, limiter::acquire);
+        first.close();
+        second.close();
+    }
+}
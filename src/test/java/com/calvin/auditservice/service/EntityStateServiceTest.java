@@ -0,0 +1,153 @@
+package com.calvin.auditservice.service;
+
+import com.calvin.auditservice.exception.NotFoundException;
+import com.calvin.auditservice.exception.UnauthorizedException;
+import com.calvin.auditservice.model.AuditLog;
+import com.calvin.auditservice.model.EntityState;
+import com.calvin.auditservice.model.UserAccess;
+import com.calvin.auditservice.repository.AuditArchiveStore;
+import com.calvin.auditservice.repository.AuditDictionary;
+import com.calvin.auditservice.repository.AuditLogRepository;
+import com.calvin.auditservice.repository.AuditPayloadCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "audit.reconstruction.snapshot-interval=2"
+})
+@Import({AuditPayloadCodec.class, AuditDictionary.class, EntityStateService.class, EntityStateCache.class,
+        AuditArchiveStore.class})
+class EntityStateServiceTest {
+    private static final Instant BASE = Instant.parse("2025-02-17T12:00:00Z");
+
+    @Autowired
+    private EntityStateService stateService;
+
+    @Autowired
+    private EntityStateCache stateCache;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private AuditLogService auditLogService;
+
+    @BeforeEach
+    void setUp() {
+        when(auditLogService.resolveUserAccess("admin-user-id")).thenReturn(new UserAccess("admin-user-id", true, Set.of()));
+    }
+
+    @Test
+    void shouldReplayFullAndPartialChangesUpToAsOf() {
+        auditLogRepository.insertIgnoringDuplicates(List.of(
+                event("e1", "user1", 0, null, "{\"name\":\"Calvin\",\"email\":\"calvin@example.com\"}"),
+                // Only the changed field
+                event("e2", "user1", 60, "{\"name\":\"Calvin\"}", "{\"name\":\"Calvin Lee\"}"),
+                event("other", "user2", 90, null, "{\"name\":\"Someone else\"}"),
+                // Full state, without email
+                event("e3", "user1", 120, "{\"name\":\"Calvin Lee\",\"email\":\"calvin@example.com\"}",
+                        "{\"name\":\"Calvin Lee\",\"phone\":\"555-0100\"}"),
+                event("e4", "user1", 180, "{\"name\":\"Calvin Lee\",\"phone\":\"555-0100\"}", null)
+        ));
+
+        assertThrows(NotFoundException.class, () -> state(BASE.minusSeconds(1)));
+        assertEquals("{\"name\":\"Calvin\",\"email\":\"calvin@example.com\"}", state(BASE.plusSeconds(59)).getState());
+        assertEquals("{\"name\":\"Calvin Lee\",\"email\":\"calvin@example.com\"}", state(BASE.plusSeconds(60)).getState());
+        assertEquals("{\"name\":\"Calvin Lee\",\"phone\":\"555-0100\"}", state(BASE.plusSeconds(179)).getState());
+
+        EntityState deleted = state(BASE.plusSeconds(3600));
+        assertTrue(deleted.isDeleted());
+        assertNull(deleted.getState());
+        assertEquals(BASE.plusSeconds(180), deleted.getLastEventTimestamp());
+        assertEquals(BASE.plusSeconds(3600), deleted.getAsOf());
+    }
+
+    @Test
+    void shouldReplayFromSnapshotsAndDropThemOnLateEvents() {
+        auditLogRepository.insertIgnoringDuplicates(List.of(
+                event("e1", "user1", 0, null, "{\"v\":1}"),
+                event("e2", "user1", 60, "{\"v\":1}", "{\"v\":2}"),
+                event("e3", "user1", 120, "{\"v\":2}", "{\"v\":3}"),
+                event("e4", "user1", 180, "{\"v\":3}", "{\"v\":4}"),
+                event("e5", "user1", 240, "{\"v\":4}", "{\"v\":5}"),
+                event("o1", "user2", 0, null, "{\"o\":1}"),
+                event("o2", "user2", 60, "{\"o\":1}", "{\"o\":2}"),
+                event("o3", "user2", 120, "{\"o\":2}", "{\"o\":3}")
+        ));
+
+        assertEquals("{\"v\":5}", state(BASE.plusSeconds(300)).getState());
+        assertEquals(List.of("{\"v\":2}", "{\"v\":4}"), jdbcTemplate.queryForList(
+                "select state from audit_entity_snapshot where entity_id = 'user1' order by as_of_timestamp",
+                String.class));
+        assertEquals("{\"o\":3}", stateService.getState("admin-user-id", "UserProfile", "user2",
+                BASE.plusSeconds(300)).getState());
+
+        // Replay starts from the latest snapshot: tamper with it to prove the events before it are not read
+        jdbcTemplate.update("update audit_entity_snapshot set state = '{\"v\":40}' where state = '{\"v\":4}'");
+        assertEquals("{\"v\":40}", state(BASE.plusSeconds(200)).getState());
+
+        // A late event behind the snapshots removes them and the cached states; an event after them keeps them
+        List<AuditLog> batch = List.of(
+                event("late", "user1", 30, "{\"v\":1}", "{\"v\":1,\"late\":true}"),
+                event("o4", "user2", 180, "{\"o\":3}", "{\"o\":4}"));
+        auditLogRepository.insertIgnoringDuplicates(batch);
+        stateCache.onIngested(batch);
+
+        assertEquals(List.of("user2"), jdbcTemplate.queryForList(
+                "select distinct entity_id from audit_entity_snapshot", String.class));
+        assertEquals("{\"v\":4,\"late\":true}", state(BASE.plusSeconds(200)).getState());
+        assertEquals("{\"v\":5,\"late\":true}", state(BASE.plusSeconds(300)).getState());
+    }
+
+    @Test
+    void shouldOnlyReconstructAllowedEntityTypes() {
+        when(auditLogService.resolveUserAccess("non-admin-user-id"))
+                .thenReturn(new UserAccess("non-admin-user-id", false, Set.of("Order")));
+        auditLogRepository.insertIgnoringDuplicates(List.of(event("e1", "user1", 0, null, "{\"name\":\"Calvin\"}")));
+
+        assertThrows(UnauthorizedException.class, () -> stateService.getState("non-admin-user-id", "UserProfile",
+                "user1", BASE.plusSeconds(60)));
+    }
+
+    private EntityState state(Instant asOf) {
+        return stateService.getState("admin-user-id", "UserProfile", "user1", asOf);
+    }
+
+    private static AuditLog event(String eventId, String entityId, long secondsAfterBase, String oldValue,
+                                  String newValue) {
+        return AuditLog.builder()
+                .eventId(eventId)
+                .eventType("update")
+                .serviceName("user-service")
+                .timestamp(BASE.plusSeconds(secondsAfterBase))
+                .userId("user1")
+                .entityId(entityId)
+                .entityType("UserProfile")
+                .oldValue(oldValue)
+                .newValue(newValue)
+                .action(newValue == null ? "delete" : oldValue == null ? "create" : "update")
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.calvin.auditservice.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IngestionBackpressureTest {
+
+    private final KafkaListenerEndpointRegistry listenerRegistry = mock(KafkaListenerEndpointRegistry.class);
+    private final MessageListenerContainer container = mock(MessageListenerContainer.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+    private final AuditMetrics metrics = new AuditMetrics(new SimpleMeterRegistry());
+    private final IngestionBackpressure backpressure = new IngestionBackpressure(listenerRegistry, metrics,
+            jdbcTemplate, true, Duration.ofMillis(20), Duration.ofSeconds(1), 2, Duration.ZERO);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        HikariDataSource dataSource = mock(HikariDataSource.class);
+        when(dataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(dataSource.unwrap(HikariDataSource.class)).thenReturn(dataSource);
+        when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+        when(jdbcTemplate.getDataSource()).thenReturn(dataSource);
+        when(listenerRegistry.getListenerContainers()).thenReturn(List.of(container));
+    }
+
+    @Test
+    void shouldPauseOnSlowWritesAndResumeOnceTheDatabaseAnswers() {
+        metrics.persist(() -> 1);
+        backpressure.check();
+        assertFalse(backpressure.isPaused());
+
+        metrics.persist(() -> {
+            sleep(50);
+            return 1;
+        });
+        backpressure.check();
+        assertTrue(backpressure.isPaused());
+        verify(container).pause();
+
+        // No writes while paused: the probe decides
+        when(jdbcTemplate.queryForObject("select 1", Integer.class))
+                .thenThrow(new CannotGetJdbcConnectionException("down"));
+        backpressure.check();
+        assertTrue(backpressure.isPaused());
+
+        doReturn(1).when(jdbcTemplate).queryForObject("select 1", Integer.class);
+        backpressure.check();
+        assertFalse(backpressure.isPaused());
+        verify(container).resume();
+
+        // The slow write before the pause no longer counts
+        backpressure.check();
+        assertFalse(backpressure.isPaused());
+    }
+
+    @Test
+    void shouldStayPausedWhileThreadsWaitForConnections() {
+        when(pool.getThreadsAwaitingConnection()).thenReturn(3);
+        backpressure.check();
+        assertTrue(backpressure.isPaused());
+
+        when(pool.getThreadsAwaitingConnection()).thenReturn(1);
+        backpressure.check();
+        assertTrue(backpressure.isPaused());
+        verify(container, never()).resume();
+
+        when(pool.getThreadsAwaitingConnection()).thenReturn(0);
+        backpressure.check();
+        assertFalse(backpressure.isPaused());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}